@@ -0,0 +1,46 @@
+package com.udacity.catpoint.benchmarks;
+
+import com.udacity.catpoint.secservice.data.Sensor;
+import com.udacity.catpoint.secservice.data.SensorType;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Deterministic inputs shared by the benchmarks, so runs on different machines measure the same work.
+ */
+final class Fixtures {
+    private static final long SEED = 42;
+
+    private Fixtures() {
+    }
+
+    static Sensor[] sensors(int count) {
+        SensorType[] types = SensorType.values();
+        Sensor[] sensors = new Sensor[count];
+        for (int i = 0; i < count; i++) {
+            sensors[i] = new Sensor(new UUID(0, i), "Sensor " + i, types[i % types.length], false);
+        }
+        return sensors;
+    }
+
+    /**
+     * A frame of blocky noise, roughly as hard to classify and compress as a camera image.
+     */
+    static BufferedImage image(int width, int height) {
+        Random random = new Random(SEED);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        for (int y = 0; y < height; y += 8) {
+            for (int x = 0; x < width; x += 8) {
+                int rgb = random.nextInt(0x1000000);
+                for (int dy = 0; dy < 8 && y + dy < height; dy++) {
+                    for (int dx = 0; dx < 8 && x + dx < width; dx++) {
+                        image.setRGB(x + dx, y + dy, rgb ^ random.nextInt(0x101010));
+                    }
+                }
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,50 @@
+package com.udacity.catpoint.benchmarks;
+
+import com.udacity.catpoint.imageservice.FakeImageService;
+import com.udacity.catpoint.imageservice.ImageService;
+import com.udacity.catpoint.imageservice.LocalImageService;
+import com.udacity.catpoint.secservice.data.ArmingStatus;
+import com.udacity.catpoint.secservice.service.SecurityService;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code SecurityService.processImage} end to end. With the fake image service this measures the
+ * service's own overhead; with the local classifier it is a realistic offline workload.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImageServiceBenchmark {
+    @Param({"fake", "local"})
+    private String imageService;
+
+    @Param({"640x480", "1920x1080"})
+    private String resolution;
+
+    private SecurityService securityService;
+    private BufferedImage image;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ImageService service = switch (imageService) {
+            case "fake" -> new FakeImageService();
+            case "local" -> new LocalImageService();
+            default -> throw new IllegalArgumentException("Unknown image service " + imageService);
+        };
+        String[] size = resolution.split("x");
+        image = Fixtures.image(Integer.parseInt(size[0]), Integer.parseInt(size[1]));
+        securityService = new SecurityService(new InMemorySecurityRepository(), service);
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+    }
+
+    @Benchmark
+    public void processImage() {
+        securityService.processImage(image);
+    }
+}
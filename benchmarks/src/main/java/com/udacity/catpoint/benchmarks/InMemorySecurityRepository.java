@@ -0,0 +1,73 @@
+package com.udacity.catpoint.benchmarks;
+
+import com.udacity.catpoint.secservice.data.AlarmStatus;
+import com.udacity.catpoint.secservice.data.ArmingStatus;
+import com.udacity.catpoint.secservice.data.SecurityRepository;
+import com.udacity.catpoint.secservice.data.Sensor;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Repository that only keeps state in memory, so service benchmarks measure the service rather
+ * than persistence. Sensors are indexed by id too, so looking one up costs the same at any size.
+ */
+class InMemorySecurityRepository implements SecurityRepository {
+    private final Set<Sensor> sensors = new TreeSet<>();
+    private final Map<UUID, Sensor> sensorsById = new HashMap<>();
+    private AlarmStatus alarmStatus = AlarmStatus.NO_ALARM;
+    private ArmingStatus armingStatus = ArmingStatus.DISARMED;
+
+    @Override
+    public void addSensor(Sensor sensor) {
+        updateSensor(sensor);
+    }
+
+    @Override
+    public void removeSensor(Sensor sensor) {
+        Sensor stored = sensorsById.remove(sensor.getSensorId());
+        if (stored != null) {
+            sensors.remove(stored);
+        }
+    }
+
+    @Override
+    public void updateSensor(Sensor sensor) {
+        removeSensor(sensor);
+        sensors.add(sensor);
+        sensorsById.put(sensor.getSensorId(), sensor);
+    }
+
+    @Override
+    public void setAlarmStatus(AlarmStatus alarmStatus) {
+        this.alarmStatus = alarmStatus;
+    }
+
+    @Override
+    public void setArmingStatus(ArmingStatus armingStatus) {
+        this.armingStatus = armingStatus;
+    }
+
+    @Override
+    public Set<Sensor> getSensors() {
+        return sensors;
+    }
+
+    @Override
+    public Sensor findSensor(Sensor sensor) {
+        return sensorsById.get(sensor.getSensorId());
+    }
+
+    @Override
+    public AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    @Override
+    public ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+}
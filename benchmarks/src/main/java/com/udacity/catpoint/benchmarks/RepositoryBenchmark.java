@@ -0,0 +1,85 @@
+package com.udacity.catpoint.benchmarks;
+
+import com.udacity.catpoint.secservice.data.MemoryMappedSecurityRepositoryImpl;
+import com.udacity.catpoint.secservice.data.PretendDatabaseSecurityRepositoryImpl;
+import com.udacity.catpoint.secservice.data.SecurityRepository;
+import com.udacity.catpoint.secservice.data.Sensor;
+import com.udacity.catpoint.secservice.data.WriteAheadLogSecurityRepositoryImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+import java.util.stream.Stream;
+
+/**
+ * Cost of persisting one sensor update in each repository. The preferences repository writes to a
+ * throwaway preferences node and the file-based ones to a temporary directory, all removed again
+ * after the trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepositoryBenchmark {
+    @Param({"preferences", "wal", "mmap"})
+    private String repositoryType;
+
+    @Param({"10", "1000"})
+    private int sensorCount;
+
+    private SecurityRepository repository;
+    private Preferences prefs;
+    private Path directory;
+    private Sensor[] sensors;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        repository = switch (repositoryType) {
+            case "preferences" -> {
+                prefs = Preferences.userRoot().node("catpoint-benchmark-" + UUID.randomUUID());
+                yield new PretendDatabaseSecurityRepositoryImpl(prefs);
+            }
+            case "wal" -> new WriteAheadLogSecurityRepositoryImpl(directory = Files.createTempDirectory("catpoint-wal"));
+            case "mmap" -> new MemoryMappedSecurityRepositoryImpl(directory = Files.createTempDirectory("catpoint-mmap"));
+            default -> throw new IllegalArgumentException("Unknown repository " + repositoryType);
+        };
+        sensors = Fixtures.sensors(sensorCount);
+        repository.addSensors(List.of(sensors));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException, BackingStoreException {
+        if (repository instanceof Closeable closeable) {
+            closeable.close();
+        }
+        if (prefs != null) {
+            prefs.removeNode();
+        }
+        if (directory != null) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void updateSensor() {
+        Sensor sensor = sensors[next];
+        next = next + 1 == sensors.length ? 0 : next + 1;
+        sensor.setActive(!sensor.getActive());
+        repository.updateSensor(sensor);
+    }
+}
@@ -0,0 +1,58 @@
+package com.udacity.catpoint.benchmarks;
+
+import com.udacity.catpoint.imageservice.FakeImageService;
+import com.udacity.catpoint.secservice.data.ArmingStatus;
+import com.udacity.catpoint.secservice.data.Sensor;
+import com.udacity.catpoint.secservice.service.SecurityService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sensor and arming changes on a service backed by an in-memory repository.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SecurityServiceBenchmark {
+    @Param({"10", "1000", "100000"})
+    private int sensorCount;
+
+    private SecurityService securityService;
+    private Sensor[] sensors;
+    private int next;
+    private boolean armed;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemorySecurityRepository repository = new InMemorySecurityRepository();
+        sensors = Fixtures.sensors(sensorCount);
+        repository.addSensors(List.of(sensors));
+        securityService = new SecurityService(repository, new FakeImageService());
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+    }
+
+    /**
+     * Flips one sensor per invocation, cycling through all of them.
+     */
+    @Benchmark
+    public void changeSensorActivationStatus() {
+        Sensor sensor = sensors[next];
+        next = next + 1 == sensors.length ? 0 : next + 1;
+        securityService.changeSensorActivationStatus(sensor, !sensor.getActive());
+    }
+
+    /**
+     * Alternates between armed and disarmed; arming resets every sensor, so this scales with the
+     * number of sensors.
+     */
+    @Benchmark
+    public void setArmingStatus() {
+        armed = !armed;
+        securityService.setArmingStatus(armed ? ArmingStatus.ARMED_AWAY : ArmingStatus.DISARMED);
+    }
+}
@@ -0,0 +1,68 @@
+package com.udacity.catpoint.benchmarks;
+
+import com.google.common.reflect.TypeToken;
+import com.google.gson.Gson;
+import com.udacity.catpoint.secservice.data.Sensor;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sensor serialization as done by the preferences repository, and sensor ordering.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SensorBenchmark {
+    private static final Type SENSOR_SET = new TypeToken<Set<Sensor>>() {
+    }.getType();
+
+    @Param({"10", "1000"})
+    private int sensorCount;
+
+    private final Gson gson = new Gson();
+    private Sensor[] sensors;
+    private Set<Sensor> sensorSet;
+    private String json;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sensors = Fixtures.sensors(sensorCount);
+        sensorSet = new TreeSet<>(Arrays.asList(sensors));
+        json = gson.toJson(sensorSet);
+    }
+
+    @Benchmark
+    public String toJson() {
+        return gson.toJson(sensorSet);
+    }
+
+    @Benchmark
+    public Set<Sensor> fromJson() {
+        return gson.fromJson(json, SENSOR_SET);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void compareTo(Blackhole blackhole) {
+        for (int i = 1; i < sensors.length; i++) {
+            blackhole.consume(sensors[i - 1].compareTo(sensors[i]));
+        }
+    }
+
+    @Benchmark
+    public Sensor[] sort() {
+        Sensor[] copy = sensors.clone();
+        Arrays.sort(copy, (a, b) -> b.compareTo(a));
+        Arrays.sort(copy);
+        return copy;
+    }
+}
@@ -6,18 +6,25 @@ import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.AwsCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.rekognition.RekognitionClient;
 import software.amazon.awssdk.services.rekognition.model.DetectLabelsRequest;
 import software.amazon.awssdk.services.rekognition.model.DetectLabelsResponse;
 import software.amazon.awssdk.services.rekognition.model.Image;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URI;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 /**
@@ -32,31 +39,72 @@ import java.util.stream.Collectors;
  * aws.id=[your access key id]
  * aws.secret=[your Secret access key]
  * aws.region=[an aws region of choice. For example: us-east-2]
+ * aws.maxConcurrency=[optional, how many requests a batch scan may have outstanding at once. Defaults to 8]
+ * aws.jpegQuality=[optional, JPEG quality between 0 and 1 used when encoding frames. Defaults to 0.85]
+ * aws.maxImageDimension=[optional, frames are scaled down to at most this many pixels per side, 0 to disable. Defaults to 1280]
+ * aws.callTimeoutMillis=[optional, deadline for a single detectLabels call including retries. Defaults to 5000]
+ * aws.endpoint=[optional, URI to send requests to instead of the regional endpoint, e.g. a local stub server]
+ * <p>
+ * Wrap this service in a {@link ResilientImageService} to keep Rekognition outages away from callers.
+ * Close the service to release its client and the threads of its batch scans.
  */
-public class AwsImageService implements ImageService {
+public class AwsImageService implements ImageService, AutoCloseable {
 
-    //aws recommendation is to maintain only a single instance of client objects
-    private static RekognitionClient rekognitionClient;
+    private static final int DEFAULT_MAX_CONCURRENCY = 8;
+    private static final float DEFAULT_JPEG_QUALITY = 0.85f;
+    private static final int DEFAULT_MAX_IMAGE_DIMENSION = 1280;
+    private static final long DEFAULT_CALL_TIMEOUT_MILLIS = 5_000;
+
+    //aws recommendation is to maintain only a single instance of client objects; this service's
+    //calls all share one, which is closed with the service
+    private RekognitionClient rekognitionClient;
     private final Logger log = LoggerFactory.getLogger(AwsImageService.class);
+    //runs the individual requests of a batch scan concurrently over the shared client
+    private ExecutorService batchExecutor;
+    private JpegEncoder jpegEncoder = new JpegEncoder(DEFAULT_JPEG_QUALITY, DEFAULT_MAX_IMAGE_DIMENSION);
 
     public AwsImageService() {
-        Properties props = new Properties();
-        try (InputStream is = getClass().getClassLoader().getResourceAsStream("config.properties")) {
-            props.load(is);
-        } catch (IOException ioe) {
-            log.error("Unable to initialize AWS Rekognition, no properties file found", ioe);
+        this(loadConfig());
+    }
+
+    /**
+     * @param props Configuration with the keys listed above, e.g. pointing the service at a stub
+     *              endpoint. Null leaves the service without a client
+     */
+    public AwsImageService(Properties props) {
+        if (props == null) {
             return;
         }
 
         String awsId = props.getProperty("aws.id");
         String awsSecret = props.getProperty("aws.secret");
         String awsRegion = props.getProperty("aws.region");
+        int maxConcurrency = Integer.parseInt(
+                props.getProperty("aws.maxConcurrency", String.valueOf(DEFAULT_MAX_CONCURRENCY)));
+        jpegEncoder = new JpegEncoder(
+                Float.parseFloat(props.getProperty("aws.jpegQuality", String.valueOf(DEFAULT_JPEG_QUALITY))),
+                Integer.parseInt(props.getProperty("aws.maxImageDimension", String.valueOf(DEFAULT_MAX_IMAGE_DIMENSION))));
+
+        Duration callTimeout = Duration.ofMillis(Long.parseLong(
+                props.getProperty("aws.callTimeoutMillis", String.valueOf(DEFAULT_CALL_TIMEOUT_MILLIS))));
+        String endpoint = props.getProperty("aws.endpoint");
 
         AwsCredentials awsCredentials = AwsBasicCredentials.create(awsId, awsSecret);
-        rekognitionClient = RekognitionClient.builder()
+        RekognitionClient.Builder builder = RekognitionClient.builder()
                 .credentialsProvider(StaticCredentialsProvider.create(awsCredentials))
                 .region(Region.of(awsRegion))
-                .build();
+                .overrideConfiguration(ClientOverrideConfiguration.builder()
+                        .apiCallTimeout(callTimeout)
+                        .build());
+        if (endpoint != null) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        rekognitionClient = builder.build();
+        batchExecutor = Executors.newFixedThreadPool(maxConcurrency, r -> {
+            Thread thread = new Thread(r, "aws-image-service");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     /**
@@ -67,14 +115,26 @@ public class AwsImageService implements ImageService {
      */
     @Override
     public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
-        Image awsImage;
-        try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
-            ImageIO.write(image, "jpg", os);
-            awsImage = Image.builder().bytes(SdkBytes.fromByteArray(os.toByteArray())).build();
+        byte[] jpeg;
+        try {
+            jpeg = jpegEncoder.encode(image);
         } catch (IOException ioe) {
             log.error("Error building image byte array", ioe);
             return false;
         }
+        return jpegContainsCat(jpeg, confidenceThreshold);
+    }
+
+    /**
+     * Returns true if the provided JPEG contains a cat. The bytes are sent to Rekognition as they
+     * are, without being decoded or copied.
+     *
+     * @param jpeg                Encoded image to scan. Must not be modified while the call is running
+     * @param confidenceThreshold Minimum threshold to consider for cat. For example, 90.0f would require 90% confidence minimum
+     */
+    @Override
+    public boolean jpegContainsCat(byte[] jpeg, float confidenceThreshold) {
+        Image awsImage = Image.builder().bytes(SdkBytes.fromByteArrayUnsafe(jpeg)).build();
         DetectLabelsRequest detectLabelsRequest = DetectLabelsRequest.builder()
                 .image(awsImage)
                 .minConfidence(confidenceThreshold)
@@ -84,6 +144,69 @@ public class AwsImageService implements ImageService {
         return response.labels().stream().anyMatch(l -> l.name().toLowerCase().contains("cat"));
     }
 
+    /**
+     * Scans a batch of images by issuing their requests concurrently, so the batch takes roughly as
+     * long as its slowest image rather than the sum of all of them.
+     *
+     * @param images              Images to scan, keyed by whatever identifies them to the caller
+     * @param confidenceThreshold Minimum threshold to consider for cat
+     */
+    @Override
+    public <K> Map<K, Boolean> imageContainsCat(Map<K, BufferedImage> images, float confidenceThreshold) {
+        if (batchExecutor == null) {
+            return ImageService.super.imageContainsCat(images, confidenceThreshold);
+        }
+
+        Map<K, CompletableFuture<Boolean>> requests = new LinkedHashMap<>();
+        images.forEach((key, image) -> requests.put(key, CompletableFuture.supplyAsync(
+                () -> imageContainsCat(image, confidenceThreshold), batchExecutor)));
+
+        Map<K, Boolean> results = new LinkedHashMap<>();
+        try {
+            requests.forEach((key, request) -> results.put(key, request.join()));
+        } catch (CompletionException e) {
+            requests.values().forEach(request -> request.cancel(false));
+            //fail the way a single call would have, with what the request threw
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    @Override
+    public void close() {
+        if (batchExecutor != null) {
+            batchExecutor.shutdownNow();
+        }
+        if (rekognitionClient != null) {
+            rekognitionClient.close();
+        }
+    }
+
+    /**
+     * @return the configuration in config.properties, or null if it can't be read
+     */
+    private static Properties loadConfig() {
+        Logger log = LoggerFactory.getLogger(AwsImageService.class);
+        try (InputStream is = AwsImageService.class.getClassLoader().getResourceAsStream("config.properties")) {
+            if (is == null) {
+                log.error("Unable to initialize AWS Rekognition, no properties file found");
+                return null;
+            }
+            Properties props = new Properties();
+            props.load(is);
+            return props;
+        } catch (IOException ioe) {
+            log.error("Unable to initialize AWS Rekognition, properties file can't be read", ioe);
+            return null;
+        }
+    }
+
     private void logLabelsForFun(DetectLabelsResponse response) {
         log.info(response.labels().stream()
                 .map(label -> String.format("%s(%.1f%%)", label.name(), label.confidence()))
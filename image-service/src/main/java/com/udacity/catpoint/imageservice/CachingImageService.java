@@ -0,0 +1,148 @@
+package com.udacity.catpoint.imageservice;
+
+import java.awt.image.BufferedImage;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Image service that remembers recent verdicts of another image service. Frames are recognised by
+ * a hash of their pixel content together with the confidence threshold, so a camera watching a
+ * static scene only pays for classification once. The cache holds at most {@code maxEntries}
+ * verdicts, evicting the least recently used, and forgets verdicts older than {@code timeToLive}.
+ */
+public class CachingImageService implements ImageService {
+    private static final int DEFAULT_MAX_ENTRIES = 1_024;
+    private static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofMinutes(5);
+
+    private final ImageService delegate;
+    private final long timeToLiveMillis;
+    private final Clock clock;
+    private final Map<Key, Verdict> cache;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public CachingImageService(ImageService delegate) {
+        this(delegate, DEFAULT_MAX_ENTRIES, DEFAULT_TIME_TO_LIVE, Clock.systemUTC());
+    }
+
+    public CachingImageService(ImageService delegate, int maxEntries, Duration timeToLive, Clock clock) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.delegate = delegate;
+        this.timeToLiveMillis = timeToLive.toMillis();
+        this.clock = clock;
+        //access-ordered, so the eldest entry is always the least recently used one
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Verdict> eldest) {
+                if (size() > maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        Key key = new Key(ImageHashes.contentHash(image), confidenceThreshold);
+        Boolean cached = lookup(key);
+        if (cached != null) {
+            return cached;
+        }
+        boolean cat = delegate.imageContainsCat(image, confidenceThreshold);
+        store(key, cat);
+        return cat;
+    }
+
+    /**
+     * Caches verdicts for encoded frames by a hash of their bytes, and passes misses on still encoded.
+     */
+    @Override
+    public boolean jpegContainsCat(byte[] jpeg, float confidenceThreshold) {
+        Key key = new Key(ImageHashes.contentHash(jpeg), confidenceThreshold);
+        Boolean cached = lookup(key);
+        if (cached != null) {
+            return cached;
+        }
+        boolean cat = delegate.jpegContainsCat(jpeg, confidenceThreshold);
+        store(key, cat);
+        return cat;
+    }
+
+    /**
+     * Answers what it can from the cache and sends only the remaining images to the delegate, as
+     * a single batch.
+     */
+    @Override
+    public <K> Map<K, Boolean> imageContainsCat(Map<K, BufferedImage> images, float confidenceThreshold) {
+        Map<K, Boolean> results = new LinkedHashMap<>();
+        Map<K, BufferedImage> uncached = new LinkedHashMap<>();
+        Map<K, Key> keys = new LinkedHashMap<>();
+        images.forEach((id, image) -> {
+            Key key = new Key(ImageHashes.contentHash(image), confidenceThreshold);
+            Boolean cached = lookup(key);
+            //keep the caller's iteration order; misses are filled in below
+            results.put(id, cached);
+            if (cached == null) {
+                uncached.put(id, image);
+                keys.put(id, key);
+            }
+        });
+
+        if (!uncached.isEmpty()) {
+            delegate.imageContainsCat(uncached, confidenceThreshold).forEach((id, cat) -> {
+                results.put(id, cat);
+                store(keys.get(id), cat);
+            });
+        }
+        return results;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    private synchronized Boolean lookup(Key key) {
+        Verdict verdict = cache.get(key);
+        if (verdict != null && clock.millis() - verdict.storedAt() <= timeToLiveMillis) {
+            hits.increment();
+            return verdict.cat();
+        }
+        if (verdict != null) {
+            cache.remove(key);
+            evictions.increment();
+        }
+        misses.increment();
+        return null;
+    }
+
+    private synchronized void store(Key key, boolean cat) {
+        cache.put(key, new Verdict(cat, clock.millis()));
+    }
+
+    private record Key(long contentHash, float confidenceThreshold) {
+    }
+
+    private record Verdict(boolean cat, long storedAt) {
+    }
+}
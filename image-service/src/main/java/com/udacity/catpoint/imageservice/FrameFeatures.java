@@ -0,0 +1,219 @@
+package com.udacity.catpoint.imageservice;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Feature extraction for {@link LocalImageService}. Pixels are read straight from the raster's
+ * backing array; frames in a layout that can't be read that way are converted to
+ * {@code TYPE_INT_RGB} once. Large frames are split into bands of rows that are measured in
+ * parallel. Every statistic is an integer sum, so the result doesn't depend on how the frame was
+ * split.
+ */
+final class FrameFeatures {
+    /**
+     * Names of the features, in the order {@link #extract} returns them.
+     */
+    static final String[] NAMES = {"brightness", "contrast", "furRatio", "edgeDensity", "diagonalRatio", "saturation"};
+
+    //bands of at most this many pixels are measured on one thread
+    private static final int TILE_PIXELS = 1 << 16;
+    //sum of horizontal and vertical luminance differences that counts as an edge
+    private static final int EDGE_THRESHOLD = 48;
+
+    private FrameFeatures() {
+    }
+
+    /**
+     * @return the frame's features, each between 0 and 1, in the order of {@link #NAMES}
+     */
+    static double[] extract(BufferedImage image, ForkJoinPool pool) {
+        Pixels pixels = Pixels.of(image);
+        Stats stats = pixels.width * pixels.height <= TILE_PIXELS
+                ? new Band(pixels, 0, pixels.height).compute()
+                : pool.invoke(new Band(pixels, 0, pixels.height));
+
+        double count = Math.max(1, stats.count);
+        double mean = stats.lumaSum / count;
+        double variance = Math.max(0, stats.lumaSquareSum / count - mean * mean);
+        return new double[]{
+                mean / 255,
+                Math.min(1, Math.sqrt(variance) / 128),
+                stats.furCount / count,
+                stats.edgeCount / count,
+                stats.diagonalCount / (double) Math.max(1, stats.edgeCount),
+                stats.saturationSum / count / 255
+        };
+    }
+
+    /**
+     * Read-only view of a frame's pixels as either packed ints or interleaved bytes.
+     */
+    private static final class Pixels {
+        private final int width;
+        private final int height;
+        private final int[] ints;
+        private final byte[] bytes;
+        private final int pixelStride;
+        private final int rowStride;
+        private final int red;
+        private final int green;
+        private final int blue;
+
+        private Pixels(int width, int height, int[] ints, byte[] bytes, int pixelStride, int rowStride,
+                       int red, int green, int blue) {
+            this.width = width;
+            this.height = height;
+            this.ints = ints;
+            this.bytes = bytes;
+            this.pixelStride = pixelStride;
+            this.rowStride = rowStride;
+            this.red = red;
+            this.green = green;
+            this.blue = blue;
+        }
+
+        static Pixels of(BufferedImage image) {
+            WritableRaster raster = image.getRaster();
+            int width = image.getWidth();
+            int height = image.getHeight();
+            boolean whole = raster.getParent() == null
+                    && raster.getSampleModelTranslateX() == 0
+                    && raster.getSampleModelTranslateY() == 0;
+
+            switch (image.getType()) {
+                case BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB -> {
+                    if (whole && raster.getSampleModel() instanceof SinglePixelPackedSampleModel model) {
+                        int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+                        return new Pixels(width, height, data, null, 1, model.getScanlineStride(), 16, 8, 0);
+                    }
+                }
+                case BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR -> {
+                    if (whole && raster.getSampleModel() instanceof ComponentSampleModel model) {
+                        byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+                        int[] offsets = model.getBandOffsets();
+                        return new Pixels(width, height, null, data, model.getPixelStride(), model.getScanlineStride(),
+                                offsets[0], offsets[1], offsets[2]);
+                    }
+                }
+                default -> {
+                }
+            }
+
+            BufferedImage rgb = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = rgb.createGraphics();
+            try {
+                g.drawImage(image, 0, 0, null);
+            } finally {
+                g.dispose();
+            }
+            return of(rgb);
+        }
+
+        /**
+         * @return the pixel at (x, y) as 0xRRGGBB
+         */
+        int rgb(int x, int y) {
+            if (ints != null) {
+                return ints[y * rowStride + x] & 0xFFFFFF;
+            }
+            int i = y * rowStride + x * pixelStride;
+            return (bytes[i + red] & 0xFF) << 16 | (bytes[i + green] & 0xFF) << 8 | bytes[i + blue] & 0xFF;
+        }
+
+        static int luma(int rgb) {
+            return (77 * (rgb >>> 16) + 150 * (rgb >>> 8 & 0xFF) + 29 * (rgb & 0xFF)) >>> 8;
+        }
+    }
+
+    private static final class Stats {
+        private long count;
+        private long lumaSum;
+        private long lumaSquareSum;
+        private long furCount;
+        private long edgeCount;
+        private long diagonalCount;
+        private long saturationSum;
+
+        private Stats add(Stats other) {
+            count += other.count;
+            lumaSum += other.lumaSum;
+            lumaSquareSum += other.lumaSquareSum;
+            furCount += other.furCount;
+            edgeCount += other.edgeCount;
+            diagonalCount += other.diagonalCount;
+            saturationSum += other.saturationSum;
+            return this;
+        }
+    }
+
+    private static final class Band extends RecursiveTask<Stats> {
+        private final Pixels pixels;
+        private final int fromRow;
+        private final int toRow;
+
+        private Band(Pixels pixels, int fromRow, int toRow) {
+            this.pixels = pixels;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+        }
+
+        @Override
+        protected Stats compute() {
+            int rows = toRow - fromRow;
+            if (rows > 1 && (long) rows * pixels.width > TILE_PIXELS) {
+                int middle = fromRow + rows / 2;
+                Band top = new Band(pixels, fromRow, middle);
+                top.fork();
+                Stats bottom = new Band(pixels, middle, toRow).compute();
+                return bottom.add(top.join());
+            }
+            return measure();
+        }
+
+        private Stats measure() {
+            Stats stats = new Stats();
+            int lastX = pixels.width - 1;
+            int lastY = pixels.height - 1;
+            for (int y = fromRow; y < toRow; y++) {
+                for (int x = 0; x < pixels.width; x++) {
+                    int rgb = pixels.rgb(x, y);
+                    int r = rgb >>> 16;
+                    int g = rgb >>> 8 & 0xFF;
+                    int b = rgb & 0xFF;
+                    int luma = Pixels.luma(rgb);
+                    int max = Math.max(r, Math.max(g, b));
+                    int min = Math.min(r, Math.min(g, b));
+
+                    stats.lumaSum += luma;
+                    stats.lumaSquareSum += luma * luma;
+                    stats.saturationSum += max - min;
+                    //greys, browns and gingers: warm or neutral, neither black nor blown out
+                    if (r >= g && g + 16 >= b && luma >= 30 && luma <= 230) {
+                        stats.furCount++;
+                    }
+
+                    if (x < lastX && y < lastY) {
+                        int dx = Math.abs(Pixels.luma(pixels.rgb(x + 1, y)) - luma);
+                        int dy = Math.abs(Pixels.luma(pixels.rgb(x, y + 1)) - luma);
+                        if (dx + dy > EDGE_THRESHOLD) {
+                            stats.edgeCount++;
+                            if (2 * Math.min(dx, dy) > Math.max(dx, dy)) {
+                                stats.diagonalCount++;
+                            }
+                        }
+                    }
+                }
+            }
+            stats.count = (long) (toRow - fromRow) * pixels.width;
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.udacity.catpoint.imageservice;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.WritableRaster;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Hashing helpers used to recognise frames that have been seen before.
+ */
+final class ImageHashes {
+    /**
+     * Width and height of the grid a frame is reduced to for its luminance signature.
+     */
+    static final int SIGNATURE_GRID = 16;
+    //rows and columns sampled per grid cell along each axis
+    private static final int SAMPLES_PER_CELL = 4;
+
+    private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private ImageHashes() {
+    }
+
+    /**
+     * 64-bit hash of an image's exact pixel content. Images whose pixels live in a single
+     * unshared byte or int array are hashed straight from that array; anything else is read a
+     * row at a time.
+     */
+    static long contentHash(BufferedImage image) {
+        long h = mix(MULTIPLIER, ((long) image.getWidth() << 32) | image.getHeight());
+        h = mix(h, image.getType());
+
+        WritableRaster raster = image.getRaster();
+        DataBuffer buffer = raster.getDataBuffer();
+        boolean wholeBuffer = raster.getParent() == null
+                && raster.getSampleModelTranslateX() == 0
+                && raster.getSampleModelTranslateY() == 0
+                && buffer.getNumBanks() == 1;
+
+        if (wholeBuffer && buffer instanceof DataBufferByte bytes) {
+            return finish(hashBytes(h, bytes.getData()));
+        }
+        if (wholeBuffer && buffer instanceof DataBufferInt ints) {
+            return finish(hashInts(h, ints.getData(), ints.getData().length));
+        }
+
+        int width = image.getWidth();
+        int[] row = new int[width];
+        for (int y = 0; y < image.getHeight(); y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            h = hashInts(h, row, width);
+        }
+        return finish(h);
+    }
+
+    /**
+     * Reduces an image to a {@value #SIGNATURE_GRID}x{@value #SIGNATURE_GRID} grid of average
+     * luminance values. Only a fixed number of pixels per cell is sampled, so the cost does not
+     * grow with the resolution of the frame.
+     */
+    static byte[] luminanceSignature(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int samples = SIGNATURE_GRID * SAMPLES_PER_CELL;
+        int[] sums = new int[SIGNATURE_GRID * SIGNATURE_GRID];
+        int[] counts = new int[sums.length];
+        int[] row = new int[width];
+
+        for (int sy = 0; sy < samples; sy++) {
+            int y = (int) ((sy + 0.5) * height / samples);
+            if (y >= height) continue;
+            image.getRGB(0, y, width, 1, row, 0, width);
+            int cellRow = sy / SAMPLES_PER_CELL * SIGNATURE_GRID;
+            for (int sx = 0; sx < samples; sx++) {
+                int x = (int) ((sx + 0.5) * width / samples);
+                if (x >= width) continue;
+                int rgb = row[x];
+                //integer approximation of Rec. 601 luma
+                int luma = (((rgb >> 16) & 0xFF) * 77 + ((rgb >> 8) & 0xFF) * 150 + (rgb & 0xFF) * 29) >> 8;
+                int cell = cellRow + sx / SAMPLES_PER_CELL;
+                sums[cell] += luma;
+                counts[cell]++;
+            }
+        }
+
+        byte[] signature = new byte[sums.length];
+        for (int i = 0; i < sums.length; i++) {
+            signature[i] = (byte) (counts[i] == 0 ? 0 : sums[i] / counts[i]);
+        }
+        return signature;
+    }
+
+    /**
+     * Largest absolute difference between corresponding cells of two luminance signatures, from 0
+     * (identical) to 255.
+     */
+    static int maxCellDifference(byte[] a, byte[] b) {
+        int max = 0;
+        for (int i = 0; i < a.length; i++) {
+            max = Math.max(max, Math.abs((a[i] & 0xFF) - (b[i] & 0xFF)));
+        }
+        return max;
+    }
+
+    /**
+     * 64-bit hash of an encoded image's bytes.
+     */
+    static long contentHash(byte[] encoded) {
+        return finish(hashBytes(mix(MULTIPLIER, encoded.length), encoded));
+    }
+
+    private static long hashBytes(long h, byte[] data) {
+        int i = 0;
+        for (; i + Long.BYTES <= data.length; i += Long.BYTES) {
+            h = mix(h, (long) LONGS.get(data, i));
+        }
+        long tail = 0;
+        for (int shift = 0; i < data.length; i++, shift += 8) {
+            tail |= (data[i] & 0xFFL) << shift;
+        }
+        return mix(h, tail);
+    }
+
+    private static long hashInts(long h, int[] data, int length) {
+        int i = 0;
+        for (; i + 1 < length; i += 2) {
+            h = mix(h, ((long) data[i] << 32) | (data[i + 1] & 0xFFFFFFFFL));
+        }
+        if (i < length) {
+            h = mix(h, data[i]);
+        }
+        return h;
+    }
+
+    private static long mix(long h, long value) {
+        h ^= value;
+        h *= MULTIPLIER;
+        return h ^ (h >>> 32);
+    }
+
+    private static long finish(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        return h ^ (h >>> 33);
+    }
+}
@@ -1,7 +1,48 @@
 package com.udacity.catpoint.imageservice;
 
+import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public interface ImageService {
     boolean imageContainsCat(BufferedImage image, float confidenceThreshold);
+
+    /**
+     * Scans several images, e.g. the current frame from each camera, in one call. Implementations
+     * backed by a remote service should override this to send the requests concurrently.
+     *
+     * @param images              Images to scan, keyed by whatever identifies them to the caller
+     * @param confidenceThreshold Minimum threshold to consider for cat
+     * @return whether each image contains a cat, under the same keys and in the same iteration order
+     */
+    default <K> Map<K, Boolean> imageContainsCat(Map<K, BufferedImage> images, float confidenceThreshold) {
+        Map<K, Boolean> results = new LinkedHashMap<>();
+        images.forEach((key, image) -> results.put(key, imageContainsCat(image, confidenceThreshold)));
+        return results;
+    }
+
+    /**
+     * Scans an image that is already JPEG-encoded, e.g. a frame as delivered by a camera. The
+     * default decodes it and scans the pixels; implementations that send JPEG bytes to a remote
+     * service should override this to pass the bytes along without decoding and re-encoding them.
+     *
+     * @param jpeg                Encoded image. Must not be modified while the call is running
+     * @param confidenceThreshold Minimum threshold to consider for cat
+     */
+    default boolean jpegContainsCat(byte[] jpeg, float confidenceThreshold) {
+        BufferedImage image;
+        try {
+            image = ImageIO.read(new ByteArrayInputStream(jpeg));
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to decode image", ioe);
+        }
+        if (image == null) {
+            throw new IllegalArgumentException("Unsupported image format");
+        }
+        return imageContainsCat(image, confidenceThreshold);
+    }
 }
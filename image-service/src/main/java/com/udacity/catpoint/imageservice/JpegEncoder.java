@@ -0,0 +1,96 @@
+package com.udacity.catpoint.imageservice;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Encodes frames to JPEG while reusing as much as possible between calls. Each thread keeps its
+ * own JPEG writer, output buffer and scratch image, and encoding never goes through the ImageIO
+ * disk cache. Frames larger than {@code maxDimension} on either side are scaled down first, since
+ * a classifier gains nothing from extra resolution.
+ */
+final class JpegEncoder {
+    private final float quality;
+    private final int maxDimension;
+    private final ThreadLocal<State> state = ThreadLocal.withInitial(State::new);
+
+    /**
+     * @param quality      JPEG quality between 0 and 1
+     * @param maxDimension Longest side of an encoded frame in pixels, or 0 to never scale
+     */
+    JpegEncoder(float quality, int maxDimension) {
+        if (quality < 0 || quality > 1) {
+            throw new IllegalArgumentException("quality must be between 0 and 1");
+        }
+        this.quality = quality;
+        this.maxDimension = maxDimension;
+    }
+
+    /**
+     * @return the encoded frame, in an array of exactly the encoded length
+     */
+    byte[] encode(BufferedImage image) throws IOException {
+        State s = state.get();
+        BufferedImage source = prepare(image, s);
+
+        s.buffer.reset();
+        ImageWriteParam param = s.writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(quality);
+        try (ImageOutputStream out = new MemoryCacheImageOutputStream(s.buffer)) {
+            s.writer.setOutput(out);
+            s.writer.write(null, new IIOImage(source, null, null), param);
+        } finally {
+            s.writer.setOutput(null);
+        }
+        return s.buffer.toByteArray();
+    }
+
+    /**
+     * Returns the image itself if the JPEG writer can take it as is, otherwise a copy in the
+     * per-thread scratch image, scaled down if needed and without alpha.
+     */
+    private BufferedImage prepare(BufferedImage image, State s) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int longest = Math.max(width, height);
+        if (maxDimension > 0 && longest > maxDimension) {
+            width = Math.max(1, (int) ((long) width * maxDimension / longest));
+            height = Math.max(1, (int) ((long) height * maxDimension / longest));
+        }
+
+        boolean writable = image.getType() == BufferedImage.TYPE_3BYTE_BGR
+                || image.getType() == BufferedImage.TYPE_INT_RGB
+                || image.getType() == BufferedImage.TYPE_BYTE_GRAY;
+        if (writable && width == image.getWidth() && height == image.getHeight()) {
+            return image;
+        }
+
+        if (s.scratch == null || s.scratch.getWidth() != width || s.scratch.getHeight() != height) {
+            s.scratch = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        }
+        Graphics2D g = s.scratch.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return s.scratch;
+    }
+
+    private static final class State {
+        private final ImageWriter writer = ImageIO.getImageWritersByFormatName("jpg").next();
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 * 1024);
+        private BufferedImage scratch;
+    }
+}
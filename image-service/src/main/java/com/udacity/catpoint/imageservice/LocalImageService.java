@@ -0,0 +1,76 @@
+package com.udacity.catpoint.imageservice;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Properties;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Image service that classifies frames in process, without any network access. Each frame is
+ * reduced to a handful of features (brightness, contrast, share of fur-coloured pixels, edge
+ * density and orientation, saturation) which are scored by a logistic model loaded from
+ * {@code cat-model.properties}. The same frame always gets the same verdict.
+ * <p>
+ * The bundled model is experimental: its weights were picked by hand and its accuracy has not
+ * been measured, so a "no cat" from it should not be trusted to clear an alarm. Supply a trained
+ * model before using it for anything but trying the system out offline.
+ * <p>
+ * Large frames are measured in parallel on the given fork/join pool, the common pool by default.
+ */
+public class LocalImageService implements ImageService {
+    private static final String DEFAULT_MODEL = "/cat-model.properties";
+
+    private final double bias;
+    private final double[] weights;
+    private final ForkJoinPool pool;
+
+    public LocalImageService() {
+        this(loadModel(DEFAULT_MODEL), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param model Model with a {@code bias} and a {@code weight.<feature>} for every feature;
+     *              missing weights count as 0
+     * @param pool  Pool large frames are measured on
+     */
+    public LocalImageService(Properties model, ForkJoinPool pool) {
+        this.bias = Double.parseDouble(model.getProperty("bias", "0"));
+        this.weights = new double[FrameFeatures.NAMES.length];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = Double.parseDouble(model.getProperty("weight." + FrameFeatures.NAMES[i], "0"));
+        }
+        this.pool = pool;
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        return confidence(image) >= confidenceThreshold;
+    }
+
+    /**
+     * @return how confident the model is that the image shows a cat, from 0 to 100
+     */
+    public float confidence(BufferedImage image) {
+        double[] features = FrameFeatures.extract(image, pool);
+        double score = bias;
+        for (int i = 0; i < features.length; i++) {
+            score += weights[i] * features[i];
+        }
+        return (float) (100 / (1 + Math.exp(-score)));
+    }
+
+    private static Properties loadModel(String resource) {
+        Properties props = new Properties();
+        try (InputStream is = LocalImageService.class.getResourceAsStream(resource)) {
+            if (is == null) {
+                throw new IllegalStateException("Missing model resource " + resource);
+            }
+            props.load(is);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to load model " + resource, ioe);
+        }
+        return props;
+    }
+}
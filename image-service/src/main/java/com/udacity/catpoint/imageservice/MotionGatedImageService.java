@@ -0,0 +1,124 @@
+package com.udacity.catpoint.imageservice;
+
+import java.awt.image.BufferedImage;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Image service that only asks another image service about frames that differ noticeably from
+ * the last frame it classified for the same camera. Each frame is reduced to a coarse luminance
+ * grid; if no cell of it moved by {@code changeThreshold} or more since the previous frame, the
+ * previous verdict is reused. Comparing the largest change rather than the average one means a
+ * cat covering only a few cells still counts as a change. Verdicts are never reused for longer
+ * than {@code maxVerdictAge}, so slow drift (e.g. daylight changing) still gets a fresh look now
+ * and then.
+ * <p>
+ * Only batch scans are gated, using the map keys as camera ids. Single images and encoded frames
+ * carry no camera id, and comparing frames from different cameras would reuse one camera's
+ * verdict for another, so they are always passed on to the delegate.
+ */
+public class MotionGatedImageService implements ImageService {
+    private static final int DEFAULT_CHANGE_THRESHOLD = 16;
+    private static final Duration DEFAULT_MAX_VERDICT_AGE = Duration.ofMinutes(1);
+
+    private final ImageService delegate;
+    private final int changeThreshold;
+    private final long maxVerdictAgeMillis;
+    private final Clock clock;
+    private final Map<Object, LastFrame> lastFrames = new ConcurrentHashMap<>();
+
+    private final LongAdder classified = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+
+    public MotionGatedImageService(ImageService delegate) {
+        this(delegate, DEFAULT_CHANGE_THRESHOLD, DEFAULT_MAX_VERDICT_AGE, Clock.systemUTC());
+    }
+
+    /**
+     * @param delegate        Image service that does the real classification
+     * @param changeThreshold Luminance difference (0-255) that any one grid cell must reach for a frame to count as changed
+     * @param maxVerdictAge   Longest time a verdict may be reused for
+     * @param clock           Clock used to age verdicts
+     */
+    public MotionGatedImageService(ImageService delegate, int changeThreshold, Duration maxVerdictAge, Clock clock) {
+        this.delegate = delegate;
+        this.changeThreshold = changeThreshold;
+        this.maxVerdictAgeMillis = maxVerdictAge.toMillis();
+        this.clock = clock;
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        classified.increment();
+        return delegate.imageContainsCat(image, confidenceThreshold);
+    }
+
+    @Override
+    public boolean jpegContainsCat(byte[] jpeg, float confidenceThreshold) {
+        classified.increment();
+        return delegate.jpegContainsCat(jpeg, confidenceThreshold);
+    }
+
+    @Override
+    public <K> Map<K, Boolean> imageContainsCat(Map<K, BufferedImage> images, float confidenceThreshold) {
+        Map<K, Boolean> results = new LinkedHashMap<>();
+        Map<K, BufferedImage> changed = new LinkedHashMap<>();
+        Map<K, byte[]> signatures = new LinkedHashMap<>();
+        images.forEach((camera, image) -> {
+            byte[] signature = ImageHashes.luminanceSignature(image);
+            Boolean previous = reusableVerdict(camera, signature, confidenceThreshold);
+            //keep the caller's iteration order; changed frames are filled in below
+            results.put(camera, previous);
+            if (previous == null) {
+                changed.put(camera, image);
+                signatures.put(camera, signature);
+            }
+        });
+
+        if (!changed.isEmpty()) {
+            delegate.imageContainsCat(changed, confidenceThreshold).forEach((camera, cat) -> {
+                results.put(camera, cat);
+                remember(camera, signatures.get(camera), confidenceThreshold, cat);
+            });
+        }
+        return results;
+    }
+
+    /**
+     * Number of frames that were passed on to the delegate.
+     */
+    public long getClassifiedCount() {
+        return classified.sum();
+    }
+
+    /**
+     * Number of frames answered with a previous verdict because nothing had changed.
+     */
+    public long getSkippedCount() {
+        return skipped.sum();
+    }
+
+    private Boolean reusableVerdict(Object camera, byte[] signature, float confidenceThreshold) {
+        LastFrame last = lastFrames.get(camera);
+        if (last != null
+                && last.confidenceThreshold() == confidenceThreshold
+                && clock.millis() - last.classifiedAt() <= maxVerdictAgeMillis
+                && ImageHashes.maxCellDifference(last.signature(), signature) < changeThreshold) {
+            skipped.increment();
+            return last.cat();
+        }
+        classified.increment();
+        return null;
+    }
+
+    private void remember(Object camera, byte[] signature, float confidenceThreshold, boolean cat) {
+        lastFrames.put(camera, new LastFrame(signature, confidenceThreshold, cat, clock.millis()));
+    }
+
+    private record LastFrame(byte[] signature, float confidenceThreshold, boolean cat, long classifiedAt) {
+    }
+}
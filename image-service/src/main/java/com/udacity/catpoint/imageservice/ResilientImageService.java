@@ -0,0 +1,256 @@
+package com.udacity.catpoint.imageservice;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Guards calls to a remote image service so that its failures and slowness never reach the
+ * caller. Whenever the remote service can't give an answer in time the verdict comes from a
+ * fallback image service instead. The fallback may itself throw, e.g. when no other classifier is
+ * trustworthy enough to stand in, in which case the caller gets its exception.
+ * <ul>
+ * <li>Every call has a deadline of {@code callTimeout}.</li>
+ * <li>After {@code failureThreshold} failures or timeouts in a row the circuit opens and all calls
+ * go straight to the fallback for {@code openDuration}. After that a single probe call is let
+ * through; if it succeeds the circuit closes again, otherwise it stays open for another round.</li>
+ * <li>The number of calls outstanding at once is capped by an AIMD limit between 1 and
+ * {@code maxConcurrency}: it grows by one per limit's worth of fast successes and is halved on a
+ * failure or timeout. Calls over the limit are answered by the fallback immediately. A call that
+ * timed out keeps its slot until the remote call really returns, so a stalled backend can't tie
+ * up more than the limit's worth of threads.</li>
+ * </ul>
+ */
+public class ResilientImageService implements ImageService, AutoCloseable {
+    private static final Duration DEFAULT_CALL_TIMEOUT = Duration.ofSeconds(5);
+    private static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    private static final Duration DEFAULT_OPEN_DURATION = Duration.ofSeconds(30);
+    private static final int DEFAULT_MAX_CONCURRENCY = 8;
+    //a success slower than this share of the deadline counts as a sign of congestion
+    private static final double SLOW_CALL_RATIO = 0.5;
+    private static final double FAILURE_BACKOFF = 0.5;
+    private static final double SLOW_CALL_BACKOFF = 0.9;
+
+    public enum CircuitState {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final Logger log = LoggerFactory.getLogger(ResilientImageService.class);
+
+    private final ImageService delegate;
+    private final ImageService fallback;
+    private final long callTimeoutNanos;
+    private final int failureThreshold;
+    private final long openMillis;
+    private final int maxConcurrency;
+    private final Clock clock;
+    private final ExecutorService executor;
+
+    // guarded by this
+    private CircuitState circuitState = CircuitState.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private double limit;
+    private int inFlight;
+
+    private final LongAdder fallbacks = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public ResilientImageService(ImageService delegate, ImageService fallback) {
+        this(delegate, fallback, DEFAULT_CALL_TIMEOUT, DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_DURATION,
+                DEFAULT_MAX_CONCURRENCY, Clock.systemUTC());
+    }
+
+    /**
+     * @param delegate         Remote image service to guard
+     * @param fallback         Image service that answers whenever the delegate can't
+     * @param callTimeout      Deadline for each call to the delegate
+     * @param failureThreshold Failures in a row that open the circuit
+     * @param openDuration     How long the circuit stays open before a probe call is let through
+     * @param maxConcurrency   Upper bound for the adaptive concurrency limit
+     * @param clock            Clock used to time the open circuit
+     */
+    public ResilientImageService(ImageService delegate, ImageService fallback, Duration callTimeout,
+                                 int failureThreshold, Duration openDuration, int maxConcurrency, Clock clock) {
+        if (failureThreshold < 1 || maxConcurrency < 1) {
+            throw new IllegalArgumentException("failureThreshold and maxConcurrency must be positive");
+        }
+        this.delegate = delegate;
+        this.fallback = fallback;
+        this.callTimeoutNanos = callTimeout.toNanos();
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openDuration.toMillis();
+        this.maxConcurrency = maxConcurrency;
+        this.clock = clock;
+        this.limit = Math.max(1, maxConcurrency / 2);
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "resilient-image-service");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        return call(() -> delegate.imageContainsCat(image, confidenceThreshold),
+                () -> fallback.imageContainsCat(image, confidenceThreshold));
+    }
+
+    @Override
+    public boolean jpegContainsCat(byte[] jpeg, float confidenceThreshold) {
+        return call(() -> delegate.jpegContainsCat(jpeg, confidenceThreshold),
+                () -> fallback.jpegContainsCat(jpeg, confidenceThreshold));
+    }
+
+    /**
+     * Sends the whole batch to the delegate as one guarded call: it takes a single slot, has the
+     * same deadline as a single image, and counts as one success or failure. If the delegate
+     * can't answer in time, the fallback scans the whole batch.
+     */
+    @Override
+    public <K> Map<K, Boolean> imageContainsCat(Map<K, BufferedImage> images, float confidenceThreshold) {
+        return call(() -> delegate.imageContainsCat(images, confidenceThreshold),
+                () -> fallback.imageContainsCat(images, confidenceThreshold));
+    }
+
+    public synchronized CircuitState getCircuitState() {
+        return circuitState;
+    }
+
+    /**
+     * Current number of calls allowed to be outstanding at once.
+     */
+    public synchronized int getConcurrencyLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Number of verdicts that came from the fallback.
+     */
+    public long getFallbackCount() {
+        return fallbacks.sum();
+    }
+
+    public long getTimeoutCount() {
+        return timeouts.sum();
+    }
+
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private <T> T call(Callable<T> remote, Supplier<T> fallbackCall) {
+        if (!tryAcquire()) {
+            fallbacks.increment();
+            return fallbackCall.get();
+        }
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long start = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                T value = null;
+                Throwable failure = null;
+                try {
+                    value = remote.call();
+                } catch (Throwable t) {
+                    failure = t;
+                } finally {
+                    //freed before the caller sees the outcome, so the caller's next call can have the slot
+                    release();
+                }
+                if (failure == null) {
+                    result.complete(value);
+                } else {
+                    result.completeExceptionally(failure);
+                }
+            });
+        } catch (RuntimeException e) {
+            release();
+            throw e;
+        }
+
+        try {
+            T verdict = result.get(callTimeoutNanos, TimeUnit.NANOSECONDS);
+            onSuccess(System.nanoTime() - start);
+            return verdict;
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            log.warn("Image service call timed out after {} ms", TimeUnit.NANOSECONDS.toMillis(callTimeoutNanos));
+        } catch (ExecutionException e) {
+            failures.increment();
+            log.warn("Image service call failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        onFailure();
+        fallbacks.increment();
+        return fallbackCall.get();
+    }
+
+    private synchronized boolean tryAcquire() {
+        switch (circuitState) {
+            case OPEN -> {
+                if (clock.millis() - openedAt < openMillis) {
+                    return false;
+                }
+                //let exactly one probe through
+                circuitState = CircuitState.HALF_OPEN;
+            }
+            case HALF_OPEN -> {
+                return false;
+            }
+            case CLOSED -> {
+                if (inFlight >= (int) limit) {
+                    return false;
+                }
+            }
+        }
+        inFlight++;
+        return true;
+    }
+
+    private synchronized void release() {
+        inFlight--;
+    }
+
+    private synchronized void onSuccess(long latencyNanos) {
+        circuitState = CircuitState.CLOSED;
+        consecutiveFailures = 0;
+        if (latencyNanos > callTimeoutNanos * SLOW_CALL_RATIO) {
+            limit = Math.max(1, limit * SLOW_CALL_BACKOFF);
+        } else {
+            limit = Math.min(maxConcurrency, limit + 1 / limit);
+        }
+    }
+
+    private synchronized void onFailure() {
+        limit = Math.max(1, limit * FAILURE_BACKOFF);
+        if (circuitState == CircuitState.HALF_OPEN || ++consecutiveFailures >= failureThreshold) {
+            if (circuitState != CircuitState.OPEN) {
+                log.warn("Opening image service circuit");
+            }
+            circuitState = CircuitState.OPEN;
+            openedAt = clock.millis();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.udacity.catpoint.imageservice;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs the service against a local HTTP server standing in for Rekognition, reached through the
+ * {@code aws.endpoint} override.
+ */
+public class AwsImageServiceTests {
+    private static final String CAT = "{\"Labels\":[{\"Name\":\"Cat\",\"Confidence\":97.5}]}";
+    private static final String DOG = "{\"Labels\":[{\"Name\":\"Dog\",\"Confidence\":91.0}]}";
+
+    private final List<String> targets = new CopyOnWriteArrayList<>();
+    private final List<String> bodies = new CopyOnWriteArrayList<>();
+    private final CountDownLatch stalled = new CountDownLatch(1);
+    private volatile Stub stub = exchange -> respond(exchange, 200, CAT);
+    private ExecutorService serverExecutor;
+    private HttpServer server;
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        serverExecutor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            try (exchange) {
+                targets.add(String.valueOf(exchange.getRequestHeaders().getFirst("X-Amz-Target")));
+                bodies.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+                stub.handle(exchange);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.setExecutor(serverExecutor);
+        server.start();
+    }
+
+    @AfterEach
+    public void stopServer() {
+        stalled.countDown();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Labels are asked for at the configured endpoint and a Cat label means a cat")
+    public void verifyThatEndpointIsUsed_when_EndpointIsOverridden() {
+        try (var service = new AwsImageService(config(5_000, 4))) {
+            Assertions.assertTrue(service.imageContainsCat(frame(), 90));
+            stub = exchange -> respond(exchange, 200, DOG);
+            Assertions.assertFalse(service.imageContainsCat(frame(), 90));
+        }
+
+        Assertions.assertEquals(List.of("RekognitionService.DetectLabels", "RekognitionService.DetectLabels"), targets);
+        Assertions.assertTrue(bodies.get(0).contains("\"MinConfidence\":90"), bodies.get(0));
+        Assertions.assertTrue(bodies.get(0).contains("\"Image\":{\"Bytes\":"), bodies.get(0));
+    }
+
+    @Test
+    @DisplayName("A call that outlives the call timeout fails instead of hanging")
+    public void verifyThatCallFails_when_EndpointStalls() {
+        stub = exchange -> {
+            stalled.await();
+            respond(exchange, 200, CAT);
+        };
+        try (var service = new AwsImageService(config(300, 4))) {
+            long start = System.nanoTime();
+            Assertions.assertThrows(RuntimeException.class, () -> service.imageContainsCat(frame(), 90));
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            Assertions.assertTrue(elapsed < 5_000, "call took " + elapsed + "ms");
+        }
+    }
+
+    @Test
+    @DisplayName("Guarded by a ResilientImageService, a stalled endpoint falls back and opens the circuit")
+    public void verifyThatFallbackAnswers_when_EndpointStalls() {
+        stub = exchange -> {
+            stalled.await();
+            respond(exchange, 200, CAT);
+        };
+        try (var aws = new AwsImageService(config(5_000, 4));
+             var service = new ResilientImageService(aws, (image, confidenceThreshold) -> false,
+                     Duration.ofMillis(200), 2, Duration.ofSeconds(30), 8, new ManualClock())) {
+            Assertions.assertFalse(service.imageContainsCat(frame(), 90));
+            Assertions.assertFalse(service.imageContainsCat(frame(), 90));
+
+            Assertions.assertEquals(2, service.getTimeoutCount());
+            Assertions.assertEquals(ResilientImageService.CircuitState.OPEN, service.getCircuitState());
+            Assertions.assertFalse(service.imageContainsCat(frame(), 90));
+            Assertions.assertEquals(3, service.getFallbackCount());
+        }
+    }
+
+    @Test
+    @DisplayName("A batch sends its requests concurrently and keeps the caller's keys and order")
+    public void verifyThatBatchIsConcurrent_when_ImagesAreScannedTogether() {
+        //no request is answered until all three have arrived
+        var barrier = new CyclicBarrier(3);
+        stub = exchange -> {
+            try {
+                barrier.await(5, TimeUnit.SECONDS);
+                respond(exchange, 200, CAT);
+            } catch (BrokenBarrierException | TimeoutException e) {
+                respond(exchange, 400, "{\"__type\":\"InvalidParameterException\",\"Message\":\"not concurrent\"}");
+            }
+        };
+        Map<String, BufferedImage> images = new LinkedHashMap<>();
+        images.put("porch", frame());
+        images.put("kitchen", frame());
+        images.put("garden", frame());
+
+        try (var service = new AwsImageService(config(10_000, 3))) {
+            Map<String, Boolean> results = service.imageContainsCat(images, 90);
+            Assertions.assertIterableEquals(List.of("porch", "kitchen", "garden"), results.keySet());
+            Assertions.assertEquals(Map.of("porch", true, "kitchen", true, "garden", true), results);
+        }
+        Assertions.assertEquals(3, targets.size());
+    }
+
+    @Test
+    @DisplayName("A failed request fails the batch with the same exception a single call throws")
+    public void verifyThatBatchRethrowsCause_when_RequestFails() {
+        stub = exchange -> respond(exchange, 400,
+                "{\"__type\":\"InvalidImageFormatException\",\"Message\":\"Request has invalid image format\"}");
+        Map<String, BufferedImage> images = new LinkedHashMap<>();
+        images.put("porch", frame());
+        images.put("kitchen", frame());
+
+        try (var service = new AwsImageService(config(5_000, 2))) {
+            RuntimeException single = Assertions.assertThrows(RuntimeException.class,
+                    () -> service.imageContainsCat(frame(), 90));
+            RuntimeException batch = Assertions.assertThrows(RuntimeException.class,
+                    () -> service.imageContainsCat(images, 90));
+
+            Assertions.assertFalse(batch instanceof CompletionException);
+            Assertions.assertEquals(single.getClass(), batch.getClass());
+        }
+    }
+
+    private Properties config(long callTimeoutMillis, int maxConcurrency) {
+        var props = new Properties();
+        props.setProperty("aws.id", "test-id");
+        props.setProperty("aws.secret", "test-secret");
+        props.setProperty("aws.region", "us-east-2");
+        props.setProperty("aws.endpoint", "http://localhost:" + server.getAddress().getPort());
+        props.setProperty("aws.callTimeoutMillis", String.valueOf(callTimeoutMillis));
+        props.setProperty("aws.maxConcurrency", String.valueOf(maxConcurrency));
+        return props;
+    }
+
+    private static BufferedImage frame() {
+        var image = new BufferedImage(32, 32, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 32; y++) {
+            for (int x = 0; x < 32; x++) {
+                image.setRGB(x, y, x * 8 << 16 | y * 8);
+            }
+        }
+        return image;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/x-amz-json-1.1");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private interface Stub {
+        void handle(HttpExchange exchange) throws IOException, InterruptedException;
+    }
+}
@@ -0,0 +1,150 @@
+package com.udacity.catpoint.imageservice;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CachingImageServiceTests {
+    private final ManualClock clock = new ManualClock();
+    private final CountingImageService delegate = new CountingImageService();
+
+    @Test
+    @DisplayName("A frame with the same pixels and threshold is answered from the cache")
+    public void verifyThatVerdictIsCached_when_SameFrameIsScannedAgain() {
+        var service = new CachingImageService(delegate, 16, Duration.ofMinutes(5), clock);
+
+        Assertions.assertTrue(service.imageContainsCat(frame(0x804020), 50));
+        //a different instance with the same content is the same frame
+        Assertions.assertTrue(service.imageContainsCat(frame(0x804020), 50));
+        Assertions.assertEquals(1, delegate.calls.get());
+        Assertions.assertEquals(1, service.getHitCount());
+        Assertions.assertEquals(1, service.getMissCount());
+
+        Assertions.assertFalse(service.imageContainsCat(frame(0x102030), 50));
+        service.imageContainsCat(frame(0x804020), 90);
+        Assertions.assertEquals(3, delegate.calls.get());
+        Assertions.assertEquals(3, service.getMissCount());
+        Assertions.assertEquals(3, service.size());
+    }
+
+    @Test
+    @DisplayName("The least recently used verdict is evicted once the cache is full")
+    public void verifyThatLeastRecentlyUsedIsEvicted_when_CacheIsFull() {
+        var service = new CachingImageService(delegate, 2, Duration.ofMinutes(5), clock);
+        BufferedImage a = frame(0x111111);
+        BufferedImage b = frame(0x222222);
+        BufferedImage c = frame(0x333333);
+
+        service.imageContainsCat(a, 50);
+        service.imageContainsCat(b, 50);
+        service.imageContainsCat(a, 50);
+        service.imageContainsCat(c, 50);
+        Assertions.assertEquals(2, service.size());
+        Assertions.assertEquals(1, service.getEvictionCount());
+        Assertions.assertEquals(3, delegate.calls.get());
+
+        service.imageContainsCat(a, 50);
+        Assertions.assertEquals(3, delegate.calls.get());
+        service.imageContainsCat(b, 50);
+        Assertions.assertEquals(4, delegate.calls.get());
+    }
+
+    @Test
+    @DisplayName("A verdict older than the time to live is asked for again")
+    public void verifyThatVerdictExpires_when_TimeToLivePasses() {
+        var service = new CachingImageService(delegate, 16, Duration.ofMinutes(1), clock);
+        BufferedImage a = frame(0x804020);
+
+        service.imageContainsCat(a, 50);
+        clock.advance(Duration.ofSeconds(59));
+        service.imageContainsCat(a, 50);
+        Assertions.assertEquals(1, delegate.calls.get());
+
+        clock.advance(Duration.ofSeconds(2));
+        service.imageContainsCat(a, 50);
+        Assertions.assertEquals(2, delegate.calls.get());
+        Assertions.assertEquals(1, service.getEvictionCount());
+        Assertions.assertEquals(1, service.getHitCount());
+        Assertions.assertEquals(2, service.getMissCount());
+    }
+
+    @Test
+    @DisplayName("A batch sends only the uncached frames on, as one batch, and keeps the caller's order")
+    public void verifyThatOnlyMissesAreSent_when_BatchIsPartlyCached() {
+        var service = new CachingImageService(delegate, 16, Duration.ofMinutes(5), clock);
+        service.imageContainsCat(frame(0x804020), 50);
+
+        Map<String, BufferedImage> images = new LinkedHashMap<>();
+        images.put("porch", frame(0x102030));
+        images.put("kitchen", frame(0x804020));
+        images.put("garden", frame(0x405060));
+        Map<String, Boolean> results = service.imageContainsCat(images, 50);
+
+        Assertions.assertIterableEquals(List.of("porch", "kitchen", "garden"), results.keySet());
+        Assertions.assertEquals(Map.of("porch", false, "kitchen", true, "garden", false), results);
+        Assertions.assertEquals(List.of(List.of("porch", "garden")), delegate.batches);
+
+        service.imageContainsCat(images, 50);
+        Assertions.assertEquals(1, delegate.batches.size());
+        Assertions.assertEquals(4, service.getHitCount());
+    }
+
+    @Test
+    @DisplayName("Encoded frames are cached by their bytes and passed on still encoded")
+    public void verifyThatJpegVerdictIsCached_when_SameBytesAreScannedAgain() {
+        var service = new CachingImageService(delegate, 16, Duration.ofMinutes(5), clock);
+        byte[] jpeg = {(byte) 0xFF, (byte) 0xD8, 1, 2, 3, 4, 5, 6, 7, 8, 9};
+
+        service.jpegContainsCat(jpeg, 50);
+        service.jpegContainsCat(jpeg.clone(), 50);
+        Assertions.assertEquals(1, delegate.jpegCalls.get());
+        Assertions.assertEquals(0, delegate.calls.get());
+        Assertions.assertEquals(1, service.getHitCount());
+    }
+
+    private static BufferedImage frame(int rgb) {
+        var image = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, rgb);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Says a frame contains a cat if it is more red than blue, and remembers every call.
+     */
+    private static final class CountingImageService implements ImageService {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicInteger jpegCalls = new AtomicInteger();
+        private final List<List<String>> batches = new ArrayList<>();
+
+        @Override
+        public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+            calls.incrementAndGet();
+            int rgb = image.getRGB(0, 0);
+            return (rgb >> 16 & 0xFF) > (rgb & 0xFF);
+        }
+
+        @Override
+        public <K> Map<K, Boolean> imageContainsCat(Map<K, BufferedImage> images, float confidenceThreshold) {
+            batches.add(images.keySet().stream().map(String::valueOf).toList());
+            return ImageService.super.imageContainsCat(images, confidenceThreshold);
+        }
+
+        @Override
+        public boolean jpegContainsCat(byte[] jpeg, float confidenceThreshold) {
+            jpegCalls.incrementAndGet();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.udacity.catpoint.imageservice;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class JpegEncoderTests {
+    @Test
+    @DisplayName("A frame within the size limit is encoded at its own size")
+    public void verifyThatFrameKeepsItsSize_when_WithinLimit() throws IOException {
+        var encoder = new JpegEncoder(0.85f, 1280);
+        BufferedImage decoded = decode(encoder.encode(gradient(64, 48, BufferedImage.TYPE_INT_RGB)));
+
+        Assertions.assertEquals(64, decoded.getWidth());
+        Assertions.assertEquals(48, decoded.getHeight());
+    }
+
+    @Test
+    @DisplayName("A frame over the size limit is scaled down keeping its aspect ratio, unless scaling is off")
+    public void verifyThatFrameIsScaled_when_OverLimit() throws IOException {
+        BufferedImage frame = gradient(400, 200, BufferedImage.TYPE_3BYTE_BGR);
+
+        BufferedImage scaled = decode(new JpegEncoder(0.85f, 100).encode(frame));
+        Assertions.assertEquals(100, scaled.getWidth());
+        Assertions.assertEquals(50, scaled.getHeight());
+
+        BufferedImage unscaled = decode(new JpegEncoder(0.85f, 0).encode(frame));
+        Assertions.assertEquals(400, unscaled.getWidth());
+        Assertions.assertEquals(200, unscaled.getHeight());
+    }
+
+    @Test
+    @DisplayName("A frame with alpha is encoded without it")
+    public void verifyThatAlphaIsDropped_when_FrameHasAlpha() throws IOException {
+        var encoder = new JpegEncoder(0.95f, 0);
+        var frame = new BufferedImage(32, 32, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < 32; y++) {
+            for (int x = 0; x < 32; x++) {
+                frame.setRGB(x, y, 0xFFC08040);
+            }
+        }
+
+        BufferedImage decoded = decode(encoder.encode(frame));
+        int rgb = decoded.getRGB(16, 16);
+        Assertions.assertEquals(0xC0, rgb >> 16 & 0xFF, 8);
+        Assertions.assertEquals(0x80, rgb >> 8 & 0xFF, 8);
+        Assertions.assertEquals(0x40, rgb & 0xFF, 8);
+    }
+
+    @Test
+    @DisplayName("Reusing the per-thread buffers never changes an array handed out before")
+    public void verifyThatEarlierResultIsUntouched_when_EncoderIsReused() throws IOException {
+        var encoder = new JpegEncoder(0.85f, 32);
+        BufferedImage first = gradient(64, 64, BufferedImage.TYPE_INT_ARGB);
+
+        byte[] encoded = encoder.encode(first);
+        byte[] copy = encoded.clone();
+        encoder.encode(gradient(48, 64, BufferedImage.TYPE_INT_ARGB));
+        encoder.encode(gradient(640, 480, BufferedImage.TYPE_INT_RGB));
+
+        Assertions.assertArrayEquals(copy, encoded);
+        Assertions.assertArrayEquals(encoded, encoder.encode(first));
+    }
+
+    @Test
+    @DisplayName("Threads encoding at the same time get the same bytes as a single thread")
+    public void verifyThatOutputMatches_when_EncodingConcurrently() throws Exception {
+        var encoder = new JpegEncoder(0.85f, 100);
+        BufferedImage frame = gradient(320, 240, BufferedImage.TYPE_INT_ARGB);
+        byte[] expected = encoder.encode(frame);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<byte[]>> results = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                results.add(executor.submit(() -> encoder.encode(frame)));
+            }
+            for (Future<byte[]> result : results) {
+                Assertions.assertArrayEquals(expected, result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("A quality outside 0 to 1 is rejected")
+    public void verifyThatQualityIsRejected_when_OutOfRange() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new JpegEncoder(1.5f, 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new JpegEncoder(-0.1f, 0));
+    }
+
+    private static BufferedImage gradient(int width, int height, int type) {
+        var image = new BufferedImage(width, height, type);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, 0xFF000000 | (x * 255 / width) << 16 | (y * 255 / height) << 8 | 0x60);
+            }
+        }
+        return image;
+    }
+
+    private static BufferedImage decode(byte[] jpeg) throws IOException {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(jpeg));
+        Assertions.assertNotNull(image);
+        return image;
+    }
+}
@@ -0,0 +1,109 @@
+package com.udacity.catpoint.imageservice;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class LocalImageServiceTests {
+    private final LocalImageService service = new LocalImageService();
+
+    @Test
+    @DisplayName("The same frame always gets the same confidence, whatever instance or copy it comes in")
+    public void verifyThatConfidenceIsDeterministic_when_SameFrameIsScanned() {
+        BufferedImage frame = noise(320, 240, BufferedImage.TYPE_INT_RGB, 7);
+        float confidence = service.confidence(frame);
+
+        Assertions.assertEquals(confidence, service.confidence(frame));
+        Assertions.assertEquals(confidence, new LocalImageService().confidence(frame));
+        Assertions.assertEquals(confidence, service.confidence(noise(320, 240, BufferedImage.TYPE_INT_RGB, 7)));
+        Assertions.assertEquals(confidence, service.confidence(convert(frame, BufferedImage.TYPE_3BYTE_BGR)));
+        Assertions.assertEquals(confidence >= 50, service.imageContainsCat(frame, 50));
+    }
+
+    @Test
+    @DisplayName("A large frame gets the same confidence however many threads measure it")
+    public void verifyThatConfidenceMatches_when_PoolSizeChanges() {
+        //large enough to be split into several bands
+        BufferedImage frame = noise(1280, 720, BufferedImage.TYPE_INT_RGB, 42);
+        Properties model = defaultModel();
+        float expected = service.confidence(frame);
+
+        for (int parallelism : new int[]{1, 2, 8}) {
+            var pool = new ForkJoinPool(parallelism);
+            try {
+                var pooled = new LocalImageService(model, pool);
+                for (int i = 0; i < 3; i++) {
+                    Assertions.assertEquals(expected, pooled.confidence(frame));
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("The confidence follows the logistic model it was given")
+    public void verifyThatConfidenceFollowsModel_when_ModelIsGiven() {
+        var model = new Properties();
+        model.setProperty("bias", "-1");
+        model.setProperty("weight.brightness", "2");
+        var custom = new LocalImageService(model, ForkJoinPool.commonPool());
+
+        var white = new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = white.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, 16, 16);
+        } finally {
+            g.dispose();
+        }
+        //brightness 0 scores the bias alone, brightness 1 scores bias + weight
+        var black = new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB);
+        Assertions.assertEquals(100 / (1 + Math.exp(1)), custom.confidence(black), 1e-4);
+        Assertions.assertEquals(100 / (1 + Math.exp(-1)), custom.confidence(white), 1e-4);
+        Assertions.assertTrue(custom.imageContainsCat(white, 70));
+        Assertions.assertFalse(custom.imageContainsCat(white, 75));
+    }
+
+    private static Properties defaultModel() {
+        var model = new Properties();
+        try (InputStream is = LocalImageService.class.getResourceAsStream("/cat-model.properties")) {
+            model.load(is);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+        return model;
+    }
+
+    private static BufferedImage noise(int width, int height, int type, long seed) {
+        var random = new Random(seed);
+        var image = new BufferedImage(width, height, type);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        return image;
+    }
+
+    private static BufferedImage convert(BufferedImage image, int type) {
+        var converted = new BufferedImage(image.getWidth(), image.getHeight(), type);
+        Graphics2D g = converted.createGraphics();
+        try {
+            g.drawImage(image, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return converted;
+    }
+}
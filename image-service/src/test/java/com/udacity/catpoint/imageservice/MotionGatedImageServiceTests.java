@@ -0,0 +1,166 @@
+package com.udacity.catpoint.imageservice;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MotionGatedImageServiceTests {
+    private final ManualClock clock = new ManualClock();
+    private final CountingImageService delegate = new CountingImageService();
+    private final MotionGatedImageService service =
+            new MotionGatedImageService(delegate, 16, Duration.ofMinutes(1), clock);
+
+    @Test
+    @DisplayName("A frame whose cells all stay within the change threshold of the last classified one reuses its verdict")
+    public void verifyThatVerdictIsReused_when_FrameBarelyChanges() {
+        Assertions.assertTrue(scan("porch", grey(100)));
+        Assertions.assertTrue(scan("porch", grey(100)));
+        Assertions.assertTrue(scan("porch", grey(110)));
+        Assertions.assertEquals(1, delegate.batches.size());
+        Assertions.assertEquals(1, service.getClassifiedCount());
+        Assertions.assertEquals(2, service.getSkippedCount());
+    }
+
+    @Test
+    @DisplayName("A frame with a cell at or beyond the change threshold is classified again")
+    public void verifyThatFrameIsClassified_when_ChangeReachesThreshold() {
+        scan("porch", grey(100));
+        //compared with the last classified frame, so small steps still add up
+        scan("porch", grey(108));
+        scan("porch", grey(116));
+        Assertions.assertEquals(2, delegate.batches.size());
+
+        Assertions.assertFalse(scan("porch", grey(200)));
+        Assertions.assertEquals(3, delegate.batches.size());
+    }
+
+    @Test
+    @DisplayName("A small object entering one corner of an otherwise unchanged frame is classified")
+    public void verifyThatFrameIsClassified_when_OnlyFewCellsChange() {
+        scan("porch", grey(100));
+        var cat = grey(100);
+        for (int y = 0; y < 6; y++) {
+            for (int x = 0; x < 8; x++) {
+                cat.setRGB(x, y, 0x202020);
+            }
+        }
+        //four cells out of 256, far too few to move the average difference between the frames
+        scan("porch", cat);
+        Assertions.assertEquals(2, delegate.batches.size());
+    }
+
+    @Test
+    @DisplayName("A verdict older than the maximum age is not reused, even for an unchanged frame")
+    public void verifyThatFrameIsClassified_when_VerdictIsTooOld() {
+        scan("porch", grey(100));
+        clock.advance(Duration.ofSeconds(60));
+        scan("porch", grey(100));
+        Assertions.assertEquals(1, delegate.batches.size());
+
+        clock.advance(Duration.ofSeconds(1));
+        scan("porch", grey(100));
+        Assertions.assertEquals(2, delegate.batches.size());
+    }
+
+    @Test
+    @DisplayName("A verdict is only reused for the same confidence threshold")
+    public void verifyThatFrameIsClassified_when_ThresholdChanges() {
+        service.imageContainsCat(Map.of("porch", grey(100)), 50);
+        service.imageContainsCat(Map.of("porch", grey(100)), 90);
+        Assertions.assertEquals(2, delegate.batches.size());
+    }
+
+    @Test
+    @DisplayName("A batch compares each camera with its own last frame and sends only the changed ones")
+    public void verifyThatOnlyChangedCamerasAreSent_when_BatchIsScanned() {
+        Map<String, BufferedImage> first = new LinkedHashMap<>();
+        first.put("porch", grey(100));
+        first.put("garden", grey(100));
+        service.imageContainsCat(first, 50);
+
+        Map<String, BufferedImage> second = new LinkedHashMap<>();
+        second.put("porch", grey(100));
+        second.put("garden", grey(200));
+        Map<String, Boolean> results = service.imageContainsCat(second, 50);
+
+        Assertions.assertIterableEquals(List.of("porch", "garden"), results.keySet());
+        Assertions.assertEquals(Map.of("porch", true, "garden", false), results);
+        Assertions.assertEquals(List.of(List.of("porch", "garden"), List.of("garden")), delegate.batches);
+    }
+
+    @Test
+    @DisplayName("Single images and encoded frames carry no camera id, so they are always passed on")
+    public void verifyThatFrameIsClassified_when_NoCameraIsGiven() throws IOException {
+        scan("porch", grey(100));
+        Assertions.assertTrue(service.imageContainsCat(grey(100), 50));
+        Assertions.assertTrue(service.imageContainsCat(grey(100), 50));
+        Assertions.assertEquals(2, delegate.calls.get());
+
+        service.jpegContainsCat(jpeg(grey(100)), 50);
+        service.jpegContainsCat(jpeg(grey(100)), 50);
+        Assertions.assertEquals(2, delegate.jpegCalls.get());
+        Assertions.assertEquals(1, delegate.batches.size());
+        Assertions.assertEquals(0, service.getSkippedCount());
+    }
+
+    private boolean scan(String camera, BufferedImage image) {
+        return service.imageContainsCat(Map.of(camera, image), 50).get(camera);
+    }
+
+    private static BufferedImage grey(int level) {
+        var image = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+        int rgb = level << 16 | level << 8 | level;
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, rgb);
+            }
+        }
+        return image;
+    }
+
+    private static byte[] jpeg(BufferedImage image) throws IOException {
+        var out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Says a frame contains a cat if it is darker than mid grey, and remembers every call.
+     */
+    private static final class CountingImageService implements ImageService {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicInteger jpegCalls = new AtomicInteger();
+        private final List<List<String>> batches = new ArrayList<>();
+
+        @Override
+        public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+            calls.incrementAndGet();
+            return (image.getRGB(0, 0) & 0xFF) < 128;
+        }
+
+        @Override
+        public <K> Map<K, Boolean> imageContainsCat(Map<K, BufferedImage> images, float confidenceThreshold) {
+            batches.add(images.keySet().stream().map(String::valueOf).toList());
+            Map<K, Boolean> results = new LinkedHashMap<>();
+            images.forEach((camera, image) -> results.put(camera, (image.getRGB(0, 0) & 0xFF) < 128));
+            return results;
+        }
+
+        @Override
+        public boolean jpegContainsCat(byte[] jpeg, float confidenceThreshold) {
+            jpegCalls.incrementAndGet();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.udacity.catpoint.imageservice;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+public class ResilientImageServiceTests {
+    private static final BooleanSupplier DOWN = () -> {
+        throw new IllegalStateException("backend down");
+    };
+
+    private final ManualClock clock = new ManualClock();
+    private final Backend backend = new Backend();
+    //the backend always says cat and the fallback never does, so a verdict shows where it came from
+    private final ImageService fallback = (image, confidenceThreshold) -> false;
+    private final BufferedImage image = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+
+    @Test
+    @DisplayName("A call that misses its deadline is answered by the fallback")
+    public void verifyThatFallbackAnswers_when_DeadlineIsMissed() throws Exception {
+        var stalled = new CountDownLatch(1);
+        backend.behaviour = () -> await(stalled);
+        try (var service = service(Duration.ofMillis(100), 5, 4)) {
+            long start = System.nanoTime();
+            Assertions.assertFalse(service.imageContainsCat(image, 50));
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            Assertions.assertTrue(elapsed < 2_000, "call took " + elapsed + "ms");
+            Assertions.assertEquals(1, service.getTimeoutCount());
+            Assertions.assertEquals(1, service.getFallbackCount());
+            Assertions.assertEquals(ResilientImageService.CircuitState.CLOSED, service.getCircuitState());
+        } finally {
+            stalled.countDown();
+        }
+    }
+
+    @Test
+    @DisplayName("The circuit opens after the failure threshold and closes again after a successful probe")
+    public void verifyThatCircuitOpensAndCloses_when_BackendFailsAndRecovers() {
+        backend.behaviour = DOWN;
+        try (var service = service(Duration.ofSeconds(5), 3, 4)) {
+            for (int i = 0; i < 3; i++) {
+                Assertions.assertFalse(service.imageContainsCat(image, 50));
+            }
+            Assertions.assertEquals(ResilientImageService.CircuitState.OPEN, service.getCircuitState());
+            Assertions.assertEquals(3, service.getFailureCount());
+
+            //open: the backend isn't asked at all
+            Assertions.assertFalse(service.imageContainsCat(image, 50));
+            Assertions.assertEquals(3, backend.calls.get());
+            Assertions.assertEquals(4, service.getFallbackCount());
+
+            backend.behaviour = () -> true;
+            clock.advance(Duration.ofSeconds(31));
+            Assertions.assertTrue(service.imageContainsCat(image, 50));
+            Assertions.assertEquals(ResilientImageService.CircuitState.CLOSED, service.getCircuitState());
+            Assertions.assertEquals(4, backend.calls.get());
+        }
+    }
+
+    @Test
+    @DisplayName("A failed probe keeps the circuit open for another round")
+    public void verifyThatCircuitStaysOpen_when_ProbeFails() {
+        backend.behaviour = DOWN;
+        try (var service = service(Duration.ofSeconds(5), 1, 4)) {
+            Assertions.assertFalse(service.imageContainsCat(image, 50));
+            Assertions.assertEquals(ResilientImageService.CircuitState.OPEN, service.getCircuitState());
+
+            clock.advance(Duration.ofSeconds(31));
+            Assertions.assertFalse(service.imageContainsCat(image, 50));
+            Assertions.assertEquals(2, backend.calls.get());
+            Assertions.assertEquals(ResilientImageService.CircuitState.OPEN, service.getCircuitState());
+
+            //the round starts over from the failed probe
+            clock.advance(Duration.ofSeconds(29));
+            Assertions.assertFalse(service.imageContainsCat(image, 50));
+            Assertions.assertEquals(2, backend.calls.get());
+        }
+    }
+
+    @Test
+    @DisplayName("Only one probe is let through while the circuit is half open")
+    public void verifyThatOtherCallsFallBack_when_CircuitIsHalfOpen() throws Exception {
+        backend.behaviour = DOWN;
+        var entered = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        try (var service = service(Duration.ofSeconds(5), 1, 4)) {
+            service.imageContainsCat(image, 50);
+            clock.advance(Duration.ofSeconds(31));
+            backend.behaviour = () -> {
+                entered.countDown();
+                return await(release);
+            };
+
+            CompletableFuture<Boolean> probe = CompletableFuture.supplyAsync(() -> service.imageContainsCat(image, 50));
+            Assertions.assertTrue(entered.await(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(ResilientImageService.CircuitState.HALF_OPEN, service.getCircuitState());
+            Assertions.assertFalse(service.imageContainsCat(image, 50));
+            Assertions.assertEquals(2, backend.calls.get());
+
+            release.countDown();
+            Assertions.assertTrue(probe.get(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(ResilientImageService.CircuitState.CLOSED, service.getCircuitState());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    @DisplayName("The concurrency limit grows with fast successes up to the maximum and halves on failures")
+    public void verifyThatLimitIsAdjusted_when_CallsSucceedOrFail() {
+        try (var service = service(Duration.ofSeconds(5), 10, 8)) {
+            Assertions.assertEquals(4, service.getConcurrencyLimit());
+            for (int i = 0; i < 5; i++) {
+                service.imageContainsCat(image, 50);
+            }
+            Assertions.assertEquals(5, service.getConcurrencyLimit());
+            for (int i = 0; i < 100; i++) {
+                service.imageContainsCat(image, 50);
+            }
+            Assertions.assertEquals(8, service.getConcurrencyLimit());
+
+            backend.behaviour = DOWN;
+            service.imageContainsCat(image, 50);
+            Assertions.assertEquals(4, service.getConcurrencyLimit());
+            for (int i = 0; i < 3; i++) {
+                service.imageContainsCat(image, 50);
+            }
+            Assertions.assertEquals(1, service.getConcurrencyLimit());
+        }
+    }
+
+    @Test
+    @DisplayName("A timed-out call keeps its slot, so calls over the limit go straight to the fallback")
+    public void verifyThatCallsOverLimitFallBack_when_BackendIsStalled() {
+        var stalled = new CountDownLatch(1);
+        backend.behaviour = () -> await(stalled);
+        try (var service = service(Duration.ofMillis(100), 5, 1)) {
+            Assertions.assertEquals(1, service.getConcurrencyLimit());
+            Assertions.assertFalse(service.imageContainsCat(image, 50));
+            Assertions.assertEquals(1, service.getTimeoutCount());
+
+            Assertions.assertFalse(service.imageContainsCat(image, 50));
+            Assertions.assertFalse(service.imageContainsCat(image, 50));
+            Assertions.assertEquals(1, backend.calls.get());
+            Assertions.assertEquals(1, service.getTimeoutCount());
+            Assertions.assertEquals(3, service.getFallbackCount());
+        } finally {
+            stalled.countDown();
+        }
+    }
+
+    @Test
+    @DisplayName("A batch scan goes through the same circuit as single calls and falls back as a whole")
+    public void verifyThatBatchFallsBack_when_CircuitOpens() {
+        Map<String, BufferedImage> images = new LinkedHashMap<>();
+        images.put("porch", image);
+        images.put("garden", image);
+        backend.behaviour = DOWN;
+        try (var service = service(Duration.ofSeconds(5), 2, 4)) {
+            Assertions.assertEquals(Map.of("porch", false, "garden", false), service.imageContainsCat(images, 50));
+            Assertions.assertFalse(service.imageContainsCat(image, 50));
+            Assertions.assertEquals(ResilientImageService.CircuitState.OPEN, service.getCircuitState());
+            Assertions.assertEquals(2, service.getFailureCount());
+
+            //open: neither batches nor single images reach the backend
+            Assertions.assertIterableEquals(List.of("porch", "garden"), service.imageContainsCat(images, 50).keySet());
+            Assertions.assertEquals(2, backend.calls.get());
+            Assertions.assertEquals(3, service.getFallbackCount());
+
+            backend.behaviour = () -> true;
+            clock.advance(Duration.ofSeconds(31));
+            Assertions.assertEquals(Map.of("porch", true, "garden", true), service.imageContainsCat(images, 50));
+            Assertions.assertEquals(ResilientImageService.CircuitState.CLOSED, service.getCircuitState());
+        }
+    }
+
+    private ResilientImageService service(Duration callTimeout, int failureThreshold, int maxConcurrency) {
+        return new ResilientImageService(backend, fallback, callTimeout, failureThreshold, Duration.ofSeconds(30),
+                maxConcurrency, clock);
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return true;
+    }
+
+    private static final class Backend implements ImageService {
+        private final AtomicInteger calls = new AtomicInteger();
+        private volatile BooleanSupplier behaviour = () -> true;
+
+        @Override
+        public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+            calls.incrementAndGet();
+            return behaviour.getAsBoolean();
+        }
+    }
+}
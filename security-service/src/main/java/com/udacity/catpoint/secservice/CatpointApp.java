@@ -1,13 +1,53 @@
 package com.udacity.catpoint.secservice;
 
 import com.udacity.catpoint.secservice.application.CatpointGui;
+import com.udacity.catpoint.secservice.server.HeadlessServer;
+
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
 
 /**
  * This is the main class that launches the application.
+ * <p>
+ * Run with {@code --headless [config.properties]} to start the system without a user interface,
+ * taking events from a local socket or a drop directory instead, see {@link HeadlessServer}.
  */
 public class CatpointApp {
-    public static void main(String[] args) {
+    private static final System.Logger LOG = System.getLogger(CatpointApp.class.getName());
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length > 0 && args[0].equals("--headless")) {
+            runHeadless(args.length > 1 ? Path.of(args[1]) : null);
+        } else {
+            runGui();
+        }
+    }
+
+    // kept out of main so headless runs never load the Swing classes
+    private static void runGui() {
         CatpointGui gui = new CatpointGui();
         gui.setVisible(true);
     }
+
+    private static void runHeadless(Path config) throws InterruptedException {
+        System.setProperty("java.awt.headless", "true");
+        HeadlessServer server = new HeadlessServer(HeadlessServer.loadConfig(config));
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (Exception e) {
+                LOG.log(System.Logger.Level.ERROR, "Unable to shut down cleanly", e);
+            } finally {
+                stopped.countDown();
+            }
+        }, "catpoint-shutdown"));
+        if (server.getSocketPort() > 0) {
+            LOG.log(System.Logger.Level.INFO, "Catpoint listening for commands on port {0,number,#}", server.getSocketPort());
+        }
+        if (server.getHttpPort() > 0) {
+            LOG.log(System.Logger.Level.INFO, "Catpoint listening for HTTP on port {0,number,#}", server.getHttpPort());
+        }
+        stopped.await();
+    }
 }
@@ -0,0 +1,197 @@
+package com.udacity.catpoint.secservice.application;
+
+import com.udacity.catpoint.secservice.data.AlarmStatus;
+import com.udacity.catpoint.secservice.metrics.Counter;
+import com.udacity.catpoint.secservice.metrics.Histogram;
+import com.udacity.catpoint.secservice.metrics.MetricsRegistry;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * StatusListener that hands notifications to another listener on an {@link Executor}, so the
+ * thread reporting a change never waits for the listener. Use {@code SwingUtilities::invokeLater}
+ * as the executor to have a UI component notified on the event dispatch thread.
+ * <p>
+ * Notifications that pile up while the listener is busy are coalesced: only the latest alarm
+ * status and the latest cat verdict are delivered, and any number of sensor changes are delivered
+ * as one. Pending {@link SensorChangeEvent}s are merged into one event carrying the newest version
+ * and the net change per sensor. Deliveries never overlap, even on a multi-threaded executor. A
+ * listener that throws is counted and skipped; it does not affect the other notifications or the
+ * caller.
+ * <p>
+ * Metrics, under {@code listener.<name>}: {@code posted}, {@code delivered}, {@code coalesced} and
+ * {@code failures} counters, and a {@code queueDepth} histogram of how many notifications were
+ * already waiting whenever a new one arrived.
+ */
+public class AsyncStatusListener implements StatusListener {
+    private final StatusListener delegate;
+    private final Executor executor;
+
+    private final AtomicReference<AlarmStatus> pendingStatus = new AtomicReference<>();
+    private final AtomicReference<Boolean> pendingCat = new AtomicReference<>();
+    private final AtomicInteger pendingSensorChanges = new AtomicInteger();
+    //guarded by itself
+    private final Map<UUID, SensorChange> pendingChanges = new LinkedHashMap<>();
+    private long pendingVersion;
+    //notifications posted but not yet taken by a delivery; a delivery is scheduled while this is positive
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final Counter posted;
+    private final Counter delivered;
+    private final Counter coalesced;
+    private final Counter failures;
+    private final Histogram queueDepth;
+
+    public AsyncStatusListener(StatusListener delegate, Executor executor) {
+        this(delegate, executor, MetricsRegistry.noop(), delegate.getClass().getSimpleName());
+    }
+
+    /**
+     * @param delegate Listener to notify
+     * @param executor Runs the deliveries
+     * @param metrics  Registry to record metrics in
+     * @param name     Name this listener's metrics are recorded under
+     */
+    public AsyncStatusListener(StatusListener delegate, Executor executor, MetricsRegistry metrics, String name) {
+        this.delegate = delegate;
+        this.executor = executor;
+        String prefix = "listener." + name + ".";
+        this.posted = metrics.counter(prefix + "posted");
+        this.delivered = metrics.counter(prefix + "delivered");
+        this.coalesced = metrics.counter(prefix + "coalesced");
+        this.failures = metrics.counter(prefix + "failures");
+        this.queueDepth = metrics.histogram(prefix + "queueDepth");
+    }
+
+    /**
+     * The listener notifications are delivered to.
+     */
+    public StatusListener getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Number of notifications posted but not delivered yet, before coalescing.
+     */
+    public int getQueueDepth() {
+        return pending.get();
+    }
+
+    @Override
+    public void notify(AlarmStatus status) {
+        if (pendingStatus.getAndSet(status) != null) {
+            coalesced.increment();
+        }
+        post();
+    }
+
+    @Override
+    public void catDetected(boolean catDetected) {
+        if (pendingCat.getAndSet(catDetected) != null) {
+            coalesced.increment();
+        }
+        post();
+    }
+
+    @Override
+    public void sensorStatusChanged() {
+        if (pendingSensorChanges.getAndIncrement() > 0) {
+            coalesced.increment();
+        }
+        post();
+    }
+
+    @Override
+    public void sensorsChanged(SensorChangeEvent event) {
+        synchronized (pendingChanges) {
+            if (!pendingChanges.isEmpty()) {
+                coalesced.increment();
+            }
+            for (SensorChange change : event.changes()) {
+                merge(change);
+            }
+            pendingVersion = Math.max(pendingVersion, event.version());
+        }
+        post();
+    }
+
+    /**
+     * Folds a change into the pending changes, keeping one net change per sensor: a sensor that
+     * was added and then toggled is still just added, and one added and removed again is dropped.
+     */
+    private void merge(SensorChange change) {
+        SensorChange previous = pendingChanges.remove(change.sensorId());
+        if (previous == null || previous.kind() != SensorChange.Kind.ADDED) {
+            pendingChanges.put(change.sensorId(), change);
+        } else if (change.kind() != SensorChange.Kind.REMOVED) {
+            pendingChanges.put(change.sensorId(), new SensorChange(SensorChange.Kind.ADDED, change.sensor()));
+        }
+    }
+
+    private void post() {
+        posted.increment();
+        int waiting = pending.getAndIncrement();
+        queueDepth.record(waiting);
+        if (waiting == 0) {
+            executor.execute(this::deliver);
+        }
+    }
+
+    /**
+     * Delivers everything pending, and keeps going until nothing was posted meanwhile. Only one
+     * delivery runs at a time: a new one is only scheduled once this one has seen the count drop
+     * to zero.
+     */
+    private void deliver() {
+        int taken = pending.get();
+        while (true) {
+            AlarmStatus status = pendingStatus.getAndSet(null);
+            if (status != null) {
+                deliver(() -> delegate.notify(status));
+            }
+            Boolean cat = pendingCat.getAndSet(null);
+            if (cat != null) {
+                deliver(() -> delegate.catDetected(cat));
+            }
+            SensorChangeEvent changes = takeChanges();
+            if (changes != null) {
+                deliver(() -> delegate.sensorsChanged(changes));
+            }
+            if (pendingSensorChanges.getAndSet(0) > 0) {
+                deliver(delegate::sensorStatusChanged);
+            }
+
+            int remaining = pending.addAndGet(-taken);
+            if (remaining == 0) {
+                return;
+            }
+            taken = remaining;
+        }
+    }
+
+    private SensorChangeEvent takeChanges() {
+        synchronized (pendingChanges) {
+            if (pendingChanges.isEmpty()) {
+                return null;
+            }
+            SensorChangeEvent event = new SensorChangeEvent(pendingVersion, new ArrayList<>(pendingChanges.values()));
+            pendingChanges.clear();
+            return event;
+        }
+    }
+
+    private void deliver(Runnable notification) {
+        try {
+            notification.run();
+            delivered.increment();
+        } catch (RuntimeException e) {
+            failures.increment();
+        }
+    }
+}
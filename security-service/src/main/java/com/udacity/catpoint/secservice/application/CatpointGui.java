@@ -17,7 +17,8 @@ import javax.swing.*;
 public class CatpointGui extends JFrame {
     private transient SecurityRepository securityRepository = new PretendDatabaseSecurityRepositoryImpl();
     private transient ImageService imageService = new FakeImageService();
-    private transient SecurityService securityService = new SecurityService(securityRepository, imageService);
+    //scans are classified and applied off the event dispatch thread, so the service has to be thread-safe
+    private transient SecurityService securityService = SecurityService.concurrent(securityRepository, imageService);
     private final DisplayPanel displayPanel = new DisplayPanel(securityService);
     private final ControlPanel controlPanel = new ControlPanel(securityService);
     private final SensorPanel sensorPanel = new SensorPanel(securityService);
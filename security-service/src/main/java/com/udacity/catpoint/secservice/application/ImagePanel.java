@@ -11,6 +11,7 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.CancellationException;
 
 /**
  * Panel containing the 'camera' output. Allows users to 'refresh' the camera
@@ -28,7 +29,7 @@ public class ImagePanel extends JPanel implements StatusListener {
     public ImagePanel(SecurityService securityService) {
         super();
         setLayout(new MigLayout());
-        securityService.addStatusListener(this);
+        securityService.addStatusListener(this, SwingUtilities::invokeLater);
 
         cameraHeader = new JLabel("Camera Feed");
         cameraHeader.setFont(StyleService.HEADING_FONT);
@@ -64,9 +65,15 @@ public class ImagePanel extends JPanel implements StatusListener {
             repaint();
         });
 
-        //button that sends the image to the image service
+        //button that sends the image to the image service, without blocking the UI while it is analyzed
         JButton scanPictureButton = new JButton("Scan Picture");
-        scanPictureButton.addActionListener(e -> securityService.processImage(currentCameraImage));
+        scanPictureButton.addActionListener(e -> securityService.processImageAsync(currentCameraImage)
+                .whenComplete((cat, error) -> {
+                    if (error != null && !(error instanceof CancellationException)) {
+                        SwingUtilities.invokeLater(() ->
+                                JOptionPane.showMessageDialog(null, "Unable to scan picture."));
+                    }
+                }));
 
         add(cameraHeader, "span 3, wrap");
         add(cameraLabel, "span 3, wrap");
@@ -0,0 +1,20 @@
+package com.udacity.catpoint.secservice.application;
+
+import com.udacity.catpoint.secservice.data.Sensor;
+
+import java.util.UUID;
+
+/**
+ * One change to one sensor.
+ *
+ * @param sensor The sensor that changed, in its state right after the change
+ */
+public record SensorChange(Kind kind, Sensor sensor) {
+    public enum Kind {
+        ADDED, REMOVED, ACTIVATED, DEACTIVATED
+    }
+
+    public UUID sensorId() {
+        return sensor.getSensorId();
+    }
+}
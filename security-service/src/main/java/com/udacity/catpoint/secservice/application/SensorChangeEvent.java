@@ -0,0 +1,38 @@
+package com.udacity.catpoint.secservice.application;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Sensor changes made by one operation, e.g. a single toggle, a batch of activations or arming the
+ * system, in the order they were made.
+ *
+ * @param version Increases with every event a SecurityService creates, so a consumer can tell
+ *                which of two events is newer and whether a snapshot it took predates an event
+ * @param changes The changes, never empty
+ */
+public record SensorChangeEvent(long version, List<SensorChange> changes) {
+    public SensorChangeEvent {
+        changes = List.copyOf(changes);
+    }
+
+    /**
+     * Whether the event holds more than one change.
+     */
+    public boolean isBulk() {
+        return changes.size() > 1;
+    }
+
+    /**
+     * Ids of all sensors that changed, in the order of their first change.
+     */
+    public Set<UUID> changedIds() {
+        Set<UUID> ids = new LinkedHashSet<>();
+        for (SensorChange change : changes) {
+            ids.add(change.sensorId());
+        }
+        return ids;
+    }
+}
@@ -8,10 +8,15 @@ import com.udacity.catpoint.secservice.service.StyleService;
 import net.miginfocom.swing.MigLayout;
 
 import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Panel that allows users to add sensors to their system. Sensors may be
  * manually set to "active" and "inactive" to test the system.
+ * <p>
+ * Sensors are listed in a table backed by a {@link SensorTableModel}, so only the rows that change
+ * are repainted and only the visible rows are ever drawn, however many sensors there are.
  */
 public class SensorPanel extends JPanel implements StatusListener {
     private final SecurityService securityService;
@@ -21,8 +26,10 @@ public class SensorPanel extends JPanel implements StatusListener {
     private final JTextField newSensorNameField = new JTextField();
     private final JComboBox<SensorType> newSensorTypeDropdown = new JComboBox<>(SensorType.values());
     private final JButton addNewSensorButton = new JButton("Add New Sensor");
+    private final JButton removeSensorButton = new JButton("Remove Sensor");
 
-    private final JPanel sensorListPanel;
+    private final SensorTableModel sensorTableModel;
+    private final JTable sensorTable;
     private final JPanel newSensorPanel;
 
     public SensorPanel(SecurityService securityService) {
@@ -35,15 +42,25 @@ public class SensorPanel extends JPanel implements StatusListener {
                 addSensor(new Sensor(newSensorNameField.getText(),
                         SensorType.valueOf(newSensorTypeDropdown.getSelectedItem().toString()))));
 
-        newSensorPanel = buildAddSensorPanel();
-        sensorListPanel = new JPanel();
-        sensorListPanel.setLayout(new MigLayout());
+        sensorTableModel = new SensorTableModel(securityService);
+        sensorTableModel.refresh(securityService.getSensors());
+        sensorTable = new JTable(sensorTableModel);
+        sensorTable.setFillsViewportHeight(true);
+        sensorTable.getColumnModel().getColumn(SensorTableModel.NAME_COLUMN).setPreferredWidth(300);
+        sensorTable.getColumnModel().getColumn(SensorTableModel.TYPE_COLUMN).setPreferredWidth(100);
+        sensorTable.getColumnModel().getColumn(SensorTableModel.ACTIVE_COLUMN).setPreferredWidth(60);
+
+        removeSensorButton.setEnabled(false);
+        sensorTable.getSelectionModel().addListSelectionListener(e ->
+                removeSensorButton.setEnabled(sensorTable.getSelectedRowCount() > 0));
+        removeSensorButton.addActionListener(e -> removeSelectedSensors());
 
-        updateSensorList(sensorListPanel);
+        newSensorPanel = buildAddSensorPanel();
 
         add(panelLabel, "wrap");
-        add(newSensorPanel, "span");
-        add(sensorListPanel, "span");
+        add(newSensorPanel, "span, wrap");
+        add(new JScrollPane(sensorTable), "span, width 500:500:500, height 150:200:400, wrap");
+        add(removeSensorButton);
     }
 
     /**
@@ -58,58 +75,20 @@ public class SensorPanel extends JPanel implements StatusListener {
         p.add(newSensorTypeDropdown, "wrap");
         p.add(addNewSensorButton, "span 3");
 
-        this.securityService.addStatusListener(this);
+        this.securityService.addStatusListener(this, SwingUtilities::invokeLater);
 
         return p;
     }
 
     /**
-     * Requests the current list of sensors and updates the provided panel to display them. Sensors
-     * will display in the order that they are created.
-     *
-     * @param p The Panel to populate with the current list of sensors
-     */
-    private void updateSensorList(JPanel p) {
-        p.removeAll();
-        securityService.getSensors().stream().sorted().forEach(s -> {
-            JLabel sensorLabel = new JLabel(String.format(
-                    "%s(%s): %s", s.getName(), s.getSensorType().toString(), (s.getActive() ? "Active" : "Inactive")));
-            JButton sensorToggleButton = new JButton((s.getActive() ? "Deactivate" : "Activate"));
-            JButton sensorRemoveButton = new JButton("Remove Sensor");
-
-            sensorToggleButton.addActionListener(e -> setSensorActivity(s, !s.getActive()));
-            sensorRemoveButton.addActionListener(e -> removeSensor(s));
-
-            //hard code some sizes, tsk tsk
-            p.add(sensorLabel, "width 300:300:300");
-            p.add(sensorToggleButton, "width 100:100:100");
-            p.add(sensorRemoveButton, "wrap");
-        });
-
-        repaint();
-        revalidate();
-    }
-
-    /**
-     * Asks the securityService to change a sensor activation status and then rebuilds the current sensor list
-     *
-     * @param sensor   The sensor to update
-     * @param isActive The sensor's activation status
-     */
-    private void setSensorActivity(Sensor sensor, Boolean isActive) {
-        securityService.changeSensorActivationStatus(sensor, isActive);
-        updateSensorList(sensorListPanel);
-    }
-
-    /**
-     * Adds a sensor to the securityService and then rebuilds the sensor list
+     * Adds a sensor to the securityService and then shows it in the sensor table
      *
      * @param sensor The sensor to add
      */
     private void addSensor(Sensor sensor) {
         if (securityService.getSensors().size() < 4) {
             securityService.addSensor(sensor);
-            updateSensorList(sensorListPanel);
+            sensorTableModel.sensorAdded(sensor);
         } else {
             JOptionPane.showMessageDialog(
                     null,
@@ -118,18 +97,36 @@ public class SensorPanel extends JPanel implements StatusListener {
     }
 
     /**
-     * Remove a sensor from the securityService and then rebuild the sensor list
-     *
-     * @param sensor The sensor to remove
+     * Removes the selected sensors from the securityService and the sensor table
      */
-    private void removeSensor(Sensor sensor) {
-        securityService.removeSensor(sensor);
-        updateSensorList(sensorListPanel);
+    private void removeSelectedSensors() {
+        int[] selected = sensorTable.getSelectedRows();
+        List<Sensor> sensors = new ArrayList<>(selected.length);
+        for (int row : selected) {
+            sensors.add(sensorTableModel.getSensor(row));
+        }
+        if (sensors.size() == 1) {
+            securityService.removeSensor(sensors.get(0));
+        } else {
+            securityService.removeSensors(sensors);
+        }
+        sensors.forEach(sensorTableModel::sensorRemoved);
     }
 
     @Override
     public void sensorStatusChanged() {
-        this.updateSensorList(sensorListPanel);
+        // sensorsChanged already told us exactly which sensors changed
+    }
+
+    @Override
+    public void sensorsChanged(SensorChangeEvent event) {
+        for (SensorChange change : event.changes()) {
+            switch (change.kind()) {
+                case ADDED -> sensorTableModel.sensorAdded(change.sensor());
+                case REMOVED -> sensorTableModel.sensorRemoved(change.sensor());
+                default -> sensorTableModel.sensorChanged(change.sensor());
+            }
+        }
     }
 
     @Override
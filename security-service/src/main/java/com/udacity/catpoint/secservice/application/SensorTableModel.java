@@ -0,0 +1,218 @@
+package com.udacity.catpoint.secservice.application;
+
+import com.udacity.catpoint.secservice.data.Sensor;
+import com.udacity.catpoint.secservice.data.SensorType;
+import com.udacity.catpoint.secservice.service.SecurityService;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Table model listing the sensors of a SecurityService in their natural order. The model keeps its
+ * own sorted copy of the sensor list and only tells the table about the rows that actually
+ * changed, so the table repaints just those rows, and only if they are visible.
+ * <p>
+ * Ticking the "Active" box of a row changes that sensor's activation status through the service.
+ * Must only be used on the event dispatch thread.
+ */
+class SensorTableModel extends AbstractTableModel {
+    static final int NAME_COLUMN = 0;
+    static final int TYPE_COLUMN = 1;
+    static final int ACTIVE_COLUMN = 2;
+
+    private static final String[] COLUMN_NAMES = {"Name", "Type", "Active"};
+    //above this many inserted or removed rows a full reload is cheaper than individual events
+    private static final int MAX_INCREMENTAL_CHANGES = 64;
+
+    private final SecurityService securityService;
+    private List<Sensor> rows = new ArrayList<>();
+    //active flag of each row as last shown, since the sensors themselves may change underneath
+    private BitSet shownActive = new BitSet();
+
+    SensorTableModel(SecurityService securityService) {
+        this.securityService = securityService;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return switch (column) {
+            case NAME_COLUMN -> String.class;
+            case TYPE_COLUMN -> SensorType.class;
+            default -> Boolean.class;
+        };
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return column == ACTIVE_COLUMN;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Sensor sensor = rows.get(row);
+        return switch (column) {
+            case NAME_COLUMN -> sensor.getName();
+            case TYPE_COLUMN -> sensor.getSensorType();
+            default -> shownActive.get(row);
+        };
+    }
+
+    @Override
+    public void setValueAt(Object value, int row, int column) {
+        if (column == ACTIVE_COLUMN) {
+            securityService.changeSensorActivationStatus(rows.get(row), (Boolean) value);
+            sensorChanged(rows.get(row));
+        }
+    }
+
+    Sensor getSensor(int row) {
+        return rows.get(row);
+    }
+
+    /**
+     * Shows a sensor that was just added.
+     */
+    void sensorAdded(Sensor sensor) {
+        int index = Collections.binarySearch(rows, sensor);
+        if (index >= 0) {
+            sensorChanged(sensor);
+            return;
+        }
+        int row = -index - 1;
+        rows.add(row, sensor);
+        shiftActive(row, 1);
+        shownActive.set(row, sensor.getActive());
+        fireTableRowsInserted(row, row);
+    }
+
+    /**
+     * Stops showing a sensor that was just removed.
+     */
+    void sensorRemoved(Sensor sensor) {
+        int row = Collections.binarySearch(rows, sensor);
+        if (row >= 0) {
+            rows.remove(row);
+            shiftActive(row + 1, -1);
+            fireTableRowsDeleted(row, row);
+        }
+    }
+
+    /**
+     * Repaints a sensor's row if its activation status changed. The row keeps the given object
+     * from now on, since the one it held may be an outdated copy.
+     */
+    void sensorChanged(Sensor sensor) {
+        int row = Collections.binarySearch(rows, sensor);
+        if (row < 0) {
+            return;
+        }
+        rows.set(row, sensor);
+        if (shownActive.get(row) != sensor.getActive()) {
+            shownActive.set(row, sensor.getActive());
+            fireTableCellUpdated(row, ACTIVE_COLUMN);
+        }
+    }
+
+    /**
+     * Brings the model in line with the given sensors. Both lists are walked in sorted order, so
+     * only rows that appeared, disappeared or changed their activation status produce events.
+     */
+    void refresh(Collection<Sensor> sensors) {
+        List<Sensor> current = new ArrayList<>(sensors);
+        //a SecurityService backed by a sensor table already iterates in order; this is then a single pass
+        current.sort(null);
+
+        if (countStructuralChanges(current) > MAX_INCREMENTAL_CHANGES) {
+            rows = current;
+            shownActive = new BitSet(current.size());
+            for (int i = 0; i < current.size(); i++) {
+                shownActive.set(i, current.get(i).getActive());
+            }
+            fireTableDataChanged();
+            return;
+        }
+
+        int row = 0;
+        for (Sensor sensor : current) {
+            while (row < rows.size() && rows.get(row).compareTo(sensor) < 0) {
+                rows.remove(row);
+                shiftActive(row + 1, -1);
+                fireTableRowsDeleted(row, row);
+            }
+            if (row < rows.size() && rows.get(row).compareTo(sensor) == 0) {
+                //keep showing the newest object for the sensor
+                rows.set(row, sensor);
+                if (shownActive.get(row) != sensor.getActive()) {
+                    shownActive.set(row, sensor.getActive());
+                    fireTableCellUpdated(row, ACTIVE_COLUMN);
+                }
+            } else {
+                rows.add(row, sensor);
+                shiftActive(row, 1);
+                shownActive.set(row, sensor.getActive());
+                fireTableRowsInserted(row, row);
+            }
+            row++;
+        }
+        if (row < rows.size()) {
+            int last = rows.size() - 1;
+            rows.subList(row, rows.size()).clear();
+            shownActive.clear(row, last + 1);
+            fireTableRowsDeleted(row, last);
+        }
+    }
+
+    private int countStructuralChanges(List<Sensor> current) {
+        int changes = 0;
+        int i = 0;
+        int j = 0;
+        while (i < rows.size() && j < current.size()) {
+            int order = rows.get(i).compareTo(current.get(j));
+            if (order == 0) {
+                i++;
+                j++;
+            } else {
+                changes++;
+                if (order < 0) i++;
+                else j++;
+            }
+        }
+        return changes + (rows.size() - i) + (current.size() - j);
+    }
+
+    /**
+     * Moves the shown active flags from {@code from} onwards by {@code distance} rows.
+     */
+    private void shiftActive(int from, int distance) {
+        int size = rows.size() - distance;
+        if (distance > 0) {
+            for (int i = size - 1; i >= from; i--) {
+                shownActive.set(i + distance, shownActive.get(i));
+            }
+        } else {
+            for (int i = from; i < size; i++) {
+                shownActive.set(i + distance, shownActive.get(i));
+            }
+            shownActive.clear(size + distance, size);
+        }
+    }
+}
@@ -10,5 +10,19 @@ public interface StatusListener {
 
     void catDetected(boolean catDetected);
 
+    /**
+     * Called after operations that change several sensors at once, in addition to
+     * {@link #sensorsChanged(SensorChangeEvent)}. Listeners that handle the detailed events can
+     * leave this empty.
+     */
     void sensorStatusChanged();
+
+    /**
+     * Called after sensors were added, removed, activated or deactivated, with exactly which ones.
+     * Does nothing by default.
+     *
+     * @param event - The changes and the version they bring the sensors to
+     */
+    default void sensorsChanged(SensorChangeEvent event) {
+    }
 }
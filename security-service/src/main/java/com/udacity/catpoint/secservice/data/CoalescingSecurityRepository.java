@@ -0,0 +1,269 @@
+package com.udacity.catpoint.secservice.data;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decorator that answers reads from memory and coalesces writes to another repository. Changes
+ * are queued (later changes to the same sensor replace earlier ones) and handed to the delegate as
+ * one batch, either periodically or when {@link #flush()} is called. {@link #flush()} returns only
+ * once everything queued before it has reached the delegate, so it can be used as a durability
+ * barrier.
+ * <p>
+ * By default the queue is not capped, so a burst such as arming thousands of sensors reaches the
+ * delegate as a single write. A {@code maxBatchSize} can be given to bound the queue instead; a
+ * burst larger than that is then written as several batches, in order, so the delegate still ends
+ * up with every change, but a crash between two of them leaves only part of the burst stored.
+ */
+public class CoalescingSecurityRepository implements SecurityRepository, Closeable {
+    private static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofMillis(200);
+    private static final int NO_BATCH_LIMIT = Integer.MAX_VALUE;
+
+    private final SecurityRepository delegate;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService flusher;
+    //held while a batch is applied so batches reach the delegate in the order they were drained
+    private final Object flushLock = new Object();
+
+    private final SensorTable sensors = new SensorTable();
+    private AlarmStatus alarmStatus;
+    private ArmingStatus armingStatus;
+
+    private Map<UUID, Sensor> pendingUpdates = new LinkedHashMap<>();
+    private Map<UUID, Sensor> pendingRemovals = new LinkedHashMap<>();
+    private AlarmStatus pendingAlarmStatus;
+    private ArmingStatus pendingArmingStatus;
+    private boolean flushRequested;
+    private RuntimeException flushFailure;
+
+    public CoalescingSecurityRepository(SecurityRepository delegate) {
+        this(delegate, DEFAULT_FLUSH_INTERVAL);
+    }
+
+    public CoalescingSecurityRepository(SecurityRepository delegate, Duration flushInterval) {
+        this(delegate, flushInterval, NO_BATCH_LIMIT);
+    }
+
+    /**
+     * @param maxBatchSize - Number of queued changes that triggers a flush before the interval is up
+     */
+    public CoalescingSecurityRepository(SecurityRepository delegate, Duration flushInterval, int maxBatchSize) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be positive");
+        }
+        this.delegate = delegate;
+        this.maxBatchSize = maxBatchSize;
+        delegate.getSensors().forEach(sensors::put);
+        this.alarmStatus = delegate.getAlarmStatus();
+        this.armingStatus = delegate.getArmingStatus();
+
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "security-repository-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = flushInterval.toMillis();
+        flusher.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void addSensor(Sensor sensor) {
+        sensors.put(sensor);
+        queueUpdate(sensor);
+    }
+
+    @Override
+    public synchronized void removeSensor(Sensor sensor) {
+        sensors.remove(sensor.getSensorId());
+        pendingUpdates.remove(sensor.getSensorId());
+        pendingRemovals.put(sensor.getSensorId(), sensor);
+        requestFlushIfFull();
+    }
+
+    @Override
+    public synchronized void addSensors(Collection<Sensor> sensors) {
+        sensors.forEach(this::addSensor);
+    }
+
+    @Override
+    public synchronized void removeSensors(Collection<Sensor> sensors) {
+        sensors.forEach(this::removeSensor);
+    }
+
+    @Override
+    public synchronized void updateSensor(Sensor sensor) {
+        sensors.put(sensor);
+        queueUpdate(sensor);
+    }
+
+    @Override
+    public synchronized void updateSensors(Collection<Sensor> sensors) {
+        sensors.forEach(this::updateSensor);
+    }
+
+    @Override
+    public Set<Sensor> getSensors() {
+        return sensors.asSet();
+    }
+
+    @Override
+    public Sensor findSensor(Sensor sensor) {
+        return sensors.get(sensor.getSensorId());
+    }
+
+    @Override
+    public synchronized AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    @Override
+    public synchronized void setAlarmStatus(AlarmStatus alarmStatus) {
+        this.alarmStatus = alarmStatus;
+        this.pendingAlarmStatus = alarmStatus;
+    }
+
+    @Override
+    public synchronized ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    @Override
+    public synchronized void setArmingStatus(ArmingStatus armingStatus) {
+        this.armingStatus = armingStatus;
+        this.pendingArmingStatus = armingStatus;
+    }
+
+    /**
+     * Writes every queued change to the delegate before returning. The changes of a failed
+     * background flush are still queued and are retried here; only if the retry fails too does
+     * this throw, with the earlier failure attached as suppressed.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            RuntimeException failure;
+            synchronized (this) {
+                failure = flushFailure;
+                flushFailure = null;
+            }
+            try {
+                applyBatch();
+            } catch (RuntimeException e) {
+                if (failure != null && failure != e) {
+                    e.addSuppressed(failure);
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Flushes outstanding changes and stops the background flusher.
+     */
+    @Override
+    public void close() {
+        flusher.shutdown();
+        flush();
+    }
+
+    private void queueUpdate(Sensor sensor) {
+        pendingRemovals.remove(sensor.getSensorId());
+        pendingUpdates.put(sensor.getSensorId(), sensor);
+        requestFlushIfFull();
+    }
+
+    private void requestFlushIfFull() {
+        if (!flushRequested && pendingUpdates.size() + pendingRemovals.size() >= maxBatchSize) {
+            flushRequested = true;
+            flusher.execute(this::flushQuietly);
+        }
+    }
+
+    private void flushQuietly() {
+        synchronized (flushLock) {
+            RuntimeException failure = null;
+            try {
+                applyBatch();
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            synchronized (this) {
+                //a successful batch also wrote whatever an earlier failed one left queued
+                flushFailure = failure;
+            }
+        }
+    }
+
+    /**
+     * Drains the queue and applies it to the delegate. Must be called while holding flushLock.
+     */
+    private void applyBatch() {
+        Map<UUID, Sensor> updates;
+        Map<UUID, Sensor> removals;
+        AlarmStatus alarm;
+        ArmingStatus arming;
+        synchronized (this) {
+            updates = pendingUpdates;
+            removals = pendingRemovals;
+            alarm = pendingAlarmStatus;
+            arming = pendingArmingStatus;
+            pendingUpdates = new LinkedHashMap<>();
+            pendingRemovals = new LinkedHashMap<>();
+            pendingAlarmStatus = null;
+            pendingArmingStatus = null;
+            flushRequested = false;
+        }
+
+        try {
+            if (!removals.isEmpty()) {
+                delegate.removeSensors(new ArrayList<>(removals.values()));
+                removals.clear();
+            }
+            if (!updates.isEmpty()) {
+                delegate.updateSensors(new ArrayList<>(updates.values()));
+                updates.clear();
+            }
+            if (alarm != null) {
+                delegate.setAlarmStatus(alarm);
+                alarm = null;
+            }
+            if (arming != null) {
+                delegate.setArmingStatus(arming);
+                arming = null;
+            }
+        } catch (RuntimeException e) {
+            requeue(updates, removals, alarm, arming);
+            throw e;
+        }
+    }
+
+    /**
+     * Puts back whatever part of a failed batch has not been superseded by newer changes.
+     */
+    private synchronized void requeue(Map<UUID, Sensor> updates, Map<UUID, Sensor> removals,
+                                      AlarmStatus alarm, ArmingStatus arming) {
+        List<UUID> superseded = new ArrayList<>(pendingUpdates.keySet());
+        superseded.addAll(pendingRemovals.keySet());
+        superseded.forEach(id -> {
+            updates.remove(id);
+            removals.remove(id);
+        });
+        pendingUpdates.putAll(updates);
+        pendingRemovals.putAll(removals);
+        if (pendingAlarmStatus == null) {
+            pendingAlarmStatus = alarm;
+        }
+        if (pendingArmingStatus == null) {
+            pendingArmingStatus = arming;
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package com.udacity.catpoint.secservice.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Repository that keeps sensor state in a memory-mapped file of fixed-width records. Opening the
+ * repository only maps the file; the in-heap index from sensor id to record slot is built on first
+ * use by walking the records, and no JSON is ever parsed.
+ * <p>
+ * Toggling a sensor is a single byte write into its slot. Sensor names are variable length, so they
+ * are appended to a separate names file and each record keeps the offset and length of its name.
+ * The name is forced to disk before the record is marked in use; a record whose name is missing
+ * anyway, e.g. because the names file was lost, is freed when the store is loaded. Names of removed
+ * sensors are not reclaimed.
+ * <p>
+ * Writers are synchronized. Besides the slot index, the heap holds the sensors only once, as a
+ * {@link SensorSnapshot} that each write replaces; readers take the latest snapshot without locking
+ * and can iterate it while other threads write.
+ */
+public class MemoryMappedSecurityRepositoryImpl implements SecurityRepository, Closeable {
+    static final String SENSORS_FILE = "sensors.dat";
+    static final String NAMES_FILE = "names.dat";
+    private static final int MAGIC = 0x43505431; // "CPT1"
+    private static final int INITIAL_SLOTS = 64;
+
+    //header layout
+    private static final int HEADER_SIZE = 32;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int SLOT_COUNT_OFFSET = 4;
+    private static final int ALARM_OFFSET = 8;
+    private static final int ARMING_OFFSET = 9;
+
+    //record layout
+    private static final int RECORD_SIZE = 32;
+    private static final int FLAGS_OFFSET = 0;
+    private static final int TYPE_OFFSET = 1;
+    private static final int NAME_LENGTH_OFFSET = 2;
+    private static final int NAME_OFFSET = 4;
+    private static final int ID_MSB_OFFSET = 8;
+    private static final int ID_LSB_OFFSET = 16;
+
+    private static final byte IN_USE = 1;
+    private static final byte ACTIVE = 2;
+
+    private final FileChannel sensorsChannel;
+    private final FileChannel namesChannel;
+    //replaced when the store grows; the statuses are read from it without locking
+    private volatile MappedByteBuffer records;
+
+    //built lazily so that opening the store does not depend on how many sensors it holds
+    private Map<UUID, Integer> slots;
+    private volatile SensorSnapshot sensors;
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+
+    public MemoryMappedSecurityRepositoryImpl(Path directory) {
+        try {
+            Files.createDirectories(directory);
+            sensorsChannel = FileChannel.open(directory.resolve(SENSORS_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            namesChannel = FileChannel.open(directory.resolve(NAMES_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+            boolean fresh = sensorsChannel.size() < HEADER_SIZE;
+            records = map(Math.max(sensorsChannel.size(), HEADER_SIZE + (long) INITIAL_SLOTS * RECORD_SIZE));
+            if (fresh) {
+                records.putInt(MAGIC_OFFSET, MAGIC);
+                records.putInt(SLOT_COUNT_OFFSET, 0);
+                records.put(ALARM_OFFSET, (byte) AlarmStatus.NO_ALARM.ordinal());
+                records.put(ARMING_OFFSET, (byte) ArmingStatus.DISARMED.ordinal());
+            } else if (records.getInt(MAGIC_OFFSET) != MAGIC) {
+                throw new IllegalStateException("Not a sensor store: " + directory.resolve(SENSORS_FILE));
+            }
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to open sensor store in " + directory, ioe);
+        }
+    }
+
+    @Override
+    public synchronized void addSensor(Sensor sensor) {
+        addSensors(List.of(sensor));
+    }
+
+    @Override
+    public synchronized void removeSensor(Sensor sensor) {
+        removeSensors(List.of(sensor));
+    }
+
+    @Override
+    public synchronized void updateSensor(Sensor sensor) {
+        updateSensors(List.of(sensor));
+    }
+
+    @Override
+    public synchronized void addSensors(Collection<Sensor> sensors) {
+        updateSensors(sensors);
+    }
+
+    @Override
+    public synchronized void removeSensors(Collection<Sensor> sensors) {
+        load();
+        List<Sensor> removed = new ArrayList<>(sensors.size());
+        for (Sensor sensor : sensors) {
+            Integer slot = slots.remove(sensor.getSensorId());
+            if (slot != null) {
+                records.put(recordOffset(slot) + FLAGS_OFFSET, (byte) 0);
+                freeSlots.push(slot);
+                removed.add(sensor);
+            }
+        }
+        if (!removed.isEmpty()) {
+            this.sensors = this.sensors.withoutAll(removed);
+        }
+    }
+
+    /**
+     * Writes each sensor's record, adding the ones not stored yet, and then publishes a single new
+     * snapshot for the whole batch.
+     */
+    @Override
+    public synchronized void updateSensors(Collection<Sensor> sensors) {
+        load();
+        List<Sensor> written = new ArrayList<>(sensors.size());
+        try {
+            for (Sensor sensor : sensors) {
+                Integer slot = slots.get(sensor.getSensorId());
+                if (slot == null) {
+                    store(sensor);
+                } else {
+                    writeFlags(slot, sensor);
+                }
+                written.add(sensor);
+            }
+        } finally {
+            //a failed sensor leaves the ones before it written, so publish those even then
+            this.sensors = this.sensors.withAll(written);
+        }
+    }
+
+    /**
+     * The latest snapshot of the sensors. It never changes, however the repository changes later.
+     */
+    @Override
+    public SensorSnapshot getSensors() {
+        load();
+        return sensors;
+    }
+
+    @Override
+    public Sensor findSensor(Sensor sensor) {
+        load();
+        SensorState state = sensors.get(sensor.getSensorId());
+        return state == null ? null : state.toSensor();
+    }
+
+    @Override
+    public AlarmStatus getAlarmStatus() {
+        return AlarmStatus.values()[records.get(ALARM_OFFSET)];
+    }
+
+    @Override
+    public synchronized void setAlarmStatus(AlarmStatus alarmStatus) {
+        records.put(ALARM_OFFSET, (byte) alarmStatus.ordinal());
+    }
+
+    @Override
+    public ArmingStatus getArmingStatus() {
+        return ArmingStatus.values()[records.get(ARMING_OFFSET)];
+    }
+
+    @Override
+    public synchronized void setArmingStatus(ArmingStatus armingStatus) {
+        records.put(ARMING_OFFSET, (byte) armingStatus.ordinal());
+    }
+
+    /**
+     * Forces outstanding changes to the mapped file and the names file down to the storage device.
+     */
+    public synchronized void force() {
+        records.force();
+        forceNames();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        force();
+        sensorsChannel.close();
+        namesChannel.close();
+    }
+
+    /**
+     * Builds the slot index and the first snapshot, unless that was done already. Only the first
+     * call locks.
+     */
+    private void load() {
+        if (sensors == null) {
+            synchronized (this) {
+                if (sensors == null) {
+                    loadRecords();
+                }
+            }
+        }
+    }
+
+    private void loadRecords() {
+        slots = new HashMap<>();
+        List<Sensor> loaded = new ArrayList<>();
+        //one mapping of the whole names file rather than a read per record
+        ByteBuffer names = mapNames();
+        int slotCount = records.getInt(SLOT_COUNT_OFFSET);
+        for (int slot = 0; slot < slotCount; slot++) {
+            int offset = recordOffset(slot);
+            byte flags = records.get(offset + FLAGS_OFFSET);
+            int nameOffset = records.getInt(offset + NAME_OFFSET);
+            int nameLength = records.getShort(offset + NAME_LENGTH_OFFSET);
+            if ((flags & IN_USE) != 0 && (nameOffset < 0 || nameLength < 0 || nameOffset > names.limit() - nameLength)) {
+                //the name never made it to disk; the sensor cannot be restored, so free its slot
+                records.put(offset + FLAGS_OFFSET, (byte) 0);
+                flags = 0;
+            }
+            if ((flags & IN_USE) == 0) {
+                freeSlots.push(slot);
+                continue;
+            }
+            UUID id = new UUID(records.getLong(offset + ID_MSB_OFFSET), records.getLong(offset + ID_LSB_OFFSET));
+            byte[] name = new byte[nameLength];
+            names.get(nameOffset, name);
+            SensorType type = SensorType.values()[records.get(offset + TYPE_OFFSET)];
+            slots.put(id, slot);
+            loaded.add(new Sensor(id, new String(name, StandardCharsets.UTF_8), type, (flags & ACTIVE) != 0));
+        }
+        sensors = SensorSnapshot.empty().withAll(loaded);
+    }
+
+    /**
+     * Writes the record of a sensor that has no slot yet.
+     */
+    private void store(Sensor sensor) {
+        byte[] name = sensor.getName().getBytes(StandardCharsets.UTF_8);
+        if (name.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Sensor name is too long to be stored");
+        }
+        int slot = freeSlots.isEmpty() ? nextSlot() : freeSlots.pop();
+        int offset = recordOffset(slot);
+        records.put(offset + TYPE_OFFSET, (byte) sensor.getSensorType().ordinal());
+        records.putShort(offset + NAME_LENGTH_OFFSET, (short) name.length);
+        records.putInt(offset + NAME_OFFSET, appendName(name));
+        records.putLong(offset + ID_MSB_OFFSET, sensor.getSensorId().getMostSignificantBits());
+        records.putLong(offset + ID_LSB_OFFSET, sensor.getSensorId().getLeastSignificantBits());
+        //flags last, so a slot only counts as in use once the rest of the record and its name are in place
+        forceNames();
+        writeFlags(slot, sensor);
+        slots.put(sensor.getSensorId(), slot);
+    }
+
+    private void writeFlags(int slot, Sensor sensor) {
+        records.put(recordOffset(slot) + FLAGS_OFFSET, (byte) (IN_USE | (sensor.getActive() ? ACTIVE : 0)));
+    }
+
+    private int nextSlot() {
+        int slot = records.getInt(SLOT_COUNT_OFFSET);
+        long required = recordOffset(slot + 1);
+        if (required > records.capacity()) {
+            try {
+                records.force();
+                records = map(Math.max(required, (long) records.capacity() * 2));
+            } catch (IOException ioe) {
+                throw new UncheckedIOException("Unable to grow sensor store", ioe);
+            }
+        }
+        records.putInt(SLOT_COUNT_OFFSET, slot + 1);
+        return slot;
+    }
+
+    private MappedByteBuffer map(long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Sensor store is full");
+        }
+        return sensorsChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    private int appendName(byte[] name) {
+        try {
+            long offset = namesChannel.size();
+            ByteBuffer buffer = ByteBuffer.wrap(name);
+            while (buffer.hasRemaining()) {
+                namesChannel.write(buffer, offset + buffer.position());
+            }
+            return (int) offset;
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to store sensor name", ioe);
+        }
+    }
+
+    private ByteBuffer mapNames() {
+        try {
+            return namesChannel.map(FileChannel.MapMode.READ_ONLY, 0, namesChannel.size());
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to read sensor names", ioe);
+        }
+    }
+
+    private void forceNames() {
+        try {
+            namesChannel.force(false);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to flush sensor names", ioe);
+        }
+    }
+
+    private static int recordOffset(int slot) {
+        return HEADER_SIZE + slot * RECORD_SIZE;
+    }
+}
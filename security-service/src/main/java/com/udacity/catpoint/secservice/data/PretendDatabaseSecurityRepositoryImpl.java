@@ -4,29 +4,43 @@ import com.google.common.reflect.TypeToken;
 import com.google.gson.Gson;
 
 import java.lang.reflect.Type;
+import java.util.Collection;
 import java.util.Set;
-import java.util.TreeSet;
 import java.util.prefs.Preferences;
 
 /**
  * Fake repository implementation for demo purposes. Stores state information in local
  * memory and writes it to user preferences between app loads. This implementation is
  * intentionally a little hard to use in unit tests, so watch out!
+ * <p>
+ * The sensors are kept in a {@link SensorSnapshot}. Writers are synchronized and publish a new
+ * snapshot when they are done, while readers just take the latest one: reads never lock, never
+ * copy and never see a half-applied change, so the repository can back a concurrent
+ * SecurityService.
  */
 public class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository {
     //preference keys
     private static final String SENSORS = "SENSORS";
     private static final String ALARM_STATUS = "ALARM_STATUS";
     private static final String ARMING_STATUS = "ARMING_STATUS";
+    private static final Type SENSOR_SET_TYPE = new TypeToken<Set<Sensor>>() {
+    }.getType();
     private final Preferences prefs;
     private final Gson gson;
-    private final Set<Sensor> sensors;
-    private AlarmStatus alarmStatus;
-    private ArmingStatus armingStatus;
+    private volatile SensorSnapshot sensors;
+    private volatile AlarmStatus alarmStatus;
+    private volatile ArmingStatus armingStatus;
 
     public PretendDatabaseSecurityRepositoryImpl() {
+        this(Preferences.userNodeForPackage(PretendDatabaseSecurityRepositoryImpl.class));
+    }
+
+    /**
+     * @param prefs Preferences node to keep the state in, e.g. a throwaway node for tests and benchmarks
+     */
+    public PretendDatabaseSecurityRepositoryImpl(Preferences prefs) {
         gson = new Gson(); //used to serialize objects into JSON
-        prefs = Preferences.userNodeForPackage(PretendDatabaseSecurityRepositoryImpl.class);
+        this.prefs = prefs;
 
         //load system state from prefs, or else default
         alarmStatus = AlarmStatus.valueOf(prefs.get(ALARM_STATUS, AlarmStatus.NO_ALARM.toString()));
@@ -36,45 +50,69 @@ public class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository
         // this is likely an impractical solution for a real system
         String sensorString = prefs.get(SENSORS, null);
         if (sensorString == null) {
-            sensors = new TreeSet<>();
+            sensors = SensorSnapshot.empty();
         } else {
-            Type type = new TypeToken<Set<Sensor>>() {
-            }.getType();
-            sensors = gson.fromJson(sensorString, type);
+            Set<Sensor> stored = gson.fromJson(sensorString, SENSOR_SET_TYPE);
+            sensors = SensorSnapshot.empty().withAll(stored);
         }
     }
 
     @Override
-    public void addSensor(Sensor sensor) {
-        sensors.add(sensor);
-        prefs.put(SENSORS, gson.toJson(sensors));
+    public synchronized void addSensor(Sensor sensor) {
+        publish(sensors.with(sensor));
+    }
+
+    @Override
+    public synchronized void removeSensor(Sensor sensor) {
+        publish(sensors.without(sensor));
+    }
+
+    @Override
+    public synchronized void addSensors(Collection<Sensor> sensors) {
+        publish(this.sensors.withAll(sensors));
     }
 
     @Override
-    public void removeSensor(Sensor sensor) {
-        sensors.remove(sensor);
-        prefs.put(SENSORS, gson.toJson(sensors));
+    public synchronized void removeSensors(Collection<Sensor> sensors) {
+        publish(this.sensors.withoutAll(sensors));
     }
 
     @Override
-    public void updateSensor(Sensor sensor) {
-        sensors.remove(sensor);
-        sensors.add(sensor);
-        prefs.put(SENSORS, gson.toJson(sensors));
+    public synchronized void updateSensor(Sensor sensor) {
+        publish(sensors.with(sensor));
     }
 
     @Override
-    public Set<Sensor> getSensors() {
+    public synchronized void updateSensors(Collection<Sensor> sensors) {
+        publish(this.sensors.withAll(sensors));
+    }
+
+    /**
+     * The latest snapshot of the sensors. It never changes, however the repository changes later.
+     */
+    @Override
+    public SensorSnapshot getSensors() {
         return sensors;
     }
 
+    @Override
+    public Sensor findSensor(Sensor sensor) {
+        SensorState state = sensors.get(sensor.getSensorId());
+        return state == null ? null : state.toSensor();
+    }
+
+    private void publish(SensorSnapshot snapshot) {
+        prefs.put(SENSORS, gson.toJson(snapshot, SENSOR_SET_TYPE));
+        sensors = snapshot;
+    }
+
     @Override
     public AlarmStatus getAlarmStatus() {
         return alarmStatus;
     }
 
     @Override
-    public void setAlarmStatus(AlarmStatus alarmStatus) {
+    public synchronized void setAlarmStatus(AlarmStatus alarmStatus) {
         this.alarmStatus = alarmStatus;
         prefs.put(ALARM_STATUS, this.alarmStatus.toString());
     }
@@ -85,7 +123,7 @@ public class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository
     }
 
     @Override
-    public void setArmingStatus(ArmingStatus armingStatus) {
+    public synchronized void setArmingStatus(ArmingStatus armingStatus) {
         this.armingStatus = armingStatus;
         prefs.put(ARMING_STATUS, this.armingStatus.toString());
     }
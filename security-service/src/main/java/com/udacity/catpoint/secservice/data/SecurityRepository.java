@@ -1,5 +1,6 @@
 package com.udacity.catpoint.secservice.data;
 
+import java.util.Collection;
 import java.util.Set;
 
 /**
@@ -10,10 +11,52 @@ public interface SecurityRepository {
 
     void removeSensor(Sensor sensor);
 
+    /**
+     * Adds several sensors at once. Implementations that persist the whole sensor collection
+     * should override this so the batch costs a single write.
+     *
+     * @param sensors - Sensors to add
+     */
+    default void addSensors(Collection<Sensor> sensors) {
+        sensors.forEach(this::addSensor);
+    }
+
+    /**
+     * Removes several sensors at once. Implementations that persist the whole sensor collection
+     * should override this so the batch costs a single write.
+     *
+     * @param sensors - Sensors to remove
+     */
+    default void removeSensors(Collection<Sensor> sensors) {
+        sensors.forEach(this::removeSensor);
+    }
+
     void updateSensor(Sensor sensor);
 
+    /**
+     * Updates several sensors at once. Implementations that persist the whole sensor collection
+     * should override this so the batch costs a single write.
+     *
+     * @param sensors - Sensors whose state changed
+     */
+    default void updateSensors(Collection<Sensor> sensors) {
+        sensors.forEach(this::updateSensor);
+    }
+
+    /**
+     * The sensors, in no particular order. Callers may iterate the result while other threads
+     * change the repository, so implementations hand out a copy, a weakly consistent view or an
+     * immutable {@link SensorSnapshot}.
+     */
     Set<Sensor> getSensors();
 
+    /**
+     * The stored sensor with the same id as the given one, or null if there is none. The given
+     * sensor may be an outdated copy; the result has the sensor's current state. Implementations
+     * look the id up directly, as this is called for every sensor change.
+     */
+    Sensor findSensor(Sensor sensor);
+
     AlarmStatus getAlarmStatus();
 
     void setAlarmStatus(AlarmStatus alarmStatus);
@@ -1,20 +1,37 @@
 package com.udacity.catpoint.secservice.data;
 
-
-import com.google.common.collect.ComparisonChain;
-
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Objects;
 import java.util.UUID;
 
 /**
  * Sensor POJO. Needs to know how to sort itself for display purposes.
+ * <p>
+ * A sensor read from a {@link SensorTable} is a view of its row there: its active flag is read
+ * from the table, so all views of the same sensor agree. Setting the flag detaches the view, which
+ * from then on is a sensor of its own; store it through the repository to change the table.
  */
 public class Sensor implements Comparable<Sensor> {
+    //sensor types ranked by their display name, so comparing types needs no strings
+    private static final int[] TYPE_RANK = new int[SensorType.values().length];
+
+    static {
+        SensorType[] byName = SensorType.values();
+        Arrays.sort(byName, Comparator.comparing(SensorType::toString));
+        for (int rank = 0; rank < byName.length; rank++) {
+            TYPE_RANK[byName[rank].ordinal()] = rank;
+        }
+    }
+
     private final UUID sensorId;
     private final String name;
     private boolean active;
     private final SensorType sensorType;
 
+    // row this sensor is a view of, if any; never serialized
+    transient SensorTable.Binding binding;
+
     // Gson : Unable to invoke no-args constructor for class
     public Sensor() {
         this.name = UUID.randomUUID().toString();
@@ -30,11 +47,20 @@ public class Sensor implements Comparable<Sensor> {
         this.active = Boolean.FALSE;
     }
 
+    /**
+     * Rebuilds a sensor that was previously persisted, keeping its original identity.
+     */
+    public Sensor(UUID sensorId, String name, SensorType sensorType, boolean active) {
+        this.name = name;
+        this.sensorType = sensorType;
+        this.sensorId = sensorId;
+        this.active = active;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        Sensor sensor = (Sensor) o;
+        if (!(o instanceof Sensor sensor)) return false;
         return sensorId.equals(sensor.sensorId);
     }
 
@@ -43,28 +69,60 @@ public class Sensor implements Comparable<Sensor> {
         return Objects.hash(sensorId);
     }
 
+    public UUID getSensorId() {
+        return sensorId;
+    }
+
     public String getName() {
         return name;
     }
 
     public Boolean getActive() {
-        return active;
+        SensorTable.Binding b = binding;
+        return b == null ? active : b.active();
     }
 
     public void setActive(Boolean active) {
         this.active = active;
+        binding = null;
     }
 
     public SensorType getSensorType() {
         return sensorType;
     }
 
+    /**
+     * A new, unbound copy of this sensor with the given active flag.
+     */
+    public Sensor withActive(boolean active) {
+        return new Sensor(sensorId, name, sensorType, active);
+    }
+
+    /**
+     * Orders sensors by name, then type name, then id.
+     */
     @Override
     public int compareTo(Sensor o) {
-        return ComparisonChain.start()
-                .compare(this.name, o.name)
-                .compare(this.sensorType.toString(), o.sensorType.toString())
-                .compare(this.sensorId, o.sensorId)
-                .result();
+        return compare(name, sensorType, sensorId.getMostSignificantBits(), sensorId.getLeastSignificantBits(),
+                o.name, o.sensorType, o.sensorId.getMostSignificantBits(), o.sensorId.getLeastSignificantBits());
+    }
+
+    /**
+     * The natural order on the parts of two sensors, for callers that do not hold Sensor objects.
+     */
+    static int compare(String name, SensorType type, long idHigh, long idLow,
+                       String otherName, SensorType otherType, long otherIdHigh, long otherIdLow) {
+        //interned names are often the same instance, which is cheaper than comparing characters
+        int result = name == otherName ? 0 : name.compareTo(otherName);
+        if (result == 0) {
+            result = Integer.compare(TYPE_RANK[type.ordinal()], TYPE_RANK[otherType.ordinal()]);
+        }
+        if (result == 0) {
+            result = Long.compare(idHigh, otherIdHigh);
+        }
+        if (result == 0) {
+            result = Long.compare(idLow, otherIdLow);
+        }
+        return result;
     }
 }
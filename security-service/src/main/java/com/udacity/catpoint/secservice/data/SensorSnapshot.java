@@ -0,0 +1,269 @@
+package com.udacity.catpoint.secservice.data;
+
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+
+/**
+ * Immutable set of sensors keyed by id, stamped with a version. Adding or removing sensors
+ * returns a new snapshot that shares all untouched parts of this one, so a change costs a few new
+ * tree nodes rather than a copy of the set, and a snapshot can be handed to any number of readers
+ * without locking or copying.
+ * <p>
+ * The snapshot keeps each sensor as a {@link SensorState}. {@link #states()} and {@link #get(UUID)}
+ * hand those out as they are; iterating the snapshot as a set of sensors gives each caller new
+ * sensors of its own, so changing one never changes the snapshot. The sensors come in id order,
+ * not their natural order.
+ */
+public final class SensorSnapshot extends AbstractSet<Sensor> {
+    private static final SensorSnapshot EMPTY = new SensorSnapshot(null, 0);
+
+    private final Node root;
+    private final long version;
+
+    private SensorSnapshot(Node root, long version) {
+        this.root = root;
+        this.version = version;
+    }
+
+    public static SensorSnapshot empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Number of changes that led to this snapshot. Every snapshot derived from this one has a
+     * higher version.
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * A snapshot that also holds the given sensor, replacing the one with the same id.
+     */
+    public SensorSnapshot with(Sensor sensor) {
+        return withAll(List.of(sensor));
+    }
+
+    public SensorSnapshot withAll(Collection<Sensor> sensors) {
+        Node updated = root;
+        for (Sensor sensor : sensors) {
+            updated = insert(updated, SensorState.of(sensor));
+        }
+        return new SensorSnapshot(updated, version + 1);
+    }
+
+    public SensorSnapshot without(Sensor sensor) {
+        return withoutAll(List.of(sensor));
+    }
+
+    public SensorSnapshot withoutAll(Collection<Sensor> sensors) {
+        Node updated = root;
+        for (Sensor sensor : sensors) {
+            updated = remove(updated, sensor.getSensorId());
+        }
+        return new SensorSnapshot(updated, version + 1);
+    }
+
+    @Override
+    public int size() {
+        return size(root);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Sensor sensor && get(sensor.getSensorId()) != null;
+    }
+
+    /**
+     * The state of the sensor with the given id in this snapshot, or null.
+     */
+    public SensorState get(UUID sensorId) {
+        Node node = root;
+        while (node != null) {
+            int order = sensorId.compareTo(node.state.sensorId());
+            if (order == 0) {
+                return node.state;
+            }
+            node = order < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    /**
+     * The states of the sensors in this snapshot, in id order. Iterating them creates no sensors.
+     */
+    public Collection<SensorState> states() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<SensorState> iterator() {
+                return new NodeIterator<>(root) {
+                    @Override
+                    SensorState element(Node node) {
+                        return node.state;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return SensorSnapshot.this.size();
+            }
+        };
+    }
+
+    @Override
+    public Iterator<Sensor> iterator() {
+        return new NodeIterator<>(root) {
+            @Override
+            Sensor element(Node node) {
+                return node.state.toSensor();
+            }
+        };
+    }
+
+    @Override
+    public Spliterator<Sensor> spliterator() {
+        return Spliterators.spliterator(this, Spliterator.DISTINCT | Spliterator.ORDERED
+                | Spliterator.IMMUTABLE | Spliterator.NONNULL);
+    }
+
+    /**
+     * In-order walk of a tree that keeps only the path to the next node.
+     */
+    private abstract static class NodeIterator<E> implements Iterator<E> {
+        private final Deque<Node> path = new ArrayDeque<>();
+
+        NodeIterator(Node root) {
+            descendLeft(root);
+        }
+
+        abstract E element(Node node);
+
+        private void descendLeft(Node node) {
+            for (; node != null; node = node.left) {
+                path.push(node);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !path.isEmpty();
+        }
+
+        @Override
+        public E next() {
+            if (path.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            Node node = path.pop();
+            descendLeft(node.right);
+            return element(node);
+        }
+    }
+
+    /**
+     * Node of an AVL tree. Nodes are never changed once built; updates rebuild the path from the
+     * root to the changed node and share everything else.
+     */
+    private static final class Node {
+        final SensorState state;
+        final Node left;
+        final Node right;
+        final int height;
+        final int size;
+
+        Node(SensorState state, Node left, Node right) {
+            this.state = state;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.size = size(left) + size(right) + 1;
+        }
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static Node insert(Node node, SensorState state) {
+        if (node == null) {
+            return new Node(state, null, null);
+        }
+        int order = state.sensorId().compareTo(node.state.sensorId());
+        if (order < 0) {
+            return balance(node.state, insert(node.left, state), node.right);
+        } else if (order > 0) {
+            return balance(node.state, node.left, insert(node.right, state));
+        }
+        return new Node(state, node.left, node.right);
+    }
+
+    private static Node remove(Node node, UUID sensorId) {
+        if (node == null) {
+            return null;
+        }
+        int order = sensorId.compareTo(node.state.sensorId());
+        if (order < 0) {
+            Node left = remove(node.left, sensorId);
+            return left == node.left ? node : balance(node.state, left, node.right);
+        } else if (order > 0) {
+            Node right = remove(node.right, sensorId);
+            return right == node.right ? node : balance(node.state, node.left, right);
+        }
+        if (node.left == null) {
+            return node.right;
+        }
+        if (node.right == null) {
+            return node.left;
+        }
+        Node successor = node.right;
+        while (successor.left != null) {
+            successor = successor.left;
+        }
+        return balance(successor.state, node.left, removeFirst(node.right));
+    }
+
+    private static Node removeFirst(Node node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        return balance(node.state, removeFirst(node.left), node.right);
+    }
+
+    /**
+     * Builds a node from two subtrees whose heights differ by at most two, rotating so that they
+     * differ by at most one.
+     */
+    private static Node balance(SensorState state, Node left, Node right) {
+        if (height(left) > height(right) + 1) {
+            if (height(left.left) >= height(left.right)) {
+                return new Node(left.state, left.left, new Node(state, left.right, right));
+            }
+            return new Node(left.right.state,
+                    new Node(left.state, left.left, left.right.left),
+                    new Node(state, left.right.right, right));
+        }
+        if (height(right) > height(left) + 1) {
+            if (height(right.right) >= height(right.left)) {
+                return new Node(right.state, new Node(state, left, right.left), right.right);
+            }
+            return new Node(right.left.state,
+                    new Node(state, left, right.left.left),
+                    new Node(right.state, right.left.right, right.right));
+        }
+        return new Node(state, left, right);
+    }
+}
@@ -0,0 +1,20 @@
+package com.udacity.catpoint.secservice.data;
+
+import java.util.UUID;
+
+/**
+ * Immutable state of a sensor at one point in time, as held by a {@link SensorSnapshot}. Unlike
+ * a {@link Sensor} it can be shared with any number of readers as it is.
+ */
+public record SensorState(UUID sensorId, String name, SensorType sensorType, boolean active) {
+    public static SensorState of(Sensor sensor) {
+        return new SensorState(sensor.getSensorId(), sensor.getName(), sensor.getSensorType(), sensor.getActive());
+    }
+
+    /**
+     * A new sensor with this state. It is the caller's own: changing it changes nothing else.
+     */
+    public Sensor toSensor() {
+        return new Sensor(sensorId, name, sensorType, active);
+    }
+}
@@ -0,0 +1,413 @@
+package com.udacity.catpoint.secservice.data;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+
+/**
+ * Compact in-memory store of sensors, laid out as parallel arrays: the two halves of each id, the
+ * sensor type as a byte, the name (interned, so repeated names are shared) and one bit per sensor
+ * for the active flag. A sensor costs a few dozen bytes here instead of a {@link Sensor}, a
+ * {@link UUID} and the entries of the sets and maps that used to hold them.
+ * <p>
+ * {@link Sensor} objects are only created as views when the table is read. A view handed out by
+ * {@link #get(UUID)} or {@link #asSet()} reads its active flag from its row, so every view of a
+ * sensor agrees on it, and once the sensor is removed its views keep the flag it had last. Reading
+ * a view's flag takes no lock, so views can be polled from any number of threads without
+ * contending with the writers. The table only ever changes through {@link #put(Sensor)} and
+ * {@link #remove(UUID)}: setting a view's flag detaches the view and changes nothing else, and a
+ * sensor passed to {@link #put(Sensor)} stays the caller's own.
+ * <p>
+ * Rows keep their position until removed, and freed rows are reused. The display order used by
+ * {@link #asSet()} is computed with a comparator over the arrays and cached until sensors are
+ * added or removed. All methods are thread-safe.
+ */
+public final class SensorTable {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final SensorType[] SENSOR_TYPES = SensorType.values();
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private long[] idHigh = new long[INITIAL_CAPACITY];
+    private long[] idLow = new long[INITIAL_CAPACITY];
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    //generations and active flags are read without the lock by bound views, see activeIfBound. Both
+    //arrays are replaced rather than changed in place when the table grows, and written with release
+    //semantics under the lock
+    //bumped whenever a row is freed, so views of the old sensor notice
+    private volatile int[] generations = new int[INITIAL_CAPACITY];
+    private volatile long[] active = new long[words(INITIAL_CAPACITY)];
+    private long[] used = new long[words(INITIAL_CAPACITY)];
+    //shared by all views of a row until the row is freed
+    private Binding[] bindings = new Binding[INITIAL_CAPACITY];
+    private int rows;
+    private int size;
+
+    private int[] freeRows = new int[0];
+    private int freeCount;
+
+    //open addressing from id to row + 1, 0 meaning empty
+    private int[] index = new int[INITIAL_CAPACITY * 2];
+
+    private int[] order;
+
+    private final SensorSet set = new SensorSet();
+
+    /**
+     * Adds a sensor or, if one with the same id is already stored, replaces its state.
+     */
+    public synchronized void put(Sensor sensor) {
+        long high = sensor.getSensorId().getMostSignificantBits();
+        long low = sensor.getSensorId().getLeastSignificantBits();
+        int row = find(high, low);
+        if (row < 0) {
+            row = allocate();
+            idHigh[row] = high;
+            idLow[row] = low;
+            types[row] = (byte) sensor.getSensorType().ordinal();
+            names[row] = sensor.getName().intern();
+            setBit(used, row, true);
+            insert(row);
+            size++;
+            order = null;
+        } else if (!names[row].equals(sensor.getName()) || types[row] != sensor.getSensorType().ordinal()) {
+            types[row] = (byte) sensor.getSensorType().ordinal();
+            names[row] = sensor.getName().intern();
+            order = null;
+        }
+        setBit(active, row, sensor.getActive());
+    }
+
+    /**
+     * @return false if no sensor with this id is stored
+     */
+    public synchronized boolean remove(UUID sensorId) {
+        int row = find(sensorId.getMostSignificantBits(), sensorId.getLeastSignificantBits());
+        if (row < 0) {
+            return false;
+        }
+        delete(row);
+        //retire the views first, so none of them reads the cleared flag as its own
+        Binding binding = bindings[row];
+        if (binding != null) {
+            binding.retired = getBit(active, row);
+        }
+        INTS.setRelease(generations, row, generations[row] + 1);
+        bindings[row] = null;
+        setBit(used, row, false);
+        setBit(active, row, false);
+        names[row] = null;
+        if (freeCount == freeRows.length) {
+            freeRows = Arrays.copyOf(freeRows, Math.max(INITIAL_CAPACITY, freeCount * 2));
+        }
+        freeRows[freeCount++] = row;
+        size--;
+        order = null;
+        return true;
+    }
+
+    /**
+     * A view of the sensor with this id, or null if there is none.
+     */
+    public synchronized Sensor get(UUID sensorId) {
+        int row = find(sensorId.getMostSignificantBits(), sensorId.getLeastSignificantBits());
+        return row < 0 ? null : view(row);
+    }
+
+    public synchronized boolean contains(UUID sensorId) {
+        return find(sensorId.getMostSignificantBits(), sensorId.getLeastSignificantBits()) >= 0;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Number of active sensors, counted a word of 64 sensors at a time.
+     */
+    public synchronized int activeCount() {
+        int count = 0;
+        for (int i = 0; i < words(rows); i++) {
+            count += Long.bitCount(active[i]);
+        }
+        return count;
+    }
+
+    /**
+     * Live, read-only view of the table as sensors in their natural order. Iterating it creates a
+     * view per sensor; it never copies the table. Iteration is weakly consistent: sensors removed
+     * while iterating are skipped, but it never throws {@link java.util.ConcurrentModificationException}.
+     */
+    public Set<Sensor> asSet() {
+        return set;
+    }
+
+    private final class SensorSet extends AbstractSet<Sensor> {
+        @Override
+        public Iterator<Sensor> iterator() {
+            int[] sorted;
+            synchronized (SensorTable.this) {
+                sorted = sortedRows();
+            }
+            return new Iterator<>() {
+                private int next;
+                private Sensor ahead;
+
+                @Override
+                public boolean hasNext() {
+                    while (ahead == null && next < sorted.length) {
+                        ahead = view(sorted[next++]);
+                    }
+                    return ahead != null;
+                }
+
+                @Override
+                public Sensor next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    Sensor sensor = ahead;
+                    ahead = null;
+                    return sensor;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return SensorTable.this.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Sensor sensor && SensorTable.this.contains(sensor.getSensorId());
+        }
+
+        /**
+         * Reports the natural order, so sorting a stream of this set costs nothing.
+         */
+        @Override
+        public Spliterator<Sensor> spliterator() {
+            //not SIZED: sensors removed while iterating are skipped, so the size is only an estimate
+            return Spliterators.spliteratorUnknownSize(iterator(),
+                    Spliterator.DISTINCT | Spliterator.SORTED | Spliterator.ORDERED);
+        }
+    }
+
+    /**
+     * Active flag of a bound view's row, or null if the row has since been freed. Takes no lock:
+     * the generation is checked on both sides of reading the flag, so a flag that belongs to a
+     * sensor that took over the row in the meantime is never returned.
+     */
+    Boolean activeIfBound(int row, int generation) {
+        int[] rowGenerations = generations;
+        long[] flags = active;
+        if ((int) INTS.getAcquire(rowGenerations, row) != generation) {
+            return null;
+        }
+        boolean isActive = ((long) LONGS.getAcquire(flags, row >>> 6) & (1L << row)) != 0;
+        return (int) INTS.getAcquire(rowGenerations, row) == generation ? isActive : null;
+    }
+
+    /**
+     * A new view of the sensor in a row, or null if the row has been freed.
+     */
+    private synchronized Sensor view(int row) {
+        if (!getBit(used, row)) {
+            return null;
+        }
+        Sensor sensor = new Sensor(new UUID(idHigh[row], idLow[row]), names[row], SENSOR_TYPES[types[row]],
+                getBit(active, row));
+        sensor.binding = binding(row);
+        return sensor;
+    }
+
+    private Binding binding(int row) {
+        Binding binding = bindings[row];
+        if (binding == null) {
+            binding = new Binding(this, row, generations[row]);
+            bindings[row] = binding;
+        }
+        return binding;
+    }
+
+    /**
+     * Rows of all stored sensors in display order. The returned array is shared; callers must not
+     * modify it.
+     */
+    private int[] sortedRows() {
+        if (order == null) {
+            int[] sorted = new int[size];
+            int n = 0;
+            for (int row = 0; row < rows; row++) {
+                if (getBit(used, row)) {
+                    sorted[n++] = row;
+                }
+            }
+            mergeSort(sorted, new int[sorted.length], 0, sorted.length);
+            order = sorted;
+        }
+        return order;
+    }
+
+    private void mergeSort(int[] a, int[] buffer, int from, int to) {
+        if (to - from < 16) {
+            for (int i = from + 1; i < to; i++) {
+                int row = a[i];
+                int j = i - 1;
+                while (j >= from && compareRows(a[j], row) > 0) {
+                    a[j + 1] = a[j];
+                    j--;
+                }
+                a[j + 1] = row;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(a, buffer, from, mid);
+        mergeSort(a, buffer, mid, to);
+        if (compareRows(a[mid - 1], a[mid]) <= 0) {
+            return;
+        }
+        System.arraycopy(a, from, buffer, from, to - from);
+        int left = from;
+        int right = mid;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < mid && compareRows(buffer[left], buffer[right]) <= 0)) {
+                a[i] = buffer[left++];
+            } else {
+                a[i] = buffer[right++];
+            }
+        }
+    }
+
+    private int compareRows(int a, int b) {
+        return Sensor.compare(names[a], SENSOR_TYPES[types[a]], idHigh[a], idLow[a],
+                names[b], SENSOR_TYPES[types[b]], idHigh[b], idLow[b]);
+    }
+
+    private int allocate() {
+        if (freeCount > 0) {
+            return freeRows[--freeCount];
+        }
+        if (rows == idHigh.length) {
+            int capacity = rows * 2;
+            idHigh = Arrays.copyOf(idHigh, capacity);
+            idLow = Arrays.copyOf(idLow, capacity);
+            types = Arrays.copyOf(types, capacity);
+            names = Arrays.copyOf(names, capacity);
+            generations = Arrays.copyOf(generations, capacity);
+            active = Arrays.copyOf(active, words(capacity));
+            used = Arrays.copyOf(used, words(capacity));
+            bindings = Arrays.copyOf(bindings, capacity);
+        }
+        if (size + 1 > index.length / 2) {
+            rehash(index.length * 2);
+        }
+        return rows++;
+    }
+
+    private int find(long high, long low) {
+        int mask = index.length - 1;
+        for (int slot = hash(high, low) & mask; ; slot = (slot + 1) & mask) {
+            int entry = index[slot];
+            if (entry == 0) {
+                return -1;
+            }
+            int row = entry - 1;
+            if (idHigh[row] == high && idLow[row] == low) {
+                return row;
+            }
+        }
+    }
+
+    private void insert(int row) {
+        int mask = index.length - 1;
+        int slot = hash(idHigh[row], idLow[row]) & mask;
+        while (index[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = row + 1;
+    }
+
+    /**
+     * Removes a row from the index, shifting later entries of its probe run back so lookups never
+     * need tombstones.
+     */
+    private void delete(int row) {
+        int mask = index.length - 1;
+        int slot = hash(idHigh[row], idLow[row]) & mask;
+        while (index[slot] != row + 1) {
+            slot = (slot + 1) & mask;
+        }
+        int hole = slot;
+        for (int next = (hole + 1) & mask; index[next] != 0; next = (next + 1) & mask) {
+            int other = index[next] - 1;
+            int home = hash(idHigh[other], idLow[other]) & mask;
+            //move the entry back if its home slot does not lie between the hole and where it sits
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                index[hole] = index[next];
+                hole = next;
+            }
+        }
+        index[hole] = 0;
+    }
+
+    private void rehash(int capacity) {
+        index = new int[capacity];
+        for (int row = 0; row < rows; row++) {
+            if (getBit(used, row)) {
+                insert(row);
+            }
+        }
+    }
+
+    private static int hash(long high, long low) {
+        long h = (high ^ low) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int words(int bits) {
+        return (bits + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    private static boolean getBit(long[] bits, int i) {
+        return (bits[i >>> 6] & (1L << i)) != 0;
+    }
+
+    private static void setBit(long[] bits, int i, boolean value) {
+        long word = bits[i >>> 6];
+        LONGS.setRelease(bits, i >>> 6, value ? word | 1L << i : word & ~(1L << i));
+    }
+
+    /**
+     * The row a bound view reads its active flag from, and the generation of the sensor it was
+     * bound to. One object per row keeps the views themselves small.
+     */
+    static final class Binding {
+        final SensorTable table;
+        final int row;
+        final int generation;
+        //the row's flag when the sensor was removed; written before the generation is bumped
+        private volatile boolean retired;
+
+        private Binding(SensorTable table, int row, int generation) {
+            this.table = table;
+            this.row = row;
+            this.generation = generation;
+        }
+
+        boolean active() {
+            Boolean live = table.activeIfBound(row, generation);
+            return live != null ? live : retired;
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package com.udacity.catpoint.secservice.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Repository that persists every change as a small record appended to a binary log instead of
+ * rewriting the whole sensor collection. Each record is framed as {@code [length][crc32][payload]}
+ * so a torn write at the end of the log is detected and discarded on startup.
+ * <p>
+ * Once the log holds more than {@code compactionThreshold} records the current state is written to
+ * a snapshot file (via a temporary file and an atomic rename) and the log is truncated. Records are
+ * idempotent, so a crash between those two steps simply replays the old log on top of the new
+ * snapshot and ends up in the same state.
+ * <p>
+ * A change is forced to disk before it is applied in memory, so what is read from the repository
+ * has always been logged. If writing a change fails, the log is cut back to the end of the last
+ * complete change and memory is left as it was; no torn record is left in the middle of the log for
+ * later records to be lost behind. The batch methods write all of their records first and force
+ * them once, so a batch costs a single sync however many sensors it touches. Changes and compaction
+ * are synchronized, so the repository may be shared between threads.
+ */
+public class WriteAheadLogSecurityRepositoryImpl implements SecurityRepository, Closeable {
+    static final String LOG_FILE = "catpoint.log";
+    static final String SNAPSHOT_FILE = "catpoint.snapshot";
+    private static final int DEFAULT_COMPACTION_THRESHOLD = 10_000;
+
+    //record types
+    private static final byte SENSOR_UPSERT = 1;
+    private static final byte SENSOR_REMOVE = 2;
+    private static final byte ALARM_STATUS = 3;
+    private static final byte ARMING_STATUS = 4;
+
+    //length + crc32
+    private static final int HEADER_SIZE = Integer.BYTES * 2;
+    //type + uuid + sensor type + active flag + name length
+    private static final int MAX_FIXED_PAYLOAD = 1 + Long.BYTES * 2 + 1 + 1 + Short.BYTES;
+    private static final int MAX_NAME_BYTES = Short.MAX_VALUE;
+
+    private final Path logFile;
+    private final Path snapshotFile;
+    private final int compactionThreshold;
+    private final SensorTable sensors = new SensorTable();
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer buffer = ByteBuffer.allocate(256);
+    private FileChannel log;
+    //guarded by this, like the buffer, the checksum and the log
+    private int logRecords;
+    //end of the last complete change, which a failed change is rolled back to
+    private long committedLength;
+    private int committedRecords;
+    //set if a failed change couldn't be rolled back, after which nothing more may be appended
+    private boolean broken;
+    private volatile AlarmStatus alarmStatus = AlarmStatus.NO_ALARM;
+    private volatile ArmingStatus armingStatus = ArmingStatus.DISARMED;
+
+    public WriteAheadLogSecurityRepositoryImpl(Path directory) {
+        this(directory, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    public WriteAheadLogSecurityRepositoryImpl(Path directory, int compactionThreshold) {
+        if (compactionThreshold < 1) {
+            throw new IllegalArgumentException("compactionThreshold must be positive");
+        }
+        this.compactionThreshold = compactionThreshold;
+        this.logFile = directory.resolve(LOG_FILE);
+        this.snapshotFile = directory.resolve(SNAPSHOT_FILE);
+
+        try {
+            Files.createDirectories(directory);
+            if (Files.exists(snapshotFile)) {
+                replay(snapshotFile);
+                logRecords = 0;
+            }
+            log = FileChannel.open(logFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long validLength = replay(logFile);
+            //drop anything after the last intact record, e.g. a write torn by a crash
+            log.truncate(validLength);
+            log.position(validLength);
+            committedLength = validLength;
+            committedRecords = logRecords;
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to open security log in " + directory, ioe);
+        }
+    }
+
+    @Override
+    public synchronized void addSensor(Sensor sensor) {
+        write(() -> append(encodeSensor(sensor)), () -> putSensor(sensor));
+    }
+
+    @Override
+    public synchronized void addSensors(Collection<Sensor> batch) {
+        write(() -> batch.forEach(sensor -> append(encodeSensor(sensor))), () -> batch.forEach(this::putSensor));
+    }
+
+    @Override
+    public synchronized void removeSensor(Sensor sensor) {
+        write(() -> append(encodeRemove(sensor.getSensorId())), () -> deleteSensor(sensor.getSensorId()));
+    }
+
+    @Override
+    public synchronized void removeSensors(Collection<Sensor> batch) {
+        write(() -> batch.forEach(sensor -> append(encodeRemove(sensor.getSensorId()))),
+                () -> batch.forEach(sensor -> deleteSensor(sensor.getSensorId())));
+    }
+
+    @Override
+    public synchronized void updateSensor(Sensor sensor) {
+        write(() -> append(encodeSensor(sensor)), () -> putSensor(sensor));
+    }
+
+    @Override
+    public synchronized void updateSensors(Collection<Sensor> batch) {
+        write(() -> batch.forEach(sensor -> append(encodeSensor(sensor))), () -> batch.forEach(this::putSensor));
+    }
+
+    @Override
+    public Set<Sensor> getSensors() {
+        return sensors.asSet();
+    }
+
+    @Override
+    public Sensor findSensor(Sensor sensor) {
+        return sensors.get(sensor.getSensorId());
+    }
+
+    @Override
+    public AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    @Override
+    public synchronized void setAlarmStatus(AlarmStatus alarmStatus) {
+        write(() -> append(encodeStatus(ALARM_STATUS, alarmStatus.ordinal())), () -> this.alarmStatus = alarmStatus);
+    }
+
+    @Override
+    public ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    @Override
+    public synchronized void setArmingStatus(ArmingStatus armingStatus) {
+        write(() -> append(encodeStatus(ARMING_STATUS, armingStatus.ordinal())),
+                () -> this.armingStatus = armingStatus);
+    }
+
+    /**
+     * Writes the full current state to a new snapshot and empties the log.
+     */
+    public synchronized void compact() {
+        Path tmp = snapshotFile.resolveSibling(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(out, encodeStatus(ALARM_STATUS, alarmStatus.ordinal()));
+            writeFully(out, encodeStatus(ARMING_STATUS, armingStatus.ordinal()));
+            for (Sensor sensor : sensors.asSet()) {
+                writeFully(out, encodeSensor(sensor));
+            }
+            out.force(true);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to write security snapshot", ioe);
+        }
+
+        try {
+            Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.truncate(0);
+            log.position(0);
+            logRecords = 0;
+            committedLength = 0;
+            committedRecords = 0;
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to install security snapshot", ioe);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        log.close();
+    }
+
+    private void putSensor(Sensor sensor) {
+        sensors.put(sensor);
+    }
+
+    private void deleteSensor(UUID sensorId) {
+        sensors.remove(sensorId);
+    }
+
+    private void append(ByteBuffer record) {
+        try {
+            writeFully(log, record);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to append to security log", ioe);
+        }
+        logRecords++;
+    }
+
+    /**
+     * Appends the records of one change and forces them to disk, then applies the change in memory
+     * and compacts the log if it has grown long enough. If appending or forcing fails the log is
+     * truncated back to the end of the previous change and the change is not applied.
+     */
+    private void write(Runnable records, Runnable change) {
+        if (broken) {
+            throw new IllegalStateException("Security log is unusable after a write that couldn't be rolled back");
+        }
+        try {
+            records.run();
+            log.force(false);
+            committedLength = log.position();
+        } catch (IOException ioe) {
+            UncheckedIOException failure = new UncheckedIOException("Unable to sync security log", ioe);
+            rollback(failure);
+            throw failure;
+        } catch (RuntimeException e) {
+            rollback(e);
+            throw e;
+        }
+        committedRecords = logRecords;
+        change.run();
+        if (logRecords >= compactionThreshold) {
+            compact();
+        }
+    }
+
+    private void rollback(RuntimeException failure) {
+        try {
+            log.truncate(committedLength);
+            log.position(committedLength);
+            logRecords = committedRecords;
+        } catch (IOException ioe) {
+            failure.addSuppressed(ioe);
+            broken = true;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer record) throws IOException {
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+    }
+
+    private ByteBuffer encodeSensor(Sensor sensor) {
+        byte[] name = sensor.getName().getBytes(StandardCharsets.UTF_8);
+        if (name.length > MAX_NAME_BYTES) {
+            throw new IllegalArgumentException("Sensor name is too long to be stored");
+        }
+        ByteBuffer b = begin(MAX_FIXED_PAYLOAD + name.length);
+        b.put(SENSOR_UPSERT);
+        b.putLong(sensor.getSensorId().getMostSignificantBits());
+        b.putLong(sensor.getSensorId().getLeastSignificantBits());
+        b.put((byte) sensor.getSensorType().ordinal());
+        b.put((byte) (sensor.getActive() ? 1 : 0));
+        b.putShort((short) name.length);
+        b.put(name);
+        return finish(b);
+    }
+
+    private ByteBuffer encodeRemove(UUID sensorId) {
+        ByteBuffer b = begin(1 + Long.BYTES * 2);
+        b.put(SENSOR_REMOVE);
+        b.putLong(sensorId.getMostSignificantBits());
+        b.putLong(sensorId.getLeastSignificantBits());
+        return finish(b);
+    }
+
+    private ByteBuffer encodeStatus(byte type, int ordinal) {
+        ByteBuffer b = begin(2);
+        b.put(type);
+        b.put((byte) ordinal);
+        return finish(b);
+    }
+
+    /**
+     * Prepares the shared buffer for a record and skips over the header, which is filled in by finish.
+     */
+    private ByteBuffer begin(int maxPayload) {
+        if (buffer.capacity() < HEADER_SIZE + maxPayload) {
+            buffer = ByteBuffer.allocate(HEADER_SIZE + maxPayload);
+        }
+        buffer.clear();
+        buffer.position(HEADER_SIZE);
+        return buffer;
+    }
+
+    private ByteBuffer finish(ByteBuffer b) {
+        int payloadLength = b.position() - HEADER_SIZE;
+        crc.reset();
+        crc.update(b.array(), HEADER_SIZE, payloadLength);
+        b.putInt(0, payloadLength);
+        b.putInt(Integer.BYTES, (int) crc.getValue());
+        b.flip();
+        return b;
+    }
+
+    /**
+     * Applies every intact record in the file to the in-memory state.
+     *
+     * @return the length of the valid prefix of the file
+     */
+    private long replay(Path file) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file));
+        while (in.remaining() >= HEADER_SIZE) {
+            int start = in.position();
+            int length = in.getInt();
+            int checksum = in.getInt();
+            if (length <= 0 || length > in.remaining()) {
+                return start;
+            }
+            crc.reset();
+            crc.update(in.array(), in.position(), length);
+            if ((int) crc.getValue() != checksum) {
+                return start;
+            }
+            ByteBuffer payload = in.slice(in.position(), length);
+            in.position(in.position() + length);
+            apply(payload);
+            logRecords++;
+        }
+        return in.position();
+    }
+
+    private void apply(ByteBuffer payload) {
+        byte type = payload.get();
+        switch (type) {
+            case SENSOR_UPSERT -> {
+                UUID id = new UUID(payload.getLong(), payload.getLong());
+                SensorType sensorType = SensorType.values()[payload.get()];
+                boolean active = payload.get() != 0;
+                byte[] name = new byte[payload.getShort()];
+                payload.get(name);
+                putSensor(new Sensor(id, new String(name, StandardCharsets.UTF_8), sensorType, active));
+            }
+            case SENSOR_REMOVE -> deleteSensor(new UUID(payload.getLong(), payload.getLong()));
+            case ALARM_STATUS -> alarmStatus = AlarmStatus.values()[payload.get()];
+            case ARMING_STATUS -> armingStatus = ArmingStatus.values()[payload.get()];
+            default -> throw new IllegalStateException("Unknown security log record type " + type);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.udacity.catpoint.secservice.metrics;
+
+/**
+ * Monotonically increasing count of events.
+ */
+public interface Counter {
+    default void increment() {
+        add(1);
+    }
+
+    void add(long amount);
+
+    long count();
+}
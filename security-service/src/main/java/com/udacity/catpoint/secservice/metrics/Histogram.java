@@ -0,0 +1,13 @@
+package com.udacity.catpoint.secservice.metrics;
+
+/**
+ * Distribution of non-negative values, e.g. batch sizes.
+ */
+public interface Histogram {
+    /**
+     * Records a value. Negative values are recorded as 0.
+     */
+    void record(long value);
+
+    HistogramSnapshot snapshot();
+}
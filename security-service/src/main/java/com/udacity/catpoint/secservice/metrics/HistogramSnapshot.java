@@ -0,0 +1,9 @@
+package com.udacity.catpoint.secservice.metrics;
+
+/**
+ * Summary of a histogram or timer at one point in time. Percentiles are accurate to within about
+ * 3% of the value; timer values are in nanoseconds.
+ */
+public record HistogramSnapshot(long count, long min, long max, double mean, long p50, long p90, long p99, long p999) {
+    static final HistogramSnapshot EMPTY = new HistogramSnapshot(0, 0, 0, 0, 0, 0, 0, 0);
+}
@@ -0,0 +1,63 @@
+package com.udacity.catpoint.secservice.metrics;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry that keeps all metrics in memory for the lifetime of the process. Use
+ * {@link #snapshot()} or a {@link MetricsReporter} to read them.
+ */
+public class InMemoryMetricsRegistry implements MetricsRegistry {
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    @Override
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, n -> new AdderCounter());
+    }
+
+    @Override
+    public Timer timer(String name) {
+        return timers.computeIfAbsent(name, n -> new LogLinearHistogram());
+    }
+
+    @Override
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new LogLinearHistogram());
+    }
+
+    /**
+     * Current values of all metrics, sorted by name.
+     */
+    public Snapshot snapshot() {
+        SortedMap<String, Long> counterValues = new TreeMap<>();
+        counters.forEach((name, counter) -> counterValues.put(name, counter.count()));
+        SortedMap<String, HistogramSnapshot> timerValues = new TreeMap<>();
+        timers.forEach((name, timer) -> timerValues.put(name, timer.snapshot()));
+        SortedMap<String, HistogramSnapshot> histogramValues = new TreeMap<>();
+        histograms.forEach((name, histogram) -> histogramValues.put(name, histogram.snapshot()));
+        return new Snapshot(counterValues, timerValues, histogramValues);
+    }
+
+    public record Snapshot(SortedMap<String, Long> counters, SortedMap<String, HistogramSnapshot> timers,
+                           SortedMap<String, HistogramSnapshot> histograms) {
+    }
+
+    private static final class AdderCounter implements Counter {
+        private final LongAdder count = new LongAdder();
+
+        @Override
+        public void add(long amount) {
+            count.add(amount);
+        }
+
+        @Override
+        public long count() {
+            return count.sum();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.udacity.catpoint.secservice.metrics;
+
+import com.udacity.catpoint.imageservice.ImageService;
+
+import java.awt.image.BufferedImage;
+import java.util.Map;
+
+/**
+ * Decorator that times every classification done by another image service, under
+ * {@code image.classify}, {@code image.classifyJpeg} and {@code image.classifyBatch}, and counts
+ * frames and cats seen.
+ */
+public class InstrumentedImageService implements ImageService {
+    private final ImageService delegate;
+    private final Timer classify;
+    private final Timer classifyJpeg;
+    private final Timer classifyBatch;
+    private final Counter frames;
+    private final Counter cats;
+    private final Counter failures;
+
+    public InstrumentedImageService(ImageService delegate, MetricsRegistry metrics) {
+        this.delegate = delegate;
+        this.classify = metrics.timer("image.classify");
+        this.classifyJpeg = metrics.timer("image.classifyJpeg");
+        this.classifyBatch = metrics.timer("image.classifyBatch");
+        this.frames = metrics.counter("image.frames");
+        this.cats = metrics.counter("image.cats");
+        this.failures = metrics.counter("image.failures");
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        long start = classify.start();
+        try {
+            return counted(delegate.imageContainsCat(image, confidenceThreshold));
+        } catch (RuntimeException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            classify.stop(start);
+        }
+    }
+
+    @Override
+    public boolean jpegContainsCat(byte[] jpeg, float confidenceThreshold) {
+        long start = classifyJpeg.start();
+        try {
+            return counted(delegate.jpegContainsCat(jpeg, confidenceThreshold));
+        } catch (RuntimeException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            classifyJpeg.stop(start);
+        }
+    }
+
+    @Override
+    public <K> Map<K, Boolean> imageContainsCat(Map<K, BufferedImage> images, float confidenceThreshold) {
+        long start = classifyBatch.start();
+        try {
+            Map<K, Boolean> results = delegate.imageContainsCat(images, confidenceThreshold);
+            results.values().forEach(this::counted);
+            return results;
+        } catch (RuntimeException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            classifyBatch.stop(start);
+        }
+    }
+
+    private boolean counted(boolean cat) {
+        frames.increment();
+        if (cat) {
+            cats.increment();
+        }
+        return cat;
+    }
+}
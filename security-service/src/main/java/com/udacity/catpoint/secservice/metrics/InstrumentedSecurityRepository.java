@@ -0,0 +1,163 @@
+package com.udacity.catpoint.secservice.metrics;
+
+import com.udacity.catpoint.secservice.data.AlarmStatus;
+import com.udacity.catpoint.secservice.data.ArmingStatus;
+import com.udacity.catpoint.secservice.data.SecurityRepository;
+import com.udacity.catpoint.secservice.data.Sensor;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Decorator that times every call to another repository, under {@code repository.<method>}.
+ * Batch sizes are recorded in the {@code repository.batchSize} histogram.
+ */
+public class InstrumentedSecurityRepository implements SecurityRepository {
+    private final SecurityRepository delegate;
+    private final Timer addSensor;
+    private final Timer removeSensor;
+    private final Timer updateSensor;
+    private final Timer addSensors;
+    private final Timer removeSensors;
+    private final Timer updateSensors;
+    private final Timer setAlarmStatus;
+    private final Timer setArmingStatus;
+    private final Timer getSensors;
+    private final Timer getAlarmStatus;
+    private final Timer getArmingStatus;
+    private final Histogram batchSize;
+
+    public InstrumentedSecurityRepository(SecurityRepository delegate, MetricsRegistry metrics) {
+        this.delegate = delegate;
+        this.addSensor = metrics.timer("repository.addSensor");
+        this.removeSensor = metrics.timer("repository.removeSensor");
+        this.updateSensor = metrics.timer("repository.updateSensor");
+        this.addSensors = metrics.timer("repository.addSensors");
+        this.removeSensors = metrics.timer("repository.removeSensors");
+        this.updateSensors = metrics.timer("repository.updateSensors");
+        this.setAlarmStatus = metrics.timer("repository.setAlarmStatus");
+        this.setArmingStatus = metrics.timer("repository.setArmingStatus");
+        this.getSensors = metrics.timer("repository.getSensors");
+        this.getAlarmStatus = metrics.timer("repository.getAlarmStatus");
+        this.getArmingStatus = metrics.timer("repository.getArmingStatus");
+        this.batchSize = metrics.histogram("repository.batchSize");
+    }
+
+    @Override
+    public void addSensor(Sensor sensor) {
+        long start = addSensor.start();
+        try {
+            delegate.addSensor(sensor);
+        } finally {
+            addSensor.stop(start);
+        }
+    }
+
+    @Override
+    public void removeSensor(Sensor sensor) {
+        long start = removeSensor.start();
+        try {
+            delegate.removeSensor(sensor);
+        } finally {
+            removeSensor.stop(start);
+        }
+    }
+
+    @Override
+    public void updateSensor(Sensor sensor) {
+        long start = updateSensor.start();
+        try {
+            delegate.updateSensor(sensor);
+        } finally {
+            updateSensor.stop(start);
+        }
+    }
+
+    @Override
+    public void addSensors(Collection<Sensor> sensors) {
+        batchSize.record(sensors.size());
+        long start = addSensors.start();
+        try {
+            delegate.addSensors(sensors);
+        } finally {
+            addSensors.stop(start);
+        }
+    }
+
+    @Override
+    public void removeSensors(Collection<Sensor> sensors) {
+        batchSize.record(sensors.size());
+        long start = removeSensors.start();
+        try {
+            delegate.removeSensors(sensors);
+        } finally {
+            removeSensors.stop(start);
+        }
+    }
+
+    @Override
+    public void updateSensors(Collection<Sensor> sensors) {
+        batchSize.record(sensors.size());
+        long start = updateSensors.start();
+        try {
+            delegate.updateSensors(sensors);
+        } finally {
+            updateSensors.stop(start);
+        }
+    }
+
+    @Override
+    public void setAlarmStatus(AlarmStatus alarmStatus) {
+        long start = setAlarmStatus.start();
+        try {
+            delegate.setAlarmStatus(alarmStatus);
+        } finally {
+            setAlarmStatus.stop(start);
+        }
+    }
+
+    @Override
+    public void setArmingStatus(ArmingStatus armingStatus) {
+        long start = setArmingStatus.start();
+        try {
+            delegate.setArmingStatus(armingStatus);
+        } finally {
+            setArmingStatus.stop(start);
+        }
+    }
+
+    @Override
+    public Set<Sensor> getSensors() {
+        long start = getSensors.start();
+        try {
+            return delegate.getSensors();
+        } finally {
+            getSensors.stop(start);
+        }
+    }
+
+    @Override
+    public Sensor findSensor(Sensor sensor) {
+        return delegate.findSensor(sensor);
+    }
+
+    @Override
+    public AlarmStatus getAlarmStatus() {
+        long start = getAlarmStatus.start();
+        try {
+            return delegate.getAlarmStatus();
+        } finally {
+            getAlarmStatus.stop(start);
+        }
+    }
+
+    @Override
+    public ArmingStatus getArmingStatus() {
+        long start = getArmingStatus.start();
+        try {
+            return delegate.getArmingStatus();
+        } finally {
+            getArmingStatus.stop(start);
+        }
+    }
+}
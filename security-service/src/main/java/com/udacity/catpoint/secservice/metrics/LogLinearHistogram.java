@@ -0,0 +1,87 @@
+package com.udacity.catpoint.secservice.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HDR-style histogram: every power of two is split into {@value #SUB_BUCKETS} equal buckets, so
+ * any positive long is recorded with a relative error of at most 1/{@value #SUB_BUCKETS} in a
+ * fixed array of counts. Recording is a few bit operations and atomic adds.
+ */
+final class LogLinearHistogram implements Timer {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    //values below SUB_BUCKETS get a bucket each; every further power of two gets SUB_BUCKETS
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    private final LongAccumulator max = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+    @Override
+    public void record(long value) {
+        long v = Math.max(0, value);
+        counts.incrementAndGet(bucketOf(v));
+        count.increment();
+        sum.add(v);
+        min.accumulate(v);
+        max.accumulate(v);
+    }
+
+    @Override
+    public HistogramSnapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        if (total == 0) {
+            return HistogramSnapshot.EMPTY;
+        }
+        long lowest = min.get();
+        long highest = max.get();
+        return new HistogramSnapshot(total, lowest, highest, sum.doubleValue() / count.sum(),
+                percentile(copy, total, 0.5, lowest, highest),
+                percentile(copy, total, 0.9, lowest, highest),
+                percentile(copy, total, 0.99, lowest, highest),
+                percentile(copy, total, 0.999, lowest, highest));
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Middle of the range of values that fall in the given bucket.
+     */
+    static long valueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) * width;
+        return lower + width / 2;
+    }
+
+    private static long percentile(long[] counts, long total, double quantile, long lowest, long highest) {
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.max(lowest, Math.min(highest, valueOf(i)));
+            }
+        }
+        return highest;
+    }
+}
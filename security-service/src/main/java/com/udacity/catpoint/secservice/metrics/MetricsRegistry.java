@@ -0,0 +1,20 @@
+package com.udacity.catpoint.secservice.metrics;
+
+/**
+ * Source of named metrics. Asking for the same name twice returns the same metric, so callers
+ * should look their metrics up once and keep them; recording into a metric never allocates.
+ */
+public interface MetricsRegistry {
+    Counter counter(String name);
+
+    Timer timer(String name);
+
+    Histogram histogram(String name);
+
+    /**
+     * Registry whose metrics discard everything, for when nobody is watching.
+     */
+    static MetricsRegistry noop() {
+        return NoopMetricsRegistry.INSTANCE;
+    }
+}
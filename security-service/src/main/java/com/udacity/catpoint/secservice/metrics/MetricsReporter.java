@@ -0,0 +1,126 @@
+package com.udacity.catpoint.secservice.metrics;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically writes the metrics of an {@link InMemoryMetricsRegistry} to a file, as plain text
+ * or as JSON. Every report replaces the file atomically, so readers never see half a report.
+ * Timer values are written in microseconds.
+ */
+public class MetricsReporter implements Closeable {
+    public enum Format {
+        TEXT, JSON
+    }
+
+    private final InMemoryMetricsRegistry registry;
+    private final Path file;
+    private final Format format;
+    private final ScheduledExecutorService scheduler;
+    private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private volatile RuntimeException lastFailure;
+
+    public MetricsReporter(InMemoryMetricsRegistry registry, Path file, Format format, Duration period) {
+        this.registry = registry;
+        this.file = file;
+        this.format = format;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                report();
+                lastFailure = null;
+            } catch (RuntimeException e) {
+                //keep reporting; the failure is available from getLastFailure()
+                lastFailure = e;
+            }
+        }, period.toMillis(), period.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes a report now.
+     */
+    public void report() {
+        InMemoryMetricsRegistry.Snapshot snapshot = registry.snapshot();
+        String report = format == Format.JSON ? json(snapshot) : text(snapshot);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.writeString(temp, report, StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to write metrics to " + file, ioe);
+        }
+    }
+
+    /**
+     * Failure of the most recent scheduled report, or null if it succeeded.
+     */
+    public RuntimeException getLastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * Stops reporting and writes a final report.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        report();
+    }
+
+    private String text(InMemoryMetricsRegistry.Snapshot snapshot) {
+        StringBuilder out = new StringBuilder("# ").append(Instant.now()).append('\n');
+        snapshot.counters().forEach((name, count) -> out.append(String.format("%-40s %d%n", name, count)));
+        snapshot.timers().forEach((name, timer) -> out.append(String.format(
+                "%-40s count=%d mean=%.1fus p50=%.1fus p90=%.1fus p99=%.1fus p999=%.1fus max=%.1fus%n",
+                name, timer.count(), timer.mean() / 1_000, timer.p50() / 1_000.0, timer.p90() / 1_000.0,
+                timer.p99() / 1_000.0, timer.p999() / 1_000.0, timer.max() / 1_000.0)));
+        snapshot.histograms().forEach((name, histogram) -> out.append(String.format(
+                "%-40s count=%d mean=%.1f p50=%d p90=%d p99=%d p999=%d max=%d%n",
+                name, histogram.count(), histogram.mean(), histogram.p50(), histogram.p90(),
+                histogram.p99(), histogram.p999(), histogram.max())));
+        return out.toString();
+    }
+
+    private String json(InMemoryMetricsRegistry.Snapshot snapshot) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("timestamp", Instant.now().toString());
+        report.put("counters", snapshot.counters());
+        Map<String, Object> timers = new LinkedHashMap<>();
+        snapshot.timers().forEach((name, timer) -> timers.put(name, micros(timer)));
+        report.put("timersMicros", timers);
+        report.put("histograms", snapshot.histograms());
+        return gson.toJson(report);
+    }
+
+    private static Map<String, Object> micros(HistogramSnapshot timer) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("count", timer.count());
+        values.put("min", timer.min() / 1_000.0);
+        values.put("mean", timer.mean() / 1_000);
+        values.put("p50", timer.p50() / 1_000.0);
+        values.put("p90", timer.p90() / 1_000.0);
+        values.put("p99", timer.p99() / 1_000.0);
+        values.put("p999", timer.p999() / 1_000.0);
+        values.put("max", timer.max() / 1_000.0);
+        return values;
+    }
+}
@@ -0,0 +1,22 @@
+package com.udacity.catpoint.secservice.metrics;
+
+/**
+ * Distribution of durations in nanoseconds. Meant to be used as
+ * <pre>
+ * long start = timer.start();
+ * try {
+ *     ...
+ * } finally {
+ *     timer.stop(start);
+ * }
+ * </pre>
+ */
+public interface Timer extends Histogram {
+    default long start() {
+        return System.nanoTime();
+    }
+
+    default void stop(long start) {
+        record(System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,123 @@
+package com.udacity.catpoint.secservice.server;
+
+import com.udacity.catpoint.secservice.data.ArmingStatus;
+import com.udacity.catpoint.secservice.data.SensorType;
+import com.udacity.catpoint.secservice.service.SecurityService;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Applies text commands to a SecurityService. Sensors are addressed by name. One command per
+ * line:
+ * <pre>
+ * sensor add DOOR|WINDOW|MOTION &lt;name&gt;
+ * sensor remove &lt;name&gt;
+ * sensor activate &lt;name&gt;
+ * sensor deactivate &lt;name&gt;
+ * arm home|away
+ * disarm
+ * image &lt;path&gt;
+ * status
+ * </pre>
+ * Every command is answered with a single line starting with {@code OK} or {@code ERR}.
+ */
+public class CommandProcessor {
+    private final SecurityService securityService;
+    private final SensorDirectory sensors;
+
+    public CommandProcessor(SecurityService securityService, SensorDirectory sensors) {
+        this.securityService = securityService;
+        this.sensors = sensors;
+    }
+
+    /**
+     * @return the response line
+     */
+    public String execute(String line) {
+        String[] words = line.strip().split("\\s+", 3);
+        try {
+            return switch (words[0].toLowerCase(Locale.ROOT)) {
+                case "sensor" -> sensor(words);
+                case "arm" -> {
+                    require(words, 2);
+                    securityService.setArmingStatus(switch (words[1].toLowerCase(Locale.ROOT)) {
+                        case "home" -> ArmingStatus.ARMED_HOME;
+                        case "away" -> ArmingStatus.ARMED_AWAY;
+                        default -> throw new IllegalArgumentException("Expected home or away");
+                    });
+                    yield status();
+                }
+                case "disarm" -> {
+                    securityService.setArmingStatus(ArmingStatus.DISARMED);
+                    yield status();
+                }
+                case "image" -> {
+                    require(words, 2);
+                    processImage(Path.of(line.strip().substring(words[0].length()).strip()));
+                    yield status();
+                }
+                case "status" -> status();
+                case "" -> "ERR Empty command";
+                default -> "ERR Unknown command " + words[0];
+            };
+        } catch (IllegalArgumentException | IllegalStateException | UncheckedIOException e) {
+            return "ERR " + e.getMessage();
+        }
+    }
+
+    /**
+     * Classifies an image file. JPEG files are handed over still encoded.
+     */
+    public void processImage(Path file) {
+        try {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            if (name.endsWith(".jpg") || name.endsWith(".jpeg")) {
+                securityService.processJpegImage(Files.readAllBytes(file));
+                return;
+            }
+            BufferedImage image = ImageIO.read(file.toFile());
+            if (image == null) {
+                throw new IllegalArgumentException("Unsupported image format " + file);
+            }
+            securityService.processImage(image);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to read " + file, ioe);
+        }
+    }
+
+    private String sensor(String[] words) {
+        require(words, 3);
+        String action = words[1].toLowerCase(Locale.ROOT);
+        if (action.equals("add")) {
+            String[] typeAndName = words[2].split("\\s+", 2);
+            require(typeAndName, 2);
+            sensors.add(typeAndName[1], SensorType.valueOf(typeAndName[0].toUpperCase(Locale.ROOT)));
+            return "OK";
+        }
+
+        switch (action) {
+            case "remove" -> sensors.remove(words[2]);
+            case "activate" -> securityService.changeSensorActivationStatus(sensors.get(words[2]), true);
+            case "deactivate" -> securityService.changeSensorActivationStatus(sensors.get(words[2]), false);
+            default -> throw new IllegalArgumentException("Unknown sensor action " + words[1]);
+        }
+        return status();
+    }
+
+    private String status() {
+        return "OK " + securityService.getAlarmStatus() + " " + securityService.getArmingStatus()
+                + " " + securityService.getActiveSensorCount();
+    }
+
+    private static void require(String[] words, int count) {
+        if (words.length < count) {
+            throw new IllegalArgumentException("Missing arguments");
+        }
+    }
+}
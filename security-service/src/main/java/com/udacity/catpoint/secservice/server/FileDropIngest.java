@@ -0,0 +1,108 @@
+package com.udacity.catpoint.secservice.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Picks up files dropped into a directory. Image files ({@code .jpg}, {@code .jpeg},
+ * {@code .png}) are classified; {@code .cmd} files hold one command per line, see
+ * {@link CommandProcessor}. Responses to commands go to a {@code .out} file next to the
+ * {@code .cmd} file. Processed files are deleted.
+ * <p>
+ * Writers should create files under a name starting with a dot and rename them once complete,
+ * so a file is never picked up half written.
+ */
+public class FileDropIngest implements Closeable {
+    private final CommandProcessor commands;
+    private final Path directory;
+    private final WatchService watchService;
+
+    public FileDropIngest(CommandProcessor commands, Path directory) {
+        this.commands = commands;
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+            watchService = directory.getFileSystem().newWatchService();
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to watch " + directory, ioe);
+        }
+        Thread thread = new Thread(this::watchLoop, "file-drop-ingest");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private void watchLoop() {
+        try {
+            //files dropped while we were not running
+            processDirectory();
+            while (true) {
+                WatchKey key = watchService.take();
+                key.pollEvents();
+                processDirectory();
+                if (!key.reset()) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            //closed
+        }
+    }
+
+    private void processDirectory() {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                process(file);
+            }
+        } catch (IOException ioe) {
+            //the directory is rescanned on the next event
+        }
+    }
+
+    private void process(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.startsWith(".") || !Files.isRegularFile(file)) {
+            return;
+        }
+        try {
+            if (name.endsWith(".jpg") || name.endsWith(".jpeg") || name.endsWith(".png")) {
+                commands.processImage(file);
+            } else if (name.endsWith(".cmd")) {
+                List<String> responses = Files.readAllLines(file, StandardCharsets.UTF_8).stream()
+                        .filter(line -> !line.isBlank())
+                        .map(commands::execute)
+                        .toList();
+                String outName = file.getFileName().toString().replaceFirst("(?i)\\.cmd$", ".out");
+                Files.write(file.resolveSibling(outName), responses, StandardCharsets.UTF_8);
+            } else {
+                return;
+            }
+            Files.deleteIfExists(file);
+        } catch (IOException | RuntimeException e) {
+            //leave a broken file where it is, renamed so it isn't retried forever
+            try {
+                Files.move(file, file.resolveSibling(file.getFileName() + ".failed"));
+            } catch (IOException ignored) {
+                //nothing more we can do
+            }
+        }
+    }
+}
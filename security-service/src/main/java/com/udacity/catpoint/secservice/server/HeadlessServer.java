@@ -0,0 +1,241 @@
+package com.udacity.catpoint.secservice.server;
+
+import com.udacity.catpoint.imageservice.AwsImageService;
+import com.udacity.catpoint.imageservice.CachingImageService;
+import com.udacity.catpoint.imageservice.FakeImageService;
+import com.udacity.catpoint.imageservice.ImageService;
+import com.udacity.catpoint.imageservice.LocalImageService;
+import com.udacity.catpoint.imageservice.MotionGatedImageService;
+import com.udacity.catpoint.imageservice.ResilientImageService;
+import com.udacity.catpoint.secservice.data.CoalescingSecurityRepository;
+import com.udacity.catpoint.secservice.data.MemoryMappedSecurityRepositoryImpl;
+import com.udacity.catpoint.secservice.data.PretendDatabaseSecurityRepositoryImpl;
+import com.udacity.catpoint.secservice.data.SecurityRepository;
+import com.udacity.catpoint.secservice.data.WriteAheadLogSecurityRepositoryImpl;
+import com.udacity.catpoint.secservice.metrics.InMemoryMetricsRegistry;
+import com.udacity.catpoint.secservice.metrics.InstrumentedImageService;
+import com.udacity.catpoint.secservice.metrics.InstrumentedSecurityRepository;
+import com.udacity.catpoint.secservice.metrics.MetricsRegistry;
+import com.udacity.catpoint.secservice.metrics.MetricsReporter;
+import com.udacity.catpoint.secservice.service.AlarmTiming;
+import com.udacity.catpoint.secservice.service.HashedWheelTimer;
+import com.udacity.catpoint.secservice.service.SecurityService;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Runs the security system without any user interface. Everything is built from a properties
+ * file; all keys are optional:
+ * <pre>
+ * repository=preferences|wal|mmap        where state is persisted (default preferences)
+ * repository.directory=&lt;dir&gt;             directory for the wal and mmap repositories (default ./catpoint-data)
+ * repository.flushIntervalMillis=200     how often queued repository writes are flushed
+ * repository.maxBatchSize=&lt;n&gt;            also flush once this many writes are queued (default no limit)
+ * imageService=fake|local|aws            classifier (default aws); local is an experimental model, see {@link LocalImageService}
+ * imageService.fallback=none|local       what answers when aws is unavailable (default none: the frame fails
+ *                                        and the previous cat verdict stands)
+ * imageService.cache=true                remember verdicts for identical frames
+ * imageService.motionGate=true           only classify camera frames that changed (batch scans)
+ * timing.debounceMillis=0                how long a sensor has to keep a new state before it counts
+ * timing.entryDelaySeconds=0             how long an alarm stays pending before it is raised
+ * timing.exitDelaySeconds=0              how long arming a disarmed system takes to take effect
+ * ingest.socket.port=&lt;port&gt;              accept commands on this local port
+ * ingest.socket.address=127.0.0.1        address to listen on
+ * ingest.http.port=&lt;port&gt;                accept sensor events, arming and frames over HTTP, see {@link HttpIngest}
+ * ingest.http.address=127.0.0.1          address to listen on
+ * ingest.dropDirectory=&lt;dir&gt;             pick up commands and images dropped into this directory
+ * metrics.file=&lt;file&gt;                     write metrics to this file
+ * metrics.format=text|json               (default text)
+ * metrics.periodSeconds=10
+ * </pre>
+ * Repository writes are always queued through a {@link CoalescingSecurityRepository}, which also
+ * makes any of the repositories safe to share between ingest threads.
+ */
+public class HeadlessServer implements Closeable {
+    private final SecurityService securityService;
+    private final CommandProcessor commands;
+    //closed in reverse order of creation
+    private final Deque<AutoCloseable> resources = new ArrayDeque<>();
+    private SocketIngest socketIngest;
+    private HttpIngest httpIngest;
+
+    public HeadlessServer(Properties config) {
+        MetricsRegistry metrics = MetricsRegistry.noop();
+        String metricsFile = config.getProperty("metrics.file");
+        if (metricsFile != null) {
+            InMemoryMetricsRegistry registry = new InMemoryMetricsRegistry();
+            resources.push(new MetricsReporter(registry, Path.of(metricsFile),
+                    MetricsReporter.Format.valueOf(config.getProperty("metrics.format", "text").toUpperCase(Locale.ROOT)),
+                    Duration.ofSeconds(Long.parseLong(config.getProperty("metrics.periodSeconds", "10")))));
+            metrics = registry;
+        }
+
+        SecurityRepository repository = new InstrumentedSecurityRepository(createRepository(config), metrics);
+        Duration flushInterval = Duration.ofMillis(Long.parseLong(config.getProperty("repository.flushIntervalMillis", "200")));
+        String maxBatchSize = config.getProperty("repository.maxBatchSize");
+        CoalescingSecurityRepository coalescing = maxBatchSize == null
+                ? new CoalescingSecurityRepository(repository, flushInterval)
+                : new CoalescingSecurityRepository(repository, flushInterval, Integer.parseInt(maxBatchSize));
+        resources.push(coalescing);
+
+        ImageService imageService = new InstrumentedImageService(createImageService(config), metrics);
+        securityService = SecurityService.concurrent(coalescing, imageService, metrics);
+        AlarmTiming timing = new AlarmTiming(
+                Duration.ofMillis(Long.parseLong(config.getProperty("timing.debounceMillis", "0"))),
+                Duration.ofSeconds(Long.parseLong(config.getProperty("timing.entryDelaySeconds", "0"))),
+                Duration.ofSeconds(Long.parseLong(config.getProperty("timing.exitDelaySeconds", "0"))));
+        if (!timing.equals(AlarmTiming.IMMEDIATE)) {
+            HashedWheelTimer timer = closing(new HashedWheelTimer(Duration.ofMillis(10), 512, Clock.systemUTC(), metrics));
+            timer.start();
+            securityService.setTiming(timing, timer);
+            //on shutdown, apply whatever is still waiting before the repository is flushed
+            resources.push(() -> securityService.setTiming(AlarmTiming.IMMEDIATE, null));
+        }
+        SensorDirectory sensors = new SensorDirectory(securityService);
+        commands = new CommandProcessor(securityService, sensors);
+
+        String port = config.getProperty("ingest.socket.port");
+        if (port != null) {
+            socketIngest = new SocketIngest(commands, address(config.getProperty("ingest.socket.address", "127.0.0.1")),
+                    Integer.parseInt(port));
+            resources.push(socketIngest);
+        }
+        String httpPort = config.getProperty("ingest.http.port");
+        if (httpPort != null) {
+            httpIngest = new HttpIngest(securityService, sensors, new InetSocketAddress(
+                    address(config.getProperty("ingest.http.address", "127.0.0.1")), Integer.parseInt(httpPort)), metrics);
+            resources.push(httpIngest);
+        }
+        String dropDirectory = config.getProperty("ingest.dropDirectory");
+        if (dropDirectory != null) {
+            resources.push(new FileDropIngest(commands, Path.of(dropDirectory)));
+        }
+    }
+
+    /**
+     * Reads the configuration from a file, or from {@code headless.properties} on the classpath
+     * if no file is given.
+     */
+    public static Properties loadConfig(Path file) {
+        Properties config = new Properties();
+        try (InputStream is = file == null
+                ? HeadlessServer.class.getResourceAsStream("/headless.properties")
+                : Files.newInputStream(file)) {
+            if (is != null) {
+                config.load(is);
+            }
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to read configuration " + file, ioe);
+        }
+        return config;
+    }
+
+    public SecurityService getSecurityService() {
+        return securityService;
+    }
+
+    public CommandProcessor getCommands() {
+        return commands;
+    }
+
+    /**
+     * Port the socket ingest listens on, or -1 if it isn't enabled.
+     */
+    public int getSocketPort() {
+        return socketIngest == null ? -1 : socketIngest.getPort();
+    }
+
+    /**
+     * Port the HTTP ingest listens on, or -1 if it isn't enabled.
+     */
+    public int getHttpPort() {
+        return httpIngest == null ? -1 : httpIngest.getPort();
+    }
+
+    /**
+     * Stops ingesting, flushes queued repository writes and writes a final metrics report.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        while (!resources.isEmpty()) {
+            try {
+                resources.pop().close();
+            } catch (Exception e) {
+                if (failure == null) {
+                    failure = new IOException("Unable to shut down cleanly", e);
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private SecurityRepository createRepository(Properties config) {
+        Path directory = Path.of(config.getProperty("repository.directory", "catpoint-data"));
+        return switch (config.getProperty("repository", "preferences").toLowerCase(Locale.ROOT)) {
+            case "preferences" -> new PretendDatabaseSecurityRepositoryImpl();
+            case "wal" -> closing(new WriteAheadLogSecurityRepositoryImpl(directory));
+            case "mmap" -> closing(new MemoryMappedSecurityRepositoryImpl(directory));
+            default -> throw new IllegalArgumentException("Unknown repository " + config.getProperty("repository"));
+        };
+    }
+
+    private ImageService createImageService(Properties config) {
+        ImageService imageService = switch (config.getProperty("imageService", "aws").toLowerCase(Locale.ROOT)) {
+            case "fake" -> new FakeImageService();
+            case "local" -> new LocalImageService();
+            case "aws" -> closing(new ResilientImageService(closing(new AwsImageService()), createFallback(config)));
+            default -> throw new IllegalArgumentException("Unknown image service " + config.getProperty("imageService"));
+        };
+        if (Boolean.parseBoolean(config.getProperty("imageService.cache", "true"))) {
+            imageService = new CachingImageService(imageService);
+        }
+        if (Boolean.parseBoolean(config.getProperty("imageService.motionGate", "true"))) {
+            imageService = new MotionGatedImageService(imageService);
+        }
+        return imageService;
+    }
+
+    private static ImageService createFallback(Properties config) {
+        return switch (config.getProperty("imageService.fallback", "none").toLowerCase(Locale.ROOT)) {
+            //a "no cat" from a stand-in would clear a raised alarm, so without one the frame just fails
+            case "none" -> (image, confidenceThreshold) -> {
+                throw new IllegalStateException("Image service unavailable");
+            };
+            case "local" -> new LocalImageService();
+            default -> throw new IllegalArgumentException("Unknown fallback image service "
+                    + config.getProperty("imageService.fallback"));
+        };
+    }
+
+    private <T extends AutoCloseable> T closing(T resource) {
+        resources.push(resource);
+        return resource;
+    }
+
+    private static InetAddress address(String host) {
+        try {
+            return InetAddress.getByName(host);
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Unknown address " + host, e);
+        }
+    }
+}
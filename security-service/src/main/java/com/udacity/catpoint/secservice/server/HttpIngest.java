@@ -0,0 +1,312 @@
+package com.udacity.catpoint.secservice.server;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.udacity.catpoint.secservice.data.ArmingStatus;
+import com.udacity.catpoint.secservice.data.Sensor;
+import com.udacity.catpoint.secservice.metrics.Counter;
+import com.udacity.catpoint.secservice.metrics.MetricsRegistry;
+import com.udacity.catpoint.secservice.service.SecurityService;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Embedded HTTP endpoint that feeds a SecurityService:
+ * <pre>
+ * POST /sensors/events   [{"sensor": "Front Door", "active": true}, ...]   202, or 429 when the queue is full
+ * POST /arming           ARMED_HOME | ARMED_AWAY | DISARMED              200 with the status
+ * POST /frames           raw JPEG body                                   200 with the status, or 503 when busy
+ * GET  /status                                                           200 with the status
+ * </pre>
+ * Sensor event batches are queued (at most {@code maxQueuedBatches}) and applied by a single
+ * thread, which merges whatever has queued up into as few batch calls as possible while keeping
+ * every change in order. At most {@code maxFramesInFlight} frames are received and classified at
+ * once and frames over {@code maxFrameBytes} are refused, so uploads can't exhaust memory.
+ * Rejected requests carry a {@code Retry-After} header.
+ * <p>
+ * If applying queued events throws, e.g. because the repository could not write them, those
+ * events are dropped, the failure is logged and counted under {@code ingest.http.failures}, and
+ * the applier carries on with the next batches.
+ */
+public class HttpIngest implements Closeable {
+    private static final int DEFAULT_MAX_QUEUED_BATCHES = 1_024;
+    private static final int DEFAULT_MAX_FRAMES_IN_FLIGHT = 4;
+    private static final int DEFAULT_MAX_FRAME_BYTES = 8 * 1024 * 1024;
+    private static final System.Logger LOG = System.getLogger(HttpIngest.class.getName());
+
+    private final SecurityService securityService;
+    private final SensorDirectory sensors;
+    private final int maxFrameBytes;
+    private final BlockingQueue<List<SensorEvent>> sensorBatches;
+    private final Semaphore frameSlots;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Thread applier;
+    private final Counter failures;
+    private final Gson gson = new Gson();
+    private volatile boolean closed;
+
+    public HttpIngest(SecurityService securityService, SensorDirectory sensors, InetSocketAddress address) {
+        this(securityService, sensors, address, MetricsRegistry.noop());
+    }
+
+    public HttpIngest(SecurityService securityService, SensorDirectory sensors, InetSocketAddress address,
+                      MetricsRegistry metrics) {
+        this(securityService, sensors, address, DEFAULT_MAX_QUEUED_BATCHES, DEFAULT_MAX_FRAMES_IN_FLIGHT,
+                DEFAULT_MAX_FRAME_BYTES, metrics);
+    }
+
+    public HttpIngest(SecurityService securityService, SensorDirectory sensors, InetSocketAddress address,
+                      int maxQueuedBatches, int maxFramesInFlight, int maxFrameBytes, MetricsRegistry metrics) {
+        this.securityService = securityService;
+        this.failures = metrics.counter("ingest.http.failures");
+        this.sensors = sensors;
+        this.maxFrameBytes = maxFrameBytes;
+        this.sensorBatches = new ArrayBlockingQueue<>(maxQueuedBatches);
+        this.frameSlots = new Semaphore(maxFramesInFlight);
+        try {
+            server = HttpServer.create(address, 0);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to listen on " + address, ioe);
+        }
+        server.createContext("/sensors/events", handler("POST", this::sensorEvents));
+        server.createContext("/arming", handler("POST", this::arming));
+        server.createContext("/frames", handler("POST", this::frame));
+        server.createContext("/status", handler("GET", exchange -> respond(exchange, 200, status())));
+        executor = newExecutor();
+        server.setExecutor(executor);
+        server.start();
+
+        applier = new Thread(this::applyLoop, "http-ingest-sensors");
+        applier.setDaemon(true);
+        applier.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests. Sensor events already queued are still applied.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+        closed = true;
+        try {
+            applier.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void sensorEvents(HttpExchange exchange) throws IOException {
+        SensorEvent[] events;
+        try (InputStream body = exchange.getRequestBody()) {
+            events = gson.fromJson(new String(body.readAllBytes(), StandardCharsets.UTF_8), SensorEvent[].class);
+        } catch (JsonParseException e) {
+            respond(exchange, 400, error("Malformed events: " + e.getMessage()));
+            return;
+        }
+        if (events == null) {
+            respond(exchange, 400, error("No events"));
+            return;
+        }
+        for (SensorEvent event : events) {
+            //reject unknown sensors now rather than after the batch was accepted
+            sensors.get(event.sensor());
+        }
+        if (!sensorBatches.offer(List.of(events))) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            respond(exchange, 429, error("Too many queued events"));
+            return;
+        }
+        respond(exchange, 202, Map.of("accepted", events.length));
+    }
+
+    private void arming(HttpExchange exchange) throws IOException {
+        String body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = new String(in.readAllBytes(), StandardCharsets.UTF_8).strip();
+        }
+        securityService.setArmingStatus(ArmingStatus.valueOf(body.toUpperCase(Locale.ROOT)));
+        respond(exchange, 200, status());
+    }
+
+    private void frame(HttpExchange exchange) throws IOException {
+        if (!frameSlots.tryAcquire()) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            respond(exchange, 503, error("Too many frames in flight"));
+            return;
+        }
+        try {
+            byte[] jpeg = readFrame(exchange);
+            if (jpeg == null) {
+                respond(exchange, 413, error("Frame larger than " + maxFrameBytes + " bytes"));
+                return;
+            }
+            securityService.processJpegImage(jpeg);
+            respond(exchange, 200, status());
+        } finally {
+            frameSlots.release();
+        }
+    }
+
+    /**
+     * Streams the request body into memory, giving up as soon as it exceeds maxFrameBytes.
+     *
+     * @return the frame, or null if it is too large
+     */
+    private byte[] readFrame(HttpExchange exchange) throws IOException {
+        String length = exchange.getRequestHeaders().getFirst("Content-Length");
+        long declared = length == null ? -1 : Long.parseLong(length);
+        if (declared > maxFrameBytes) {
+            return null;
+        }
+        ByteArrayOutputStream frame = new ByteArrayOutputStream(declared > 0 ? (int) declared : 64 * 1024);
+        byte[] chunk = new byte[16 * 1024];
+        try (InputStream body = exchange.getRequestBody()) {
+            int read;
+            while ((read = body.read(chunk)) != -1) {
+                if (frame.size() + read > maxFrameBytes) {
+                    return null;
+                }
+                frame.write(chunk, 0, read);
+            }
+        }
+        return frame.toByteArray();
+    }
+
+    private void applyLoop() {
+        List<List<SensorEvent>> drained = new ArrayList<>();
+        //not interrupted on close, so an interrupt can never land in a repository write
+        while (!closed || !sensorBatches.isEmpty()) {
+            try {
+                List<SensorEvent> first = sensorBatches.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                drained.add(first);
+            } catch (InterruptedException e) {
+                return;
+            }
+            sensorBatches.drainTo(drained);
+            try {
+                apply(drained);
+            } catch (RuntimeException e) {
+                //one failed write must not stop the applier, or the queue fills and every POST gets 429
+                failures.increment();
+                LOG.log(System.Logger.Level.ERROR, "Unable to apply " + drained.size() + " queued sensor event batches", e);
+            }
+            drained.clear();
+        }
+    }
+
+    /**
+     * Applies queued batches in order, merging them into one call until a sensor would appear
+     * twice; then the merged changes are applied first so no transition is skipped.
+     */
+    private void apply(List<List<SensorEvent>> batches) {
+        Map<Sensor, Boolean> merged = new LinkedHashMap<>();
+        for (List<SensorEvent> batch : batches) {
+            for (SensorEvent event : batch) {
+                Sensor sensor;
+                try {
+                    sensor = sensors.get(event.sensor());
+                } catch (IllegalArgumentException e) {
+                    //removed since the batch was accepted
+                    continue;
+                }
+                if (merged.containsKey(sensor)) {
+                    securityService.changeSensorActivationStatus(merged);
+                    merged = new LinkedHashMap<>();
+                }
+                merged.put(sensor, event.active());
+            }
+        }
+        if (!merged.isEmpty()) {
+            securityService.changeSensorActivationStatus(merged);
+        }
+    }
+
+    private Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("alarmStatus", securityService.getAlarmStatus());
+        status.put("armingStatus", securityService.getArmingStatus());
+        status.put("activeSensors", securityService.getActiveSensorCount());
+        return status;
+    }
+
+    private static Map<String, Object> error(String message) {
+        return Map.of("error", message);
+    }
+
+    private void respond(HttpExchange exchange, int code, Object body) throws IOException {
+        byte[] json = gson.toJson(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(code, json.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(json);
+        }
+    }
+
+    private HttpHandler handler(String method, HttpHandler handler) {
+        return exchange -> {
+            try {
+                if (!exchange.getRequestMethod().equals(method)) {
+                    exchange.getResponseHeaders().set("Allow", method);
+                    respond(exchange, 405, error("Use " + method));
+                    return;
+                }
+                handler.handle(exchange);
+            } catch (IllegalArgumentException e) {
+                respond(exchange, 400, error(e.getMessage()));
+            } finally {
+                exchange.close();
+            }
+        };
+    }
+
+    /**
+     * A virtual thread per request where the runtime offers them, otherwise a pool of daemon threads.
+     */
+    private static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors() * 2), r -> {
+                Thread thread = new Thread(r, "http-ingest");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * One sensor change as posted by a client.
+     */
+    private record SensorEvent(String sensor, boolean active) {
+    }
+}
@@ -0,0 +1,51 @@
+package com.udacity.catpoint.secservice.server;
+
+import com.udacity.catpoint.secservice.data.Sensor;
+import com.udacity.catpoint.secservice.data.SensorType;
+import com.udacity.catpoint.secservice.service.SecurityService;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sensors of a SecurityService by name, shared by all ingest channels so a sensor added through
+ * one is known to the others.
+ */
+public class SensorDirectory {
+    private final SecurityService securityService;
+    private final Map<String, Sensor> sensorsByName = new ConcurrentHashMap<>();
+
+    public SensorDirectory(SecurityService securityService) {
+        this.securityService = securityService;
+        securityService.getSensors().forEach(sensor -> sensorsByName.put(sensor.getName(), sensor));
+    }
+
+    /**
+     * @throws IllegalArgumentException if there is no sensor with this name
+     */
+    public Sensor get(String name) {
+        Sensor sensor = name == null ? null : sensorsByName.get(name);
+        if (sensor == null) {
+            throw new IllegalArgumentException("No sensor named " + name);
+        }
+        return sensor;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a sensor with this name already exists
+     */
+    public Sensor add(String name, SensorType type) {
+        Sensor sensor = new Sensor(name, type);
+        if (sensorsByName.putIfAbsent(name, sensor) != null) {
+            throw new IllegalArgumentException("Sensor " + name + " already exists");
+        }
+        securityService.addSensor(sensor);
+        return sensor;
+    }
+
+    public void remove(String name) {
+        Sensor sensor = get(name);
+        sensorsByName.remove(name, sensor);
+        securityService.removeSensor(sensor);
+    }
+}
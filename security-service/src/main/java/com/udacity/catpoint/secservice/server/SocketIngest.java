@@ -0,0 +1,85 @@
+package com.udacity.catpoint.secservice.server;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Accepts command connections on a local TCP port. Each connection sends one command per line
+ * and gets one response line back, see {@link CommandProcessor}.
+ */
+public class SocketIngest implements Closeable {
+    private final CommandProcessor commands;
+    private final ServerSocket serverSocket;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param port Port to listen on, or 0 for any free port
+     */
+    public SocketIngest(CommandProcessor commands, InetAddress address, int port) {
+        this.commands = commands;
+        try {
+            serverSocket = new ServerSocket();
+            serverSocket.bind(new InetSocketAddress(address, port));
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to listen on " + address + ":" + port, ioe);
+        }
+        daemon(this::acceptLoop, "socket-ingest").start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket connection : connections) {
+            connection.close();
+        }
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket connection = serverSocket.accept();
+                connections.add(connection);
+                daemon(() -> serve(connection), "socket-ingest-" + connection.getPort()).start();
+            } catch (IOException ioe) {
+                //closed, or a failed accept; the loop condition decides which
+            }
+        }
+    }
+
+    private void serve(Socket connection) {
+        try (connection;
+             BufferedReader in = new BufferedReader(
+                     new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(connection.getOutputStream(), true, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                out.println(commands.execute(line));
+            }
+        } catch (IOException ioe) {
+            //the client went away
+        } finally {
+            connections.remove(connection);
+        }
+    }
+
+    private static Thread daemon(Runnable task, String name) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
@@ -0,0 +1,75 @@
+package com.udacity.catpoint.secservice.service;
+
+import com.udacity.catpoint.secservice.data.Sensor;
+import com.udacity.catpoint.secservice.data.SensorType;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Running count of active sensors, overall and per sensor type, so the SecurityService can answer
+ * "is anything active?" without walking every sensor. Safe to update from several threads.
+ */
+class ActiveSensorCounter {
+    private final AtomicIntegerArray byType = new AtomicIntegerArray(SensorType.values().length);
+    private final AtomicInteger total = new AtomicInteger();
+
+    void reset(Iterable<Sensor> sensors) {
+        clear();
+        sensors.forEach(this::added);
+    }
+
+    void clear() {
+        for (int i = 0; i < byType.length(); i++) {
+            byType.set(i, 0);
+        }
+        total.set(0);
+    }
+
+    void added(Sensor sensor) {
+        if (sensor.getActive()) increment(sensor.getSensorType());
+    }
+
+    void removed(Sensor sensor) {
+        if (sensor.getActive()) decrement(sensor.getSensorType());
+    }
+
+    /**
+     * Records a change in activation. Must be called before the sensor itself is updated.
+     */
+    void changed(Sensor sensor, boolean active) {
+        changed(sensor.getSensorType(), sensor.getActive(), active);
+    }
+
+    /**
+     * Records a change in activation of a sensor that was active or not before.
+     */
+    void changed(SensorType sensorType, boolean wasActive, boolean active) {
+        if (!wasActive && active) {
+            increment(sensorType);
+        } else if (wasActive && !active) {
+            decrement(sensorType);
+        }
+    }
+
+    int total() {
+        return total.get();
+    }
+
+    int count(SensorType sensorType) {
+        return byType.get(sensorType.ordinal());
+    }
+
+    private void increment(SensorType sensorType) {
+        byType.incrementAndGet(sensorType.ordinal());
+        total.incrementAndGet();
+    }
+
+    private void decrement(SensorType sensorType) {
+        //sensors toggled without ever being registered must not drive the counts negative
+        int previous = byType.getAndUpdate(sensorType.ordinal(), count -> Math.max(0, count - 1));
+        if (previous > 0) {
+            total.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.udacity.catpoint.secservice.service;
+
+import com.udacity.catpoint.secservice.data.AlarmStatus;
+import com.udacity.catpoint.secservice.data.ArmingStatus;
+
+import java.util.UUID;
+
+/**
+ * Something that happened to the security system, as seen by the alarm logic. Sensor events are
+ * only emitted for real changes: activating a sensor that is already active is not an event.
+ */
+public sealed interface AlarmEvent {
+    /**
+     * @param entryDelay Whether an entry delay is in force. A pending alarm then waits for
+     *                   {@link EntryDelayExpired} instead of being raised by another activation
+     */
+    record SensorActivated(UUID sensorId, boolean entryDelay) implements AlarmEvent {
+        public SensorActivated(UUID sensorId) {
+            this(sensorId, false);
+        }
+    }
+
+    record SensorDeactivated(UUID sensorId) implements AlarmEvent {
+    }
+
+    record SensorAdded(UUID sensorId, boolean active) implements AlarmEvent {
+    }
+
+    record SensorRemoved(UUID sensorId, boolean active) implements AlarmEvent {
+    }
+
+    record ImageClassified(boolean cat) implements AlarmEvent {
+    }
+
+    /**
+     * The system was armed or disarmed, which also deactivates every sensor.
+     */
+    record ArmingStatusChanged(ArmingStatus armingStatus) implements AlarmEvent {
+    }
+
+    /**
+     * The alarm status was set by hand.
+     */
+    record AlarmStatusChanged(AlarmStatus alarmStatus) implements AlarmEvent {
+    }
+
+    /**
+     * The entry delay ran out, raising an alarm that is still pending.
+     */
+    record EntryDelayExpired() implements AlarmEvent {
+    }
+}
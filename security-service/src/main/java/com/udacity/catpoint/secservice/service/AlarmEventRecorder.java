@@ -0,0 +1,167 @@
+package com.udacity.catpoint.secservice.service;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Writes the events fed into a {@link SecurityService} to a compact binary file, so a session can
+ * later be replayed through {@link AlarmReducer} with {@link AlarmEventReplayer}.
+ * <p>
+ * The file starts with {@code "CPEV"}, a format version and the state the recording started from:
+ * alarm status and arming status ordinals, the cat flag, the active sensor count as a varint and
+ * the start time in epoch milliseconds. Each event follows as:
+ * <ul>
+ *     <li>a tag byte: the event type in the low four bits, the event's boolean in bit 4, and bit 5
+ *     set when a sensor id follows in full</li>
+ *     <li>for sensor events, either the 16-byte sensor id (first time it is seen) or a varint index
+ *     into the ids seen so far</li>
+ *     <li>a varint of the milliseconds since the previous event</li>
+ *     <li>for status events, the status ordinal as one byte</li>
+ * </ul>
+ * Most events take three or four bytes. Output is buffered and only guaranteed to be on disk
+ * after {@link #flush()} or {@link #close()}.
+ */
+public class AlarmEventRecorder implements Closeable {
+    static final int MAGIC = 0x43504556; // "CPEV"
+    static final int VERSION = 1;
+
+    //event types
+    static final int SENSOR_ACTIVATED = 1;
+    static final int SENSOR_DEACTIVATED = 2;
+    static final int SENSOR_ADDED = 3;
+    static final int SENSOR_REMOVED = 4;
+    static final int IMAGE_CLASSIFIED = 5;
+    static final int ARMING_STATUS_CHANGED = 6;
+    static final int ALARM_STATUS_CHANGED = 7;
+    static final int ENTRY_DELAY_EXPIRED = 8;
+
+    static final int TYPE_MASK = 0x0F;
+    static final int FLAG = 0x10;
+    static final int NEW_SENSOR = 0x20;
+
+    private final DataOutputStream out;
+    private final Clock clock;
+    private final Map<UUID, Integer> sensorIndexes = new HashMap<>();
+    private long lastMillis;
+
+    public AlarmEventRecorder(Path file, AlarmState initialState) {
+        this(file, initialState, Clock.systemUTC());
+    }
+
+    public AlarmEventRecorder(Path file, AlarmState initialState, Clock clock) {
+        this.clock = clock;
+        this.lastMillis = clock.millis();
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeByte(initialState.alarmStatus().ordinal());
+            out.writeByte(initialState.armingStatus().ordinal());
+            out.writeBoolean(initialState.catDetected());
+            writeVarint(initialState.activeSensors());
+            out.writeLong(lastMillis);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to start recording to " + file, ioe);
+        }
+    }
+
+    public synchronized void record(AlarmEvent event) {
+        try {
+            write(event);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to record event", ioe);
+        }
+    }
+
+    /**
+     * Records several events that happened together, in order.
+     */
+    public synchronized void record(List<? extends AlarmEvent> events) {
+        try {
+            for (AlarmEvent event : events) {
+                write(event);
+            }
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to record events", ioe);
+        }
+    }
+
+    public synchronized void flush() {
+        try {
+            out.flush();
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to flush recording", ioe);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+
+    private void write(AlarmEvent event) throws IOException {
+        if (event instanceof AlarmEvent.SensorActivated e) {
+            writeSensorEvent(SENSOR_ACTIVATED, e.entryDelay(), e.sensorId());
+        } else if (event instanceof AlarmEvent.SensorDeactivated e) {
+            writeSensorEvent(SENSOR_DEACTIVATED, false, e.sensorId());
+        } else if (event instanceof AlarmEvent.SensorAdded e) {
+            writeSensorEvent(SENSOR_ADDED, e.active(), e.sensorId());
+        } else if (event instanceof AlarmEvent.SensorRemoved e) {
+            writeSensorEvent(SENSOR_REMOVED, e.active(), e.sensorId());
+        } else if (event instanceof AlarmEvent.ImageClassified e) {
+            out.writeByte(IMAGE_CLASSIFIED | (e.cat() ? FLAG : 0));
+            writeDelta();
+        } else if (event instanceof AlarmEvent.ArmingStatusChanged e) {
+            out.writeByte(ARMING_STATUS_CHANGED);
+            writeDelta();
+            out.writeByte(e.armingStatus().ordinal());
+        } else if (event instanceof AlarmEvent.AlarmStatusChanged e) {
+            out.writeByte(ALARM_STATUS_CHANGED);
+            writeDelta();
+            out.writeByte(e.alarmStatus().ordinal());
+        } else if (event instanceof AlarmEvent.EntryDelayExpired) {
+            out.writeByte(ENTRY_DELAY_EXPIRED);
+            writeDelta();
+        }
+    }
+
+    private void writeSensorEvent(int type, boolean flag, UUID sensorId) throws IOException {
+        Integer index = sensorIndexes.get(sensorId);
+        int tag = type | (flag ? FLAG : 0);
+        if (index == null) {
+            sensorIndexes.put(sensorId, sensorIndexes.size());
+            out.writeByte(tag | NEW_SENSOR);
+            out.writeLong(sensorId.getMostSignificantBits());
+            out.writeLong(sensorId.getLeastSignificantBits());
+        } else {
+            out.writeByte(tag);
+            writeVarint(index);
+        }
+        writeDelta();
+    }
+
+    private void writeDelta() throws IOException {
+        long now = clock.millis();
+        //a clock stepping backwards is recorded as no time passing
+        writeVarint(Math.max(0, now - lastMillis));
+        lastMillis = Math.max(lastMillis, now);
+    }
+
+    private void writeVarint(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+}
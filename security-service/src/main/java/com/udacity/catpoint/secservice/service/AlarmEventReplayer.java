@@ -0,0 +1,168 @@
+package com.udacity.catpoint.secservice.service;
+
+import com.udacity.catpoint.secservice.data.AlarmStatus;
+import com.udacity.catpoint.secservice.data.ArmingStatus;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static com.udacity.catpoint.secservice.service.AlarmEventRecorder.*;
+
+/**
+ * Reads a recording made by {@link AlarmEventRecorder}. Events are decoded one at a time, so a
+ * recording of any length is replayed in constant memory. A recording that ends in the middle of
+ * an event, e.g. because the process was killed, ends at the last complete event.
+ */
+public class AlarmEventReplayer implements Closeable {
+    private static final AlarmStatus[] ALARM_STATUSES = AlarmStatus.values();
+    private static final ArmingStatus[] ARMING_STATUSES = ArmingStatus.values();
+
+    private final DataInputStream in;
+    private final AlarmState initialState;
+    private final List<UUID> sensorIds = new ArrayList<>();
+    private long timestamp;
+
+    public AlarmEventReplayer(Path file) {
+        try {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+            if (in.readInt() != MAGIC) {
+                throw new IllegalArgumentException(file + " is not an alarm event recording");
+            }
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported recording version " + version);
+            }
+            AlarmStatus alarmStatus = ALARM_STATUSES[in.readUnsignedByte()];
+            ArmingStatus armingStatus = ARMING_STATUSES[in.readUnsignedByte()];
+            boolean catDetected = in.readBoolean();
+            int activeSensors = (int) readVarint();
+            initialState = new AlarmState(alarmStatus, armingStatus, catDetected, activeSensors);
+            timestamp = in.readLong();
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to open recording " + file, ioe);
+        }
+    }
+
+    /**
+     * Replays a whole recording as fast as possible and returns the state it ends in.
+     */
+    public static AlarmState replay(Path file) {
+        try (AlarmEventReplayer replayer = new AlarmEventReplayer(file)) {
+            AlarmState state = replayer.getInitialState();
+            for (AlarmEvent event = replayer.next(); event != null; event = replayer.next()) {
+                state = AlarmReducer.reduce(state, event);
+            }
+            return state;
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to close recording " + file, ioe);
+        }
+    }
+
+    public AlarmState getInitialState() {
+        return initialState;
+    }
+
+    /**
+     * Time the most recently read event happened, in epoch milliseconds. Before the first event
+     * this is the time the recording started.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Reads the next event.
+     *
+     * @return the event, or null at the end of the recording
+     */
+    public AlarmEvent next() {
+        try {
+            int tag = in.read();
+            if (tag < 0) {
+                return null;
+            }
+            return read(tag);
+        } catch (EOFException eof) {
+            return null;
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to read recording", ioe);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private AlarmEvent read(int tag) throws IOException {
+        boolean flag = (tag & FLAG) != 0;
+        int type = tag & TYPE_MASK;
+        switch (type) {
+            case SENSOR_ACTIVATED, SENSOR_DEACTIVATED, SENSOR_ADDED, SENSOR_REMOVED -> {
+                UUID sensorId = readSensorId((tag & NEW_SENSOR) != 0);
+                readDelta();
+                return switch (type) {
+                    case SENSOR_ACTIVATED -> new AlarmEvent.SensorActivated(sensorId, flag);
+                    case SENSOR_DEACTIVATED -> new AlarmEvent.SensorDeactivated(sensorId);
+                    case SENSOR_ADDED -> new AlarmEvent.SensorAdded(sensorId, flag);
+                    default -> new AlarmEvent.SensorRemoved(sensorId, flag);
+                };
+            }
+            case IMAGE_CLASSIFIED -> {
+                readDelta();
+                return new AlarmEvent.ImageClassified(flag);
+            }
+            case ARMING_STATUS_CHANGED -> {
+                readDelta();
+                return new AlarmEvent.ArmingStatusChanged(ARMING_STATUSES[in.readUnsignedByte()]);
+            }
+            case ALARM_STATUS_CHANGED -> {
+                readDelta();
+                return new AlarmEvent.AlarmStatusChanged(ALARM_STATUSES[in.readUnsignedByte()]);
+            }
+            case ENTRY_DELAY_EXPIRED -> {
+                readDelta();
+                return new AlarmEvent.EntryDelayExpired();
+            }
+            default -> throw new IllegalStateException("Unknown event type " + type + " in recording");
+        }
+    }
+
+    private UUID readSensorId(boolean isNew) throws IOException {
+        if (isNew) {
+            UUID sensorId = new UUID(in.readLong(), in.readLong());
+            sensorIds.add(sensorId);
+            return sensorId;
+        }
+        int index = (int) readVarint();
+        if (index >= sensorIds.size()) {
+            throw new IllegalStateException("Unknown sensor index " + index + " in recording");
+        }
+        return sensorIds.get(index);
+    }
+
+    private void readDelta() throws IOException {
+        timestamp += readVarint();
+    }
+
+    private long readVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed varint in recording");
+    }
+}
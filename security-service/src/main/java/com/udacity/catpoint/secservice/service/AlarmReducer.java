@@ -0,0 +1,114 @@
+package com.udacity.catpoint.secservice.service;
+
+import com.udacity.catpoint.secservice.data.AlarmStatus;
+import com.udacity.catpoint.secservice.data.ArmingStatus;
+
+/**
+ * The alarm rules, as a pure function from a state and an event to the next state. It neither
+ * reads nor writes anything else, so the same events always lead to the same state, whether they
+ * come from the live system or from a recording.
+ */
+public final class AlarmReducer {
+    private AlarmReducer() {
+    }
+
+    public static AlarmState reduce(AlarmState state, AlarmEvent event) {
+        if (event instanceof AlarmEvent.SensorActivated e) {
+            //with an entry delay running only its expiry escalates, however many sensors trip meanwhile
+            AlarmStatus alarmStatus = e.entryDelay() && state.alarmStatus() == AlarmStatus.PENDING_ALARM
+                    ? AlarmStatus.PENDING_ALARM
+                    : alarmStatusAfterActivation(state.alarmStatus(), state.armingStatus());
+            return new AlarmState(alarmStatus, state.armingStatus(), state.catDetected(), state.activeSensors() + 1);
+        }
+        if (event instanceof AlarmEvent.SensorDeactivated) {
+            return new AlarmState(alarmStatusAfterDeactivation(state.alarmStatus(), state.armingStatus()),
+                    state.armingStatus(), state.catDetected(), Math.max(0, state.activeSensors() - 1));
+        }
+        //adding or removing an active sensor changes the count but never the alarm
+        if (event instanceof AlarmEvent.SensorAdded e) {
+            return e.active() ? withActiveSensors(state, state.activeSensors() + 1) : state;
+        }
+        if (event instanceof AlarmEvent.SensorRemoved e) {
+            return e.active() ? withActiveSensors(state, Math.max(0, state.activeSensors() - 1)) : state;
+        }
+        if (event instanceof AlarmEvent.ImageClassified e) {
+            return imageClassified(state, e.cat());
+        }
+        if (event instanceof AlarmEvent.ArmingStatusChanged e) {
+            return armingStatusChanged(state, e.armingStatus());
+        }
+        if (event instanceof AlarmEvent.AlarmStatusChanged e) {
+            return state.withAlarmStatus(e.alarmStatus());
+        }
+        //only a pending alarm escalates; it may have been cleared or disarmed since the delay started
+        if (event instanceof AlarmEvent.EntryDelayExpired) {
+            return state.alarmStatus() == AlarmStatus.PENDING_ALARM && state.armingStatus() != ArmingStatus.DISARMED
+                    ? state.withAlarmStatus(AlarmStatus.ALARM) : state;
+        }
+        throw new IllegalArgumentException("Unknown event " + event);
+    }
+
+    public static AlarmState reduce(AlarmState state, Iterable<? extends AlarmEvent> events) {
+        for (AlarmEvent event : events) {
+            state = reduce(state, event);
+        }
+        return state;
+    }
+
+    private static AlarmState withActiveSensors(AlarmState state, int activeSensors) {
+        return new AlarmState(state.alarmStatus(), state.armingStatus(), state.catDetected(), activeSensors);
+    }
+
+    /**
+     * A cat while armed at home raises the alarm at once; no cat and no active sensors clears it.
+     */
+    private static AlarmState imageClassified(AlarmState state, boolean cat) {
+        AlarmStatus alarmStatus = state.alarmStatus();
+        if (cat && state.armingStatus() == ArmingStatus.ARMED_HOME) {
+            alarmStatus = AlarmStatus.ALARM;
+        } else if (!cat && state.activeSensors() == 0) {
+            alarmStatus = AlarmStatus.NO_ALARM;
+        }
+        return new AlarmState(alarmStatus, state.armingStatus(), cat, state.activeSensors());
+    }
+
+    /**
+     * Disarming clears the alarm; arming with a cat in view raises it. Either way every sensor is
+     * reset to inactive.
+     */
+    private static AlarmState armingStatusChanged(AlarmState state, ArmingStatus armingStatus) {
+        AlarmStatus alarmStatus = state.alarmStatus();
+        if (armingStatus == ArmingStatus.DISARMED) {
+            alarmStatus = AlarmStatus.NO_ALARM;
+        } else if (state.catDetected()) {
+            alarmStatus = AlarmStatus.ALARM;
+        }
+        return new AlarmState(alarmStatus, armingStatus, state.catDetected(), 0);
+    }
+
+    /**
+     * Alarm status the system moves to when a sensor is activated.
+     */
+    static AlarmStatus alarmStatusAfterActivation(AlarmStatus alarmStatus, ArmingStatus armingStatus) {
+        if (armingStatus == ArmingStatus.DISARMED || alarmStatus == AlarmStatus.ALARM) return alarmStatus;
+
+        return switch (alarmStatus) {
+            case NO_ALARM -> AlarmStatus.PENDING_ALARM;
+            case PENDING_ALARM -> AlarmStatus.ALARM;
+            default -> alarmStatus;
+        };
+    }
+
+    /**
+     * Alarm status the system moves to when a sensor is deactivated.
+     */
+    static AlarmStatus alarmStatusAfterDeactivation(AlarmStatus alarmStatus, ArmingStatus armingStatus) {
+        if (armingStatus == ArmingStatus.DISARMED || alarmStatus == AlarmStatus.ALARM) return alarmStatus;
+
+        return switch (alarmStatus) {
+            case PENDING_ALARM -> AlarmStatus.NO_ALARM;
+            case ALARM -> AlarmStatus.PENDING_ALARM;
+            default -> alarmStatus;
+        };
+    }
+}
@@ -0,0 +1,16 @@
+package com.udacity.catpoint.secservice.service;
+
+import com.udacity.catpoint.secservice.data.AlarmStatus;
+import com.udacity.catpoint.secservice.data.ArmingStatus;
+
+/**
+ * Everything the alarm decisions depend on. Immutable; {@link AlarmReducer} produces a new state
+ * for every event.
+ *
+ * @param activeSensors Number of currently active sensors
+ */
+public record AlarmState(AlarmStatus alarmStatus, ArmingStatus armingStatus, boolean catDetected, int activeSensors) {
+    AlarmState withAlarmStatus(AlarmStatus alarmStatus) {
+        return new AlarmState(alarmStatus, armingStatus, catDetected, activeSensors);
+    }
+}
@@ -0,0 +1,29 @@
+package com.udacity.catpoint.secservice.service;
+
+import java.time.Duration;
+
+/**
+ * How long the security system waits before acting on its inputs. {@link #IMMEDIATE}, all zero,
+ * acts on everything at once and is the default.
+ *
+ * @param sensorDebounce How long a sensor has to keep a new activation state before the change is
+ *                       applied. A change undone within the window is never applied at all, so a
+ *                       chattering sensor causes no alarm transitions, writes or notifications
+ * @param entryDelay     How long an alarm stays pending before it is raised, leaving time to disarm
+ *                       the system or for the sensors to go quiet again
+ * @param exitDelay      How long after arming a disarmed system the arming takes effect, leaving
+ *                       time to get out of the house
+ */
+public record AlarmTiming(Duration sensorDebounce, Duration entryDelay, Duration exitDelay) {
+    public static final AlarmTiming IMMEDIATE = new AlarmTiming(Duration.ZERO, Duration.ZERO, Duration.ZERO);
+
+    public AlarmTiming {
+        if (sensorDebounce.isNegative() || entryDelay.isNegative() || exitDelay.isNegative()) {
+            throw new IllegalArgumentException("Delays must not be negative");
+        }
+    }
+
+    boolean isImmediate() {
+        return sensorDebounce.isZero() && entryDelay.isZero() && exitDelay.isZero();
+    }
+}
@@ -0,0 +1,204 @@
+package com.udacity.catpoint.secservice.service;
+
+import com.udacity.catpoint.secservice.data.AlarmStatus;
+import com.udacity.catpoint.secservice.data.ArmingStatus;
+import com.udacity.catpoint.secservice.data.Sensor;
+import com.udacity.catpoint.secservice.metrics.Counter;
+import com.udacity.catpoint.secservice.metrics.MetricsRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * The timers behind an {@link AlarmTiming}, all kept on one {@link HashedWheelTimer}:
+ * <ul>
+ *     <li>one per sensor whose activation change is waiting out the debounce window. Every further
+ *     change restarts the window; a change back to the applied state cancels it</li>
+ *     <li>one for the entry delay while the alarm is pending</li>
+ *     <li>one for the exit delay while an arming is waiting to take effect</li>
+ * </ul>
+ * When a timer fires the consumer it belongs to is called on the timer's thread. Changes absorbed
+ * by the debounce window are counted under {@code service.debounce.suppressed}.
+ */
+class AlarmTimingEngine {
+    private final AlarmTiming timing;
+    private final HashedWheelTimer timer;
+    private final UnaryOperator<Sensor> stored;
+    private final BiConsumer<Sensor, Boolean> activationConsumer;
+    private final Runnable escalation;
+    private final Consumer<ArmingStatus> armingConsumer;
+    private final Counter suppressed;
+
+    private final Map<UUID, PendingActivation> debouncing = new ConcurrentHashMap<>();
+
+    // guarded by this; the generations tell a timer that fires after it was replaced to do nothing
+    private HashedWheelTimer.Timeout entryDelay;
+    private long entryDelayGeneration;
+    private HashedWheelTimer.Timeout exitDelay;
+    private long exitDelayGeneration;
+    private ArmingStatus pendingArmingStatus;
+
+    AlarmTimingEngine(AlarmTiming timing, HashedWheelTimer timer, MetricsRegistry metrics,
+                      UnaryOperator<Sensor> stored, BiConsumer<Sensor, Boolean> activationConsumer, Runnable escalation,
+                      Consumer<ArmingStatus> armingConsumer) {
+        this.timing = timing;
+        this.timer = timer;
+        this.stored = stored;
+        this.activationConsumer = activationConsumer;
+        this.escalation = escalation;
+        this.armingConsumer = armingConsumer;
+        this.suppressed = metrics.counter("service.debounce.suppressed");
+    }
+
+    boolean debouncesSensors() {
+        return !timing.sensorDebounce().isZero();
+    }
+
+    boolean delaysEntry() {
+        return !timing.entryDelay().isZero();
+    }
+
+    /**
+     * Starts or restarts the debounce window of a sensor. The stored sensor's active flag is the
+     * state that was last applied.
+     */
+    void sensorChanged(Sensor sensor, boolean active) {
+        debouncing.compute(sensor.getSensorId(), (id, pending) -> {
+            if (pending != null) {
+                pending.timeout.cancel();
+                suppressed.increment();
+            }
+            if (stored.apply(sensor).getActive() == active) {
+                return null;
+            }
+            PendingActivation next = new PendingActivation(sensor, active);
+            next.timeout = timer.schedule(() -> settle(id, next), timing.sensorDebounce());
+            return next;
+        });
+    }
+
+    private void settle(UUID id, PendingActivation pending) {
+        if (debouncing.remove(id, pending)) {
+            activationConsumer.accept(pending.sensor, pending.active);
+        }
+    }
+
+    /**
+     * Starts the entry delay when the alarm becomes pending, and stops it when it stops being
+     * pending.
+     */
+    synchronized void alarmStatusChanged(AlarmStatus status) {
+        if (entryDelay != null) {
+            entryDelay.cancel();
+            entryDelay = null;
+        }
+        if (status == AlarmStatus.PENDING_ALARM && !timing.entryDelay().isZero()) {
+            long generation = ++entryDelayGeneration;
+            entryDelay = timer.schedule(() -> entryDelayExpired(generation), timing.entryDelay());
+        }
+    }
+
+    private void entryDelayExpired(long generation) {
+        synchronized (this) {
+            if (generation != entryDelayGeneration || entryDelay == null) {
+                return;
+            }
+            entryDelay = null;
+        }
+        escalation.run();
+    }
+
+    /**
+     * Decides whether an arming change has to wait for the exit delay. Disarming always happens at
+     * once and calls off a pending arming; switching between armed modes needs no exit delay.
+     *
+     * @return true if the change is now pending and must not be applied yet
+     */
+    synchronized boolean deferArming(ArmingStatus current, ArmingStatus requested) {
+        if (requested == ArmingStatus.DISARMED || timing.exitDelay().isZero()) {
+            cancelExitDelay();
+            return false;
+        }
+        if (exitDelay != null) {
+            //keep counting down, but arm the way that was asked for last
+            pendingArmingStatus = requested;
+            return true;
+        }
+        if (current != ArmingStatus.DISARMED) {
+            return false;
+        }
+        pendingArmingStatus = requested;
+        long generation = ++exitDelayGeneration;
+        exitDelay = timer.schedule(() -> exitDelayExpired(generation), timing.exitDelay());
+        return true;
+    }
+
+    /**
+     * Arming status waiting for the exit delay to pass, or null.
+     */
+    synchronized ArmingStatus getPendingArmingStatus() {
+        return pendingArmingStatus;
+    }
+
+    private void exitDelayExpired(long generation) {
+        ArmingStatus armingStatus;
+        synchronized (this) {
+            if (generation != exitDelayGeneration || exitDelay == null) {
+                return;
+            }
+            armingStatus = pendingArmingStatus;
+            cancelExitDelay();
+        }
+        armingConsumer.accept(armingStatus);
+    }
+
+    private void cancelExitDelay() {
+        if (exitDelay != null) {
+            exitDelay.cancel();
+            exitDelay = null;
+        }
+        pendingArmingStatus = null;
+    }
+
+    /**
+     * Stops every timer. Sensor changes and an arming that were waiting are applied at once rather
+     * than lost; a pending alarm stays pending.
+     */
+    void close() {
+        List<PendingActivation> waiting = new ArrayList<>(debouncing.values());
+        ArmingStatus armingStatus;
+        synchronized (this) {
+            if (entryDelay != null) {
+                entryDelay.cancel();
+                entryDelay = null;
+            }
+            armingStatus = pendingArmingStatus;
+            cancelExitDelay();
+        }
+        for (PendingActivation pending : waiting) {
+            if (pending.timeout.cancel()) {
+                settle(pending.sensor.getSensorId(), pending);
+            }
+        }
+        if (armingStatus != null) {
+            armingConsumer.accept(armingStatus);
+        }
+    }
+
+    private static final class PendingActivation {
+        final Sensor sensor;
+        final boolean active;
+        HashedWheelTimer.Timeout timeout;
+
+        PendingActivation(Sensor sensor, boolean active) {
+            this.sensor = sensor;
+            this.active = active;
+        }
+    }
+}
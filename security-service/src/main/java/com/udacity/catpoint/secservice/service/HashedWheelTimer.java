@@ -0,0 +1,269 @@
+package com.udacity.catpoint.secservice.service;
+
+import com.udacity.catpoint.secservice.metrics.Counter;
+import com.udacity.catpoint.secservice.metrics.MetricsRegistry;
+
+import java.io.Closeable;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Timer that keeps its timeouts in a ring of buckets, one bucket per tick, like hours on a clock
+ * face. Scheduling and cancelling cost O(1) whatever the number of outstanding timeouts, and no
+ * timeout needs a thread of its own: one thread, or whoever calls {@link #expire()}, turns the
+ * wheel tick by tick and runs the timeouts that are due. A timeout more than one turn away waits
+ * in its bucket until the wheel comes round to it on the right turn.
+ * <p>
+ * A timeout runs once the tick it falls in is over, so never early and at most one tick late, plus
+ * however late {@link #expire()} is called. Time is read from the given {@link Clock}: tests can
+ * move a clock by hand and call {@link #expire()} themselves instead of {@link #start() starting}
+ * the timer thread. Tasks run one at a time; a task that throws is counted under
+ * {@code timer.failures} and does not affect the others.
+ */
+public class HashedWheelTimer implements Closeable {
+    private static final Duration DEFAULT_TICK = Duration.ofMillis(10);
+    private static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private final Clock clock;
+    private final long tickMillis;
+    private final long startMillis;
+    //first timeout of each bucket's list
+    private final Timeout[] wheel;
+    private final int mask;
+    //handed over from other threads, linked into the wheel on the next tick
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingTimeouts = new AtomicInteger();
+    private final Counter failures;
+    //next tick to expire, guarded by this
+    private long tick;
+    private volatile boolean closed;
+    private Thread worker;
+
+    public HashedWheelTimer() {
+        this(DEFAULT_TICK, DEFAULT_WHEEL_SIZE, Clock.systemUTC(), MetricsRegistry.noop());
+    }
+
+    /**
+     * @param tick      Resolution of the timer, at least a millisecond
+     * @param wheelSize Number of buckets, rounded up to a power of two. Timeouts within
+     *                  {@code tick * wheelSize} of now are found without looking at any others
+     * @param clock     Clock the timer reads the time from
+     * @param metrics   Registry to count failed tasks in
+     */
+    public HashedWheelTimer(Duration tick, int wheelSize, Clock clock, MetricsRegistry metrics) {
+        if (tick.toMillis() < 1) {
+            throw new IllegalArgumentException("tick must be at least a millisecond");
+        }
+        if (wheelSize < 1 || wheelSize > 1 << 30) {
+            throw new IllegalArgumentException("wheelSize must be between 1 and 2^30");
+        }
+        this.clock = clock;
+        this.tickMillis = tick.toMillis();
+        this.startMillis = clock.millis();
+        this.wheel = new Timeout[wheelSize == 1 ? 1 : Integer.highestOneBit(wheelSize - 1) << 1];
+        this.mask = wheel.length - 1;
+        this.failures = metrics.counter("timer.failures");
+    }
+
+    /**
+     * Runs a task once the delay has passed.
+     *
+     * @return the timeout, to cancel the task with
+     */
+    public Timeout schedule(Runnable task, Duration delay) {
+        if (closed) {
+            throw new IllegalStateException("Timer is closed");
+        }
+        long deadline = Math.max(0, clock.millis() - startMillis + Math.max(0, delay.toMillis()));
+        Timeout timeout = new Timeout(task, (deadline + tickMillis - 1) / tickMillis);
+        pendingTimeouts.incrementAndGet();
+        scheduled.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Number of timeouts that have neither run nor been cancelled.
+     */
+    public int getPendingTimeouts() {
+        return pendingTimeouts.get();
+    }
+
+    public Clock getClock() {
+        return clock;
+    }
+
+    /**
+     * Turns the wheel up to the current time, running every task that is due on the calling
+     * thread.
+     *
+     * @return the number of tasks run
+     */
+    public synchronized int expire() {
+        long now = clock.millis() - startMillis;
+        int expired = 0;
+        while (tick * tickMillis <= now) {
+            transferScheduled();
+            removeCancelled();
+            if (pendingTimeouts.get() == 0) {
+                //nothing can be due; skip the empty ticks instead of visiting each of them
+                tick = now / tickMillis + 1;
+                break;
+            }
+            expired += expireBucket(tick);
+            tick++;
+        }
+        return expired;
+    }
+
+    /**
+     * Starts a daemon thread that calls {@link #expire()} once per tick.
+     */
+    public synchronized void start() {
+        if (worker != null) {
+            throw new IllegalStateException("Timer already started");
+        }
+        worker = new Thread(() -> {
+            while (!closed) {
+                try {
+                    Thread.sleep(tickMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                expire();
+            }
+        }, "security-timer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Stops the timer thread. Timeouts that have not run yet never will.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Thread thread;
+        synchronized (this) {
+            thread = worker;
+        }
+        if (thread != null && thread != Thread.currentThread()) {
+            thread.interrupt();
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void transferScheduled() {
+        for (Timeout timeout = scheduled.poll(); timeout != null; timeout = scheduled.poll()) {
+            if (timeout.state.get() != Timeout.WAITING) {
+                continue;
+            }
+            //a timeout that is already due goes into the tick about to expire
+            timeout.deadlineTick = Math.max(timeout.deadlineTick, tick);
+            int bucket = (int) (timeout.deadlineTick & mask);
+            timeout.bucket = bucket;
+            timeout.next = wheel[bucket];
+            if (wheel[bucket] != null) {
+                wheel[bucket].prev = timeout;
+            }
+            wheel[bucket] = timeout;
+        }
+    }
+
+    private void removeCancelled() {
+        for (Timeout timeout = cancelled.poll(); timeout != null; timeout = cancelled.poll()) {
+            unlink(timeout);
+        }
+    }
+
+    private int expireBucket(long current) {
+        int expired = 0;
+        Timeout timeout = wheel[(int) (current & mask)];
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            //later turns of the wheel share the bucket
+            if (timeout.deadlineTick <= current) {
+                unlink(timeout);
+                if (timeout.state.compareAndSet(Timeout.WAITING, Timeout.EXPIRED)) {
+                    pendingTimeouts.decrementAndGet();
+                    expired++;
+                    try {
+                        timeout.task.run();
+                    } catch (RuntimeException e) {
+                        failures.increment();
+                    }
+                }
+            }
+            timeout = next;
+        }
+        return expired;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.bucket < 0) {
+            return;
+        }
+        if (timeout.prev == null) {
+            wheel[timeout.bucket] = timeout.next;
+        } else {
+            timeout.prev.next = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.bucket = -1;
+    }
+
+    /**
+     * A task waiting in the timer.
+     */
+    public final class Timeout {
+        private static final int WAITING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final Runnable task;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+        //list links and position in the wheel, guarded by the timer
+        private long deadlineTick;
+        private int bucket = -1;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(Runnable task, long deadlineTick) {
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        /**
+         * Keeps the task from running.
+         *
+         * @return false if the task already ran or was cancelled before
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(WAITING, CANCELLED)) {
+                return false;
+            }
+            pendingTimeouts.decrementAndGet();
+            cancelled.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+    }
+}
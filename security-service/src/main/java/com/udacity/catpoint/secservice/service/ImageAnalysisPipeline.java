@@ -0,0 +1,175 @@
+package com.udacity.catpoint.secservice.service;
+
+import com.udacity.catpoint.imageservice.ImageService;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Runs image classification off the caller's thread. At most {@code maxInFlight} images are
+ * classified at once; while all slots are busy only the newest frame is kept waiting and any
+ * frame it replaces is cancelled, so a slow image service never builds up a backlog.
+ * <p>
+ * Results are handed to the consumer in submission order: once the result for a frame has been
+ * applied, results for older frames that finish later are discarded rather than rolling the
+ * system back to a stale verdict.
+ */
+class ImageAnalysisPipeline implements AutoCloseable {
+    private final ImageService imageService;
+    private final float confidenceThreshold;
+    private final Consumer<Boolean> resultConsumer;
+    private final int maxInFlight;
+    private final Duration timeout;
+    private final ExecutorService executor;
+
+    // guarded by this
+    private long submitted;
+    private int inFlight;
+    private Frame waiting;
+
+    // held while a verdict is checked and applied, so verdicts are applied one at a time and in
+    // order without ever making submit() wait for the consumer
+    private final Object applyLock = new Object();
+    // guarded by applyLock
+    private long lastApplied;
+
+    ImageAnalysisPipeline(ImageService imageService, float confidenceThreshold, Consumer<Boolean> resultConsumer,
+                          int maxInFlight, Duration timeout) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be positive");
+        }
+        this.imageService = imageService;
+        this.confidenceThreshold = confidenceThreshold;
+        this.resultConsumer = resultConsumer;
+        this.maxInFlight = maxInFlight;
+        this.timeout = timeout;
+        this.executor = newExecutor(maxInFlight);
+    }
+
+    /**
+     * Queues an image for classification.
+     *
+     * @return a future completed with the verdict, cancelled if a newer frame superseded this one
+     * before it started, or failed with a TimeoutException if classification took too long
+     */
+    CompletableFuture<Boolean> submit(BufferedImage image) {
+        Frame frame;
+        synchronized (this) {
+            frame = new Frame(++submitted, image);
+            if (inFlight < maxInFlight) {
+                inFlight++;
+            } else {
+                if (waiting != null) {
+                    waiting.result.cancel(false);
+                }
+                waiting = frame;
+                return frame.result;
+            }
+        }
+        start(frame);
+        return frame.result;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void start(Frame frame) {
+        executor.execute(() -> classify(frame));
+        frame.result.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((cat, error) -> {
+                    if (error != null) frame.interrupt();
+                });
+    }
+
+    private void classify(Frame frame) {
+        try {
+            if (frame.result.isDone()) return;
+            boolean cat;
+            frame.enter();
+            try {
+                cat = imageService.imageContainsCat(frame.image, confidenceThreshold);
+            } finally {
+                frame.exit();
+            }
+            synchronized (applyLock) {
+                if (frame.result.isDone() || frame.sequence < lastApplied) {
+                    // timed out meanwhile, or a newer frame's verdict is already in effect
+                    frame.result.complete(cat);
+                    return;
+                }
+                lastApplied = frame.sequence;
+                resultConsumer.accept(cat);
+            }
+            frame.result.complete(cat);
+        } catch (RuntimeException e) {
+            frame.result.completeExceptionally(e);
+        } finally {
+            finished();
+        }
+    }
+
+    private void finished() {
+        Frame next;
+        synchronized (this) {
+            next = waiting;
+            waiting = null;
+            if (next == null) {
+                inFlight--;
+                return;
+            }
+        }
+        // the slot passes straight to the waiting frame
+        start(next);
+    }
+
+    /**
+     * Uses a virtual thread per task where the runtime offers them, otherwise a small pool of
+     * daemon threads sized to the number of frames allowed in flight.
+     */
+    private static ExecutorService newExecutor(int threads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Executors.newFixedThreadPool(threads, r -> {
+                Thread thread = new Thread(r, "image-analysis");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private static final class Frame {
+        private final long sequence;
+        private final BufferedImage image;
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        private Thread worker;
+
+        private Frame(long sequence, BufferedImage image) {
+            this.sequence = sequence;
+            this.image = image;
+        }
+
+        // a timed out frame interrupts its worker only while it is inside the image service, so
+        // the interrupt can never land in the repository write that follows
+        private synchronized void enter() {
+            worker = Thread.currentThread();
+        }
+
+        private synchronized void exit() {
+            worker = null;
+            Thread.interrupted();
+        }
+
+        private synchronized void interrupt() {
+            if (worker != null) worker.interrupt();
+        }
+    }
+}
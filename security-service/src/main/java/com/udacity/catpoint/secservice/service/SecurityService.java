@@ -1,33 +1,279 @@
 package com.udacity.catpoint.secservice.service;
 
 import com.udacity.catpoint.imageservice.ImageService;
+import com.udacity.catpoint.secservice.application.AsyncStatusListener;
+import com.udacity.catpoint.secservice.application.SensorChange;
+import com.udacity.catpoint.secservice.application.SensorChangeEvent;
 import com.udacity.catpoint.secservice.application.StatusListener;
 import com.udacity.catpoint.secservice.data.AlarmStatus;
 import com.udacity.catpoint.secservice.data.ArmingStatus;
 import com.udacity.catpoint.secservice.data.SecurityRepository;
 import com.udacity.catpoint.secservice.data.Sensor;
+import com.udacity.catpoint.secservice.data.SensorType;
+import com.udacity.catpoint.secservice.metrics.Counter;
+import com.udacity.catpoint.secservice.metrics.MetricsRegistry;
+import com.udacity.catpoint.secservice.metrics.Timer;
 
 import java.awt.image.BufferedImage;
-import java.util.HashSet;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 
 /**
  * Service that receives information about changes to the security system. Responsible for
  * forwarding updates to the repository and making any decisions about changing the system state.
  * This is the class that should contain most of the business logic for our system, and it is the
  * class you will be writing unit tests for.
+ * <p>
+ * By default the repository is the source of truth for the alarm and arming status. A service
+ * created with {@link #concurrent(SecurityRepository, ImageService)} instead keeps that state in an
+ * immutable record that is swapped with compare-and-set, so sensor events and image results can be
+ * fed in from many threads at once; the repository then has to be thread-safe as well.
+ * <p>
+ * Given a {@link MetricsRegistry}, the service times its decisions under
+ * {@code service.sensorDecision}, {@code service.imageDecision} and {@code service.armingChange},
+ * and counts alarm status changes under {@code service.alarmStatus.<status>} and listeners that
+ * threw under {@code service.listenerFailures}.
+ * <p>
+ * Every input is turned into {@link AlarmEvent}s and the decisions themselves are made by
+ * {@link AlarmReducer}. {@link #startRecording(Path)} captures those events so a session can be
+ * replayed later with {@link AlarmEventReplayer}.
+ * <p>
+ * A concurrent service can be given an {@link AlarmTiming} with {@link #setTiming(AlarmTiming,
+ * HashedWheelTimer)}: sensor changes are then debounced, and a pending alarm and an arming of the
+ * system take effect only after their delays.
  */
 public class SecurityService {
+    private static final int SENSOR_LOCK_STRIPES = 64;
+    private static final float CAT_CONFIDENCE_THRESHOLD = 50.0f;
+    private static final Duration IMAGE_ANALYSIS_TIMEOUT = Duration.ofSeconds(10);
+
     private final ImageService imageService;
     private final SecurityRepository securityRepository;
-    private final Set<StatusListener> statusListeners = new HashSet<>();
-    private boolean doWeHaveStupidCats;
+    private final Set<StatusListener> statusListeners = new CopyOnWriteArraySet<>();
+    private final ActiveSensorCounter activeSensors = new ActiveSensorCounter();
+    private final Object[] sensorLocks = new Object[SENSOR_LOCK_STRIPES];
+    private volatile ImageAnalysisPipeline imageAnalysisPipeline;
+    private volatile boolean doWeHaveStupidCats;
+    private final AtomicLong sensorVersion = new AtomicLong();
+
+    private final Timer sensorDecisionTimer;
+    private final Timer imageDecisionTimer;
+    private final Timer armingChangeTimer;
+    private final Counter[] alarmStatusCounters;
+    private final Counter listenerFailures;
+    private final MetricsRegistry metrics;
+
+    // only used by the concurrent service; state is authoritative, published is what the
+    // repository and the listeners have seen so far
+    private final AtomicReference<AlarmState> state;
+    private final Object publishLock = new Object();
+    private AlarmState published;
+
+    // transitions hold the read lock, so starting or stopping a recording sees no event half-applied
+    private final ReadWriteLock recordingLock = new ReentrantReadWriteLock();
+    private volatile AlarmEventRecorder recorder;
+
+    // null while the service acts on everything at once
+    private volatile AlarmTimingEngine timing;
 
     public SecurityService(SecurityRepository securityRepository, ImageService imageService) {
+        this(securityRepository, imageService, MetricsRegistry.noop(), false);
+    }
+
+    /**
+     * @param securityRepository - Repository
+     * @param imageService       - Image Service
+     * @param metrics            - Registry the service records its metrics in
+     */
+    public SecurityService(SecurityRepository securityRepository, ImageService imageService, MetricsRegistry metrics) {
+        this(securityRepository, imageService, metrics, false);
+    }
+
+    private SecurityService(SecurityRepository securityRepository, ImageService imageService,
+                            MetricsRegistry metrics, boolean concurrent) {
         this.securityRepository = securityRepository;
         this.imageService = imageService;
         this.doWeHaveStupidCats = false;
+        this.sensorDecisionTimer = metrics.timer("service.sensorDecision");
+        this.imageDecisionTimer = metrics.timer("service.imageDecision");
+        this.armingChangeTimer = metrics.timer("service.armingChange");
+        this.listenerFailures = metrics.counter("service.listenerFailures");
+        this.metrics = metrics;
+        this.alarmStatusCounters = new Counter[AlarmStatus.values().length];
+        for (AlarmStatus status : AlarmStatus.values()) {
+            alarmStatusCounters[status.ordinal()] = metrics.counter("service.alarmStatus." + status.name());
+        }
+        this.activeSensors.reset(securityRepository.getSensors());
+        for (int i = 0; i < sensorLocks.length; i++) {
+            sensorLocks[i] = new Object();
+        }
+
+        if (concurrent) {
+            this.published = new AlarmState(securityRepository.getAlarmStatus(),
+                    securityRepository.getArmingStatus(), false, activeSensors.total());
+            this.state = new AtomicReference<>(published);
+        } else {
+            this.state = null;
+        }
+    }
+
+    /**
+     * Creates a SecurityService that can safely be called from many threads at once. Alarm
+     * transitions are applied atomically and the resulting status is written to the repository
+     * and listeners in order, so racing sensor events cannot skip or undo a transition.
+     *
+     * @param securityRepository - A thread-safe repository
+     * @param imageService       - Image Service
+     */
+    public static SecurityService concurrent(SecurityRepository securityRepository, ImageService imageService) {
+        return new SecurityService(securityRepository, imageService, MetricsRegistry.noop(), true);
+    }
+
+    /**
+     * Creates a thread-safe SecurityService that records its metrics in the given registry.
+     *
+     * @see #concurrent(SecurityRepository, ImageService)
+     */
+    public static SecurityService concurrent(SecurityRepository securityRepository, ImageService imageService,
+                                             MetricsRegistry metrics) {
+        return new SecurityService(securityRepository, imageService, metrics, true);
+    }
+
+    /**
+     * Internal method that applies events to the alarm state, in order. Without a concurrent state
+     * the current status is read from the repository and any difference is written straight back.
+     */
+    private void apply(List<AlarmEvent> events) {
+        Lock lock = recordingLock.readLock();
+        lock.lock();
+        try {
+            AlarmEventRecorder rec = recorder;
+            if (state == null) {
+                AlarmState before = currentRepositoryState();
+                AlarmState after = AlarmReducer.reduce(before, events);
+                doWeHaveStupidCats = after.catDetected();
+                if (rec != null) {
+                    rec.record(events);
+                }
+                publish(before, after);
+                return;
+            }
+
+            if (rec == null) {
+                state.updateAndGet(s -> AlarmReducer.reduce(s, events));
+            } else {
+                // keep the recording in the same order as the updates
+                synchronized (rec) {
+                    state.updateAndGet(s -> AlarmReducer.reduce(s, events));
+                    rec.record(events);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        synchronized (publishLock) {
+            // always publish the latest state, so a slower thread can never overwrite a newer status
+            AlarmState latest = state.get();
+            publish(published, latest);
+            published = latest;
+        }
+    }
+
+    private void apply(AlarmEvent event) {
+        apply(List.of(event));
+    }
+
+    /**
+     * Internal method for events that only change the active sensor count. The repository keeps no
+     * count of its own, so without a concurrent state they only need recording.
+     */
+    private void applySensorCount(List<AlarmEvent> events) {
+        if (state != null) {
+            apply(events);
+        } else {
+            record(events);
+        }
+    }
+
+    private void record(List<AlarmEvent> events) {
+        if (recorder == null) {
+            return;
+        }
+        Lock lock = recordingLock.readLock();
+        lock.lock();
+        try {
+            AlarmEventRecorder rec = recorder;
+            if (rec != null) {
+                rec.record(events);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private AlarmState currentRepositoryState() {
+        return new AlarmState(securityRepository.getAlarmStatus(), securityRepository.getArmingStatus(),
+                doWeHaveStupidCats, activeSensors.total());
+    }
+
+    private void publish(AlarmState before, AlarmState after) {
+        if (after.alarmStatus() != before.alarmStatus()) {
+            writeAlarmStatus(after.alarmStatus());
+        }
+        if (after.armingStatus() != before.armingStatus()) {
+            securityRepository.setArmingStatus(after.armingStatus());
+        }
+    }
+
+    private void writeAlarmStatus(AlarmStatus status) {
+        alarmStatusCounters[status.ordinal()].increment();
+        securityRepository.setAlarmStatus(status);
+        notifyListeners(sl -> sl.notify(status));
+        AlarmTimingEngine engine = timing;
+        if (engine != null) {
+            engine.alarmStatusChanged(status);
+        }
+    }
+
+    /**
+     * Lock guarding the read-modify-write of a single sensor's activation state.
+     */
+    private Object lockFor(Sensor sensor) {
+        return sensorLocks[Math.floorMod(sensor.getSensorId().hashCode(), sensorLocks.length)];
+    }
+
+    /**
+     * Whether an entry delay is in force, in which case only its expiry raises a pending alarm.
+     */
+    private boolean delaysEntry() {
+        AlarmTimingEngine engine = timing;
+        return engine != null && engine.delaysEntry();
+    }
+
+    /**
+     * The repository's current version of a sensor. Callers may hold an outdated copy, e.g. one
+     * read from an earlier snapshot, whose active flag says nothing about the sensor's state now.
+     */
+    private Sensor stored(Sensor sensor) {
+        Sensor stored = securityRepository.findSensor(sensor);
+        return stored == null ? sensor : stored;
     }
 
     /**
@@ -37,19 +283,15 @@ public class SecurityService {
      * @param cat True if a cat is detected, otherwise false.
      */
     private void catDetected(boolean cat) {
-        this.doWeHaveStupidCats = cat;
-        if (cat && getArmingStatus() == ArmingStatus.ARMED_HOME) {
-            this.setAlarmStatus(AlarmStatus.ALARM);
-        } else {
-            long activeSenors = this.getSensors().stream().filter(Sensor::getActive).count();
-            if (!cat && !(activeSenors > 0)) this.setAlarmStatus(AlarmStatus.NO_ALARM);
-        }
+        apply(new AlarmEvent.ImageClassified(cat));
 
-        statusListeners.forEach(sl -> sl.catDetected(cat));
+        notifyListeners(sl -> sl.catDetected(cat));
     }
 
     /**
-     * Register the StatusListener for alarm system updates from within the SecurityService.
+     * Register the StatusListener for alarm system updates from within the SecurityService. The
+     * listener is called on whichever thread made the change, before the change returns; register
+     * slow listeners with {@link #addStatusListener(StatusListener, Executor)} instead.
      *
      * @param statusListener - Status Listener
      */
@@ -57,36 +299,54 @@ public class SecurityService {
         statusListeners.add(statusListener);
     }
 
+    /**
+     * Register a StatusListener that is notified on the given executor, e.g.
+     * {@code SwingUtilities::invokeLater} for UI components. Changes never wait for the listener;
+     * notifications it has not caught up with are coalesced, see {@link AsyncStatusListener}.
+     *
+     * @param statusListener - Status Listener
+     * @param executor       - Executor the listener is notified on
+     */
+    public void addStatusListener(StatusListener statusListener, Executor executor) {
+        String name = statusListener.getClass().getSimpleName();
+        statusListeners.add(new AsyncStatusListener(statusListener, executor, metrics,
+                name.isEmpty() ? statusListener.getClass().getName() : name));
+    }
+
     public void removeStatusListener(StatusListener statusListener) {
-        statusListeners.remove(statusListener);
+        statusListeners.removeIf(sl -> sl.equals(statusListener)
+                || sl instanceof AsyncStatusListener async && async.getDelegate().equals(statusListener));
     }
 
     /**
-     * Internal method for updating the alarm status when a sensor has been activated.
+     * Tells listeners exactly which sensors changed, as one event with a new version.
      */
-    private void handleSensorActivated() {
-        if (this.getArmingStatus() == ArmingStatus.DISARMED ||
-                this.getAlarmStatus() == AlarmStatus.ALARM) return;
-
-        switch (this.getAlarmStatus()) {
-            case NO_ALARM -> setAlarmStatus(AlarmStatus.PENDING_ALARM);
-            case PENDING_ALARM -> setAlarmStatus(AlarmStatus.ALARM);
-            default -> {
-            }
+    private void sensorsChanged(List<SensorChange> changes) {
+        if (changes.isEmpty()) {
+            return;
         }
+        SensorChangeEvent event = new SensorChangeEvent(sensorVersion.incrementAndGet(), changes);
+        notifyListeners(sl -> sl.sensorsChanged(event));
     }
 
     /**
-     * Internal method for updating the alarm status when a sensor has been deactivated
+     * Version of the most recent {@link SensorChangeEvent}. Read it before {@link #getSensors()}
+     * to know which later events a copy of the sensors may not include yet.
      */
-    private void handleSensorDeactivated() {
-        if (this.getArmingStatus() == ArmingStatus.DISARMED ||
-                this.getAlarmStatus() == AlarmStatus.ALARM) return;
+    public long getSensorVersion() {
+        return sensorVersion.get();
+    }
 
-        switch (this.getAlarmStatus()) {
-            case PENDING_ALARM -> setAlarmStatus(AlarmStatus.NO_ALARM);
-            case ALARM -> setAlarmStatus(AlarmStatus.PENDING_ALARM);
-            default -> {
+    /**
+     * Calls every listener, so that one that throws cannot keep the others from hearing about the
+     * change or fail the change itself.
+     */
+    private void notifyListeners(Consumer<StatusListener> notification) {
+        for (StatusListener statusListener : statusListeners) {
+            try {
+                notification.accept(statusListener);
+            } catch (RuntimeException e) {
+                listenerFailures.increment();
             }
         }
     }
@@ -98,14 +358,100 @@ public class SecurityService {
      * @param active - Current Sensor's State
      */
     public void changeSensorActivationStatus(Sensor sensor, Boolean active) {
-        if (!sensor.getActive() && active) {
-            handleSensorActivated();
-        } else if (sensor.getActive() && !active) {
-            handleSensorDeactivated();
+        AlarmTimingEngine engine = timing;
+        if (engine != null && engine.debouncesSensors()) {
+            engine.sensorChanged(sensor, active);
+        } else {
+            applySensorActivationStatus(sensor, active);
         }
+    }
 
-        sensor.setActive(active);
-        securityRepository.updateSensor(sensor);
+    private void applySensorActivationStatus(Sensor sensor, boolean active) {
+        long start = sensorDecisionTimer.start();
+        SensorChange.Kind change = null;
+        Sensor updated;
+        try {
+            synchronized (lockFor(sensor)) {
+                updated = stored(sensor);
+                boolean wasActive = updated.getActive();
+                updated.setActive(active);
+                //written first, so a failed write leaves the counts and the alarm state as they were
+                securityRepository.updateSensor(updated);
+                activeSensors.changed(updated.getSensorType(), wasActive, active);
+                sensor.setActive(active);
+                if (!wasActive && active) {
+                    apply(new AlarmEvent.SensorActivated(sensor.getSensorId(), delaysEntry()));
+                    change = SensorChange.Kind.ACTIVATED;
+                } else if (wasActive && !active) {
+                    apply(new AlarmEvent.SensorDeactivated(sensor.getSensorId()));
+                    change = SensorChange.Kind.DEACTIVATED;
+                }
+            }
+        } finally {
+            sensorDecisionTimer.stop(start);
+        }
+        if (change != null) {
+            sensorsChanged(List.of(new SensorChange(change, updated)));
+        }
+    }
+
+    /**
+     * Change the activation status of several sensors at once. The alarm status ends up where
+     * applying the changes one by one (in the map's iteration order) would have left it, but it
+     * is written at most once, the sensors are persisted as one batch and listeners receive a
+     * single sensor status notification and a single {@link SensorChangeEvent}. While sensor
+     * changes are debounced each change waits out its own window instead.
+     *
+     * @param changes - Sensors mapped to their new activation state
+     */
+    public void changeSensorActivationStatus(Map<Sensor, Boolean> changes) {
+        AlarmTimingEngine engine = timing;
+        if (engine != null && engine.debouncesSensors()) {
+            changes.forEach(engine::sensorChanged);
+            return;
+        }
+        long start = sensorDecisionTimer.start();
+        try {
+            applySensorActivationStatus(changes);
+        } finally {
+            sensorDecisionTimer.stop(start);
+        }
+    }
+
+    private void applySensorActivationStatus(Map<Sensor, Boolean> changes) {
+        List<AlarmEvent> events = new ArrayList<>(changes.size());
+        List<SensorChange> sensorChanges = new ArrayList<>(changes.size());
+        List<Sensor> changed = new ArrayList<>(changes.size());
+
+        for (Map.Entry<Sensor, Boolean> change : changes.entrySet()) {
+            Sensor sensor = change.getKey();
+            boolean active = change.getValue();
+            synchronized (lockFor(sensor)) {
+                Sensor current = stored(sensor);
+                boolean wasActive = current.getActive();
+                current.setActive(active);
+                if (wasActive != active) {
+                    events.add(active
+                            ? new AlarmEvent.SensorActivated(sensor.getSensorId(), delaysEntry())
+                            : new AlarmEvent.SensorDeactivated(sensor.getSensorId()));
+                    sensorChanges.add(new SensorChange(
+                            active ? SensorChange.Kind.ACTIVATED : SensorChange.Kind.DEACTIVATED, current));
+                }
+                changed.add(current);
+            }
+        }
+
+        //written first, so a failed write leaves the counts, the alarm state and the caller's
+        //sensors as they were
+        securityRepository.updateSensors(changed);
+        for (SensorChange change : sensorChanges) {
+            activeSensors.changed(change.sensor().getSensorType(), change.kind() == SensorChange.Kind.DEACTIVATED,
+                    change.kind() == SensorChange.Kind.ACTIVATED);
+        }
+        changes.forEach(Sensor::setActive);
+        apply(events);
+        sensorsChanged(sensorChanges);
+        notifyListeners(StatusListener::sensorStatusChanged);
     }
 
     /**
@@ -115,11 +461,73 @@ public class SecurityService {
      * @param currentCameraImage - Current Image that is/will be tested for Cats
      */
     public void processImage(BufferedImage currentCameraImage) {
-        catDetected(imageService.imageContainsCat(currentCameraImage, 50.0f));
+        long start = imageDecisionTimer.start();
+        try {
+            catDetected(imageService.imageContainsCat(currentCameraImage, CAT_CONFIDENCE_THRESHOLD));
+        } finally {
+            imageDecisionTimer.stop(start);
+        }
+    }
+
+    /**
+     * Send an image that is already JPEG-encoded for processing. The bytes are handed to the
+     * ImageService as they are, so services that work on JPEG data never decode and re-encode it.
+     *
+     * @param jpeg - Encoded camera image
+     */
+    public void processJpegImage(byte[] jpeg) {
+        long start = imageDecisionTimer.start();
+        try {
+            catDetected(imageService.jpegContainsCat(jpeg, CAT_CONFIDENCE_THRESHOLD));
+        } finally {
+            imageDecisionTimer.stop(start);
+        }
+    }
+
+    /**
+     * Send the current image from several cameras for processing in one batch. The ImageService
+     * scans them together and the system reacts once, treating a cat on any camera as a cat.
+     *
+     * @param cameraImages - Current Image from each camera, keyed by camera
+     * @return whether each camera's image contains a cat
+     */
+    public <K> Map<K, Boolean> processImages(Map<K, BufferedImage> cameraImages) {
+        long start = imageDecisionTimer.start();
+        try {
+            Map<K, Boolean> results = imageService.imageContainsCat(cameraImages, CAT_CONFIDENCE_THRESHOLD);
+            catDetected(results.containsValue(Boolean.TRUE));
+            return results;
+        } finally {
+            imageDecisionTimer.stop(start);
+        }
+    }
+
+    /**
+     * Send an image for processing without waiting for the ImageService. Images are analyzed on a
+     * bounded set of worker threads; if all of them are busy, only the newest waiting image is kept
+     * and the one it replaces is cancelled. Verdicts are applied in the order the images were
+     * submitted, and a verdict that arrives after a newer one has been applied is dropped.
+     *
+     * @param currentCameraImage - Current Image that is/will be tested for Cats
+     * @return a future completed with whether the image contains a cat
+     */
+    public CompletableFuture<Boolean> processImageAsync(BufferedImage currentCameraImage) {
+        ImageAnalysisPipeline pipeline = imageAnalysisPipeline;
+        if (pipeline == null) {
+            synchronized (this) {
+                pipeline = imageAnalysisPipeline;
+                if (pipeline == null) {
+                    pipeline = new ImageAnalysisPipeline(imageService, CAT_CONFIDENCE_THRESHOLD, this::catDetected,
+                            Runtime.getRuntime().availableProcessors(), IMAGE_ANALYSIS_TIMEOUT);
+                    imageAnalysisPipeline = pipeline;
+                }
+            }
+        }
+        return pipeline.submit(currentCameraImage);
     }
 
     public AlarmStatus getAlarmStatus() {
-        return securityRepository.getAlarmStatus();
+        return state == null ? securityRepository.getAlarmStatus() : state.get().alarmStatus();
     }
 
     /**
@@ -128,8 +536,13 @@ public class SecurityService {
      * @param status - Alarm Status
      */
     public void setAlarmStatus(AlarmStatus status) {
-        securityRepository.setAlarmStatus(status);
-        statusListeners.forEach(sl -> sl.notify(status));
+        if (state == null) {
+            // the repository service always writes, even when the status does not change
+            record(List.of(new AlarmEvent.AlarmStatusChanged(status)));
+            writeAlarmStatus(status);
+        } else {
+            apply(new AlarmEvent.AlarmStatusChanged(status));
+        }
     }
 
     public Set<Sensor> getSensors() {
@@ -138,14 +551,66 @@ public class SecurityService {
 
     public void addSensor(Sensor sensor) {
         securityRepository.addSensor(sensor);
+        activeSensors.added(sensor);
+        applySensorCount(List.of(new AlarmEvent.SensorAdded(sensor.getSensorId(), sensor.getActive())));
+        sensorsChanged(List.of(new SensorChange(SensorChange.Kind.ADDED, sensor)));
     }
 
     public void removeSensor(Sensor sensor) {
         securityRepository.removeSensor(sensor);
+        activeSensors.removed(sensor);
+        applySensorCount(List.of(new AlarmEvent.SensorRemoved(sensor.getSensorId(), sensor.getActive())));
+        sensorsChanged(List.of(new SensorChange(SensorChange.Kind.REMOVED, sensor)));
+    }
+
+    /**
+     * Number of currently active sensors, kept up to date as sensors change rather than counted on demand.
+     */
+    public int getActiveSensorCount() {
+        return activeSensors.total();
+    }
+
+    /**
+     * Number of currently active sensors of the given type.
+     *
+     * @param sensorType - Sensor Type
+     */
+    public int getActiveSensorCount(SensorType sensorType) {
+        return activeSensors.count(sensorType);
+    }
+
+    /**
+     * Adds several sensors in a single repository write and notifies listeners once.
+     *
+     * @param sensors - Sensors to add
+     */
+    public void addSensors(Collection<Sensor> sensors) {
+        securityRepository.addSensors(sensors);
+        sensors.forEach(activeSensors::added);
+        applySensorCount(sensors.stream()
+                .<AlarmEvent>map(sensor -> new AlarmEvent.SensorAdded(sensor.getSensorId(), sensor.getActive()))
+                .toList());
+        sensorsChanged(sensors.stream().map(sensor -> new SensorChange(SensorChange.Kind.ADDED, sensor)).toList());
+        notifyListeners(StatusListener::sensorStatusChanged);
+    }
+
+    /**
+     * Removes several sensors in a single repository write and notifies listeners once.
+     *
+     * @param sensors - Sensors to remove
+     */
+    public void removeSensors(Collection<Sensor> sensors) {
+        securityRepository.removeSensors(sensors);
+        sensors.forEach(activeSensors::removed);
+        applySensorCount(sensors.stream()
+                .<AlarmEvent>map(sensor -> new AlarmEvent.SensorRemoved(sensor.getSensorId(), sensor.getActive()))
+                .toList());
+        sensorsChanged(sensors.stream().map(sensor -> new SensorChange(SensorChange.Kind.REMOVED, sensor)).toList());
+        notifyListeners(StatusListener::sensorStatusChanged);
     }
 
     public ArmingStatus getArmingStatus() {
-        return securityRepository.getArmingStatus();
+        return state == null ? securityRepository.getArmingStatus() : state.get().armingStatus();
     }
 
     /**
@@ -155,18 +620,123 @@ public class SecurityService {
      * @param armingStatus - Arming Status
      */
     public void setArmingStatus(ArmingStatus armingStatus) {
-        if (armingStatus == ArmingStatus.DISARMED)
-            setAlarmStatus(AlarmStatus.NO_ALARM);
-        else if (this.doWeHaveStupidCats)
-            setAlarmStatus(AlarmStatus.ALARM);
+        AlarmTimingEngine engine = timing;
+        if (engine != null && engine.deferArming(getArmingStatus(), armingStatus)) {
+            return;
+        }
+        changeArmingStatus(armingStatus);
+    }
+
+    /**
+     * Arming status that is waiting for the exit delay to pass before it takes effect, or null.
+     */
+    public ArmingStatus getPendingArmingStatus() {
+        AlarmTimingEngine engine = timing;
+        return engine == null ? null : engine.getPendingArmingStatus();
+    }
+
+    /**
+     * Makes the service wait before acting on its inputs, see {@link AlarmTiming}. All timers run
+     * on the given timer, which many services can share and whose clock decides when they are due;
+     * the delayed changes are applied on its thread. Changes still waiting under the previous timing
+     * are applied at once.
+     *
+     * @param timing - Delays to apply; {@link AlarmTiming#IMMEDIATE} turns them all off
+     * @param timer  - Timer to run the delays on; may be null when turning them off
+     * @throws IllegalStateException if the service was not created with {@link #concurrent(SecurityRepository,
+     *                               ImageService)}, since timers change the state from another thread
+     */
+    public void setTiming(AlarmTiming timing, HashedWheelTimer timer) {
+        if (state == null && !timing.isImmediate()) {
+            throw new IllegalStateException("Only a concurrent SecurityService can delay its decisions");
+        }
+        AlarmTimingEngine previous = this.timing;
+        this.timing = timing.isImmediate() ? null : new AlarmTimingEngine(timing, timer, metrics,
+                this::stored, this::applySensorActivationStatus, () -> apply(new AlarmEvent.EntryDelayExpired()),
+                this::changeArmingStatus);
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    private void changeArmingStatus(ArmingStatus armingStatus) {
+        long start = armingChangeTimer.start();
+        try {
+            applyArmingStatus(armingStatus);
+        } finally {
+            armingChangeTimer.stop(start);
+        }
+    }
+
+    private void applyArmingStatus(ArmingStatus armingStatus) {
+        apply(new AlarmEvent.ArmingStatusChanged(armingStatus));
+
+        // Irrespective change the Sensors to Inactive, persisting them as a single batch. The
+        // repository's sensors are a snapshot or a weakly consistent view, so they are walked as
+        // they are rather than copied first
+        Set<Sensor> current = this.getSensors();
+        List<Sensor> sensors = new ArrayList<>(current.size());
+        List<SensorChange> deactivated = new ArrayList<>();
+        for (Sensor sensor : current) {
+            synchronized (lockFor(sensor)) {
+                boolean wasActive = sensor.getActive();
+                activeSensors.changed(sensor, false);
+                sensor.setActive(false);
+                if (wasActive) {
+                    deactivated.add(new SensorChange(SensorChange.Kind.DEACTIVATED, sensor));
+                }
+                sensors.add(sensor);
+            }
+        }
+        securityRepository.updateSensors(sensors);
+
+        sensorsChanged(deactivated);
+        notifyListeners(StatusListener::sensorStatusChanged);
+    }
 
-        // Irrespective change the Sensors to Inactive
-        for (Sensor sensor : new ConcurrentSkipListSet<>(this.getSensors())) {
-            sensor.setActive(Boolean.FALSE);
-            securityRepository.updateSensor(sensor);
+    /**
+     * Starts recording every event this service applies to the given file, replacing any
+     * recording already in progress. The recording starts from the current state, so replaying it
+     * ends in the same state the service is in when the recording is stopped.
+     *
+     * @param file - File to record to; overwritten if it exists
+     * @return the recorder, e.g. to {@link AlarmEventRecorder#flush() flush} it
+     */
+    public AlarmEventRecorder startRecording(Path file) {
+        Lock lock = recordingLock.writeLock();
+        lock.lock();
+        try {
+            closeRecorder();
+            AlarmState current = state == null ? currentRepositoryState() : state.get();
+            recorder = new AlarmEventRecorder(file, current);
+            return recorder;
+        } finally {
+            lock.unlock();
         }
+    }
 
-        securityRepository.setArmingStatus(armingStatus);
-        statusListeners.forEach(StatusListener::sensorStatusChanged);
+    /**
+     * Stops the recording in progress, if any, and closes its file.
+     */
+    public void stopRecording() {
+        Lock lock = recordingLock.writeLock();
+        lock.lock();
+        try {
+            closeRecorder();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void closeRecorder() {
+        AlarmEventRecorder rec = recorder;
+        recorder = null;
+        if (rec != null) {
+            try {
+                rec.close();
+            } catch (IOException ioe) {
+                throw new UncheckedIOException("Unable to close recording", ioe);
+            }
+        }
     }
 }
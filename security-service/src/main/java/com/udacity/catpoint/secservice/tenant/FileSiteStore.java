@@ -0,0 +1,111 @@
+package com.udacity.catpoint.secservice.tenant;
+
+import com.udacity.catpoint.secservice.data.AlarmStatus;
+import com.udacity.catpoint.secservice.data.ArmingStatus;
+import com.udacity.catpoint.secservice.service.AlarmState;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Stores each site in its own small binary file. Files are spread over 256 subdirectories by a hash
+ * of the site id, so no directory grows too large, and every save replaces the file atomically.
+ * <p>
+ * A file holds a version byte, the alarm status, arming status and cat flag, the number of sensors
+ * and then 17 bytes per sensor: its id and whether it is active.
+ */
+public class FileSiteStore implements SiteStore {
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 + Integer.BYTES;
+    private static final int SENSOR_SIZE = Long.BYTES * 2 + 1;
+    private static final AlarmStatus[] ALARM_STATUSES = AlarmStatus.values();
+    private static final ArmingStatus[] ARMING_STATUSES = ArmingStatus.values();
+
+    private final Path directory;
+
+    public FileSiteStore(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public SiteState load(String siteId) {
+        Path file = fileFor(siteId);
+        ByteBuffer buffer;
+        try {
+            buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to load site " + siteId, ioe);
+        }
+
+        if (buffer.remaining() < HEADER_SIZE || buffer.get() != VERSION) {
+            throw new IllegalStateException("Corrupt site file " + file);
+        }
+        AlarmStatus alarmStatus = ALARM_STATUSES[buffer.get()];
+        ArmingStatus armingStatus = ARMING_STATUSES[buffer.get()];
+        boolean catDetected = buffer.get() != 0;
+        int sensors = buffer.getInt();
+        if (buffer.remaining() != sensors * SENSOR_SIZE) {
+            throw new IllegalStateException("Corrupt site file " + file);
+        }
+
+        SiteState site = new SiteState(new AlarmState(alarmStatus, armingStatus, catDetected, 0));
+        for (int i = 0; i < sensors; i++) {
+            site.addSensor(new UUID(buffer.getLong(), buffer.getLong()), buffer.get() != 0);
+        }
+        return site;
+    }
+
+    @Override
+    public void save(String siteId, SiteState site) {
+        AlarmState alarmState = site.getAlarmState();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + site.getSensorCount() * SENSOR_SIZE);
+        buffer.put((byte) VERSION);
+        buffer.put((byte) alarmState.alarmStatus().ordinal());
+        buffer.put((byte) alarmState.armingStatus().ordinal());
+        buffer.put((byte) (alarmState.catDetected() ? 1 : 0));
+        buffer.putInt(site.getSensorCount());
+        for (int i = 0; i < site.getSensorCount(); i++) {
+            UUID sensorId = site.getSensorId(i);
+            buffer.putLong(sensorId.getMostSignificantBits());
+            buffer.putLong(sensorId.getLeastSignificantBits());
+            buffer.put((byte) (site.isActive(i) ? 1 : 0));
+        }
+
+        Path file = fileFor(siteId);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            Files.write(temp, buffer.array());
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to save site " + siteId, ioe);
+        }
+    }
+
+    @Override
+    public void delete(String siteId) {
+        try {
+            Files.deleteIfExists(fileFor(siteId));
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to delete site " + siteId, ioe);
+        }
+    }
+
+    private Path fileFor(String siteId) {
+        byte[] name = siteId.getBytes(StandardCharsets.UTF_8);
+        //site ids may contain anything, so file names use their url-safe base64 form
+        String fileName = Base64.getUrlEncoder().withoutPadding().encodeToString(name) + ".site";
+        String bucket = String.format("%02x", siteId.hashCode() & 0xFF);
+        return directory.resolve(bucket).resolve(fileName);
+    }
+}
@@ -0,0 +1,202 @@
+package com.udacity.catpoint.secservice.tenant;
+
+import com.udacity.catpoint.secservice.data.AlarmStatus;
+import com.udacity.catpoint.secservice.data.ArmingStatus;
+import com.udacity.catpoint.secservice.metrics.MetricsRegistry;
+import com.udacity.catpoint.secservice.service.AlarmEvent;
+import com.udacity.catpoint.secservice.service.AlarmReducer;
+import com.udacity.catpoint.secservice.service.AlarmState;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs the alarm logic for many independent sites in one process. Each site has its own alarm and
+ * arming status and its own sensors, and the same rules as {@link com.udacity.catpoint.secservice.service.SecurityService}
+ * apply to it through {@link AlarmReducer}.
+ * <p>
+ * Sites are spread over a fixed number of shards by their id. Every shard is a single thread that
+ * owns its sites outright, so operations on one site are applied one at a time and in the order
+ * they were submitted, without any locking. Operations return a future that completes once the
+ * shard has applied them; if a shard's queue is full the future fails with a
+ * {@link java.util.concurrent.RejectedExecutionException} instead of blocking the caller.
+ * <p>
+ * At most {@code maxResidentSites} sites are held in memory. The least recently used ones, and any
+ * site untouched for {@code idleTimeout}, are paged out to a {@link SiteStore} and paged back in
+ * when next used. Image classification is not done here: classify frames on the caller's threads
+ * and pass the verdict to {@link #imageClassified(String, boolean)}.
+ * <p>
+ * Metrics: {@code engine.pageIns}, {@code engine.pageOuts} and {@code engine.failures} (failed
+ * page-outs and listeners that threw).
+ */
+public class MultiSiteEngine implements AutoCloseable {
+    private static final int DEFAULT_MAX_RESIDENT_SITES = 100_000;
+    private static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(10);
+    private static final int DEFAULT_QUEUE_CAPACITY = 16_384;
+
+    private final SiteShard[] shards;
+
+    public MultiSiteEngine(SiteStore store) {
+        this(store, null, Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_RESIDENT_SITES,
+                DEFAULT_IDLE_TIMEOUT, DEFAULT_QUEUE_CAPACITY, Clock.systemUTC(), MetricsRegistry.noop());
+    }
+
+    /**
+     * @param store            Where sites are paged out to
+     * @param listener         Told about alarm state changes, or null
+     * @param shards           Number of event loop threads
+     * @param maxResidentSites Most sites held in memory at once, over all shards
+     * @param idleTimeout      Sites untouched for this long are paged out
+     * @param queueCapacity    Most operations waiting per shard before new ones are rejected
+     * @param clock            Clock used to find idle sites
+     * @param metrics          Registry the engine records its metrics in
+     */
+    public MultiSiteEngine(SiteStore store, SiteListener listener, int shards, int maxResidentSites,
+                           Duration idleTimeout, int queueCapacity, Clock clock, MetricsRegistry metrics) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("shards must be positive");
+        }
+        if (maxResidentSites < shards) {
+            throw new IllegalArgumentException("maxResidentSites must be at least the number of shards");
+        }
+        this.shards = new SiteShard[shards];
+        for (int i = 0; i < shards; i++) {
+            this.shards[i] = new SiteShard(i, store, listener, maxResidentSites / shards, idleTimeout.toMillis(),
+                    queueCapacity, clock, metrics.counter("engine.pageIns"), metrics.counter("engine.pageOuts"),
+                    metrics.counter("engine.failures"));
+        }
+    }
+
+    public CompletableFuture<AlarmState> getAlarmState(String siteId) {
+        return shardFor(siteId).submit(siteId, SiteState::getAlarmState);
+    }
+
+    /**
+     * The sensors of a site mapped to whether they are active.
+     */
+    public CompletableFuture<Map<UUID, Boolean>> getSensors(String siteId) {
+        return shardFor(siteId).submit(siteId, site -> {
+            Map<UUID, Boolean> sensors = new LinkedHashMap<>();
+            for (int i = 0; i < site.getSensorCount(); i++) {
+                sensors.put(site.getSensorId(i), site.isActive(i));
+            }
+            return sensors;
+        });
+    }
+
+    public CompletableFuture<AlarmState> addSensor(String siteId, UUID sensorId, boolean active) {
+        return shardFor(siteId).submit(siteId, site -> {
+            //counts the sensor if it is active, just like applying SensorAdded would
+            site.addSensor(sensorId, active);
+            return site.getAlarmState();
+        });
+    }
+
+    public CompletableFuture<AlarmState> removeSensor(String siteId, UUID sensorId) {
+        return shardFor(siteId).submit(siteId, site -> {
+            int index = site.indexOf(sensorId);
+            if (index >= 0) {
+                boolean active = site.isActive(index);
+                site.removeSensor(index);
+                apply(site, new AlarmEvent.SensorRemoved(sensorId, active));
+            }
+            return site.getAlarmState();
+        });
+    }
+
+    /**
+     * Change the activation status of one of a site's sensors and update the site's alarm status
+     * if necessary. The future fails with an {@link IllegalArgumentException} for an unknown sensor.
+     */
+    public CompletableFuture<AlarmState> changeSensorActivationStatus(String siteId, UUID sensorId, boolean active) {
+        return shardFor(siteId).submit(siteId, site -> {
+            int index = site.indexOf(sensorId);
+            if (index < 0) {
+                throw new IllegalArgumentException("Unknown sensor " + sensorId + " at site " + siteId);
+            }
+            if (site.isActive(index) != active) {
+                site.setActive(index, active);
+                apply(site, active
+                        ? new AlarmEvent.SensorActivated(sensorId)
+                        : new AlarmEvent.SensorDeactivated(sensorId));
+            }
+            return site.getAlarmState();
+        });
+    }
+
+    /**
+     * Arms or disarms a site, which also resets all of its sensors to inactive.
+     */
+    public CompletableFuture<AlarmState> setArmingStatus(String siteId, ArmingStatus armingStatus) {
+        return shardFor(siteId).submit(siteId, site -> {
+            site.deactivateAll();
+            return apply(site, new AlarmEvent.ArmingStatusChanged(armingStatus));
+        });
+    }
+
+    public CompletableFuture<AlarmState> setAlarmStatus(String siteId, AlarmStatus alarmStatus) {
+        return shardFor(siteId).submit(siteId, site -> apply(site, new AlarmEvent.AlarmStatusChanged(alarmStatus)));
+    }
+
+    /**
+     * Applies the verdict of classifying a site's current camera image.
+     */
+    public CompletableFuture<AlarmState> imageClassified(String siteId, boolean cat) {
+        return shardFor(siteId).submit(siteId, site -> apply(site, new AlarmEvent.ImageClassified(cat)));
+    }
+
+    /**
+     * Forgets a site entirely, including its stored copy.
+     */
+    public CompletableFuture<Void> removeSite(String siteId) {
+        return shardFor(siteId).remove(siteId);
+    }
+
+    /**
+     * Number of sites currently held in memory.
+     */
+    public int getResidentSiteCount() {
+        int total = 0;
+        for (SiteShard shard : shards) {
+            total += shard.getResidentCount();
+        }
+        return total;
+    }
+
+    /**
+     * Number of operations waiting in the busiest shard's queue.
+     */
+    public int getMaxQueueDepth() {
+        int max = 0;
+        for (SiteShard shard : shards) {
+            max = Math.max(max, shard.getQueueDepth());
+        }
+        return max;
+    }
+
+    /**
+     * Finishes all submitted operations and pages every site out to the store.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        for (SiteShard shard : shards) {
+            shard.close();
+        }
+    }
+
+    private static AlarmState apply(SiteState site, AlarmEvent event) {
+        site.setAlarmState(AlarmReducer.reduce(site.getAlarmState(), event));
+        return site.getAlarmState();
+    }
+
+    private SiteShard shardFor(String siteId) {
+        //spread the hash so sequential ids do not all land on neighbouring shards
+        int h = siteId.hashCode();
+        h ^= h >>> 16;
+        return shards[Math.floorMod(h * 0x9E3779B9, shards.length)];
+    }
+}
@@ -0,0 +1,12 @@
+package com.udacity.catpoint.secservice.tenant;
+
+import com.udacity.catpoint.secservice.service.AlarmState;
+
+/**
+ * Told about alarm state changes of the sites in a {@link MultiSiteEngine}. Called on the event
+ * loop of the site's shard, so it must return quickly and must not wait for the engine.
+ */
+@FunctionalInterface
+public interface SiteListener {
+    void alarmStateChanged(String siteId, AlarmState before, AlarmState after);
+}
@@ -0,0 +1,227 @@
+package com.udacity.catpoint.secservice.tenant;
+
+import com.udacity.catpoint.secservice.metrics.Counter;
+import com.udacity.catpoint.secservice.service.AlarmState;
+
+import java.time.Clock;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * One event loop of a {@link MultiSiteEngine} and the sites it owns. All site state is only touched
+ * by the loop's thread, so nothing in here needs a lock; other threads talk to it through a bounded
+ * queue of tasks.
+ * <p>
+ * Resident sites are kept in least-recently-used order. A site is paged out to the store, and only
+ * written if it changed, when the shard holds more than its share of sites or when it has not been
+ * touched for the idle timeout.
+ */
+class SiteShard implements Runnable {
+    private final int index;
+    private final SiteStore store;
+    private final SiteListener listener;
+    private final int maxResidentSites;
+    private final long idleTimeoutMillis;
+    private final long idleCheckMillis;
+    private final Clock clock;
+    private final BlockingQueue<Runnable> queue;
+    //access-ordered, so iteration starts with the site touched longest ago
+    private final Map<String, SiteState> resident = new LinkedHashMap<>(16, 0.75f, true);
+    private final Thread thread;
+
+    private final Counter pageIns;
+    private final Counter pageOuts;
+    private final Counter failures;
+
+    private volatile boolean accepting = true;
+    private volatile int residentCount;
+    private boolean running = true;
+    private long lastIdleCheck;
+
+    SiteShard(int index, SiteStore store, SiteListener listener, int maxResidentSites, long idleTimeoutMillis,
+              int queueCapacity, Clock clock, Counter pageIns, Counter pageOuts, Counter failures) {
+        this.index = index;
+        this.store = store;
+        this.listener = listener;
+        this.maxResidentSites = maxResidentSites;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.idleCheckMillis = Math.max(10, Math.min(idleTimeoutMillis / 2, 1_000));
+        this.clock = clock;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.pageIns = pageIns;
+        this.pageOuts = pageOuts;
+        this.failures = failures;
+        this.lastIdleCheck = clock.millis();
+        this.thread = new Thread(this, "site-shard-" + index);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Runs an action against a site on this shard's loop, loading the site first if it is not
+     * resident. The future fails with a {@link RejectedExecutionException} if the queue is full.
+     */
+    <T> CompletableFuture<T> submit(String siteId, Function<SiteState, T> action) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        if (!accepting || !queue.offer(() -> execute(siteId, action, result))) {
+            result.completeExceptionally(new RejectedExecutionException(
+                    accepting ? "Site shard " + index + " is overloaded" : "Engine is closed"));
+        }
+        return result;
+    }
+
+    /**
+     * Forgets a site, both in memory and in the store.
+     */
+    CompletableFuture<Void> remove(String siteId) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        if (!accepting || !queue.offer(() -> {
+            try {
+                resident.remove(siteId);
+                residentCount = resident.size();
+                store.delete(siteId);
+                result.complete(null);
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        })) {
+            result.completeExceptionally(new RejectedExecutionException("Site shard " + index + " is unavailable"));
+        }
+        return result;
+    }
+
+    int getResidentCount() {
+        return residentCount;
+    }
+
+    int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Stops accepting work, finishes what is queued, pages every site out and waits for the loop
+     * to end.
+     */
+    void close() throws InterruptedException {
+        accepting = false;
+        queue.put(() -> running = false);
+        thread.join();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                Runnable task = queue.poll(idleCheckMillis, TimeUnit.MILLISECONDS);
+                if (task != null) {
+                    task.run();
+                }
+            } catch (InterruptedException e) {
+                break;
+            }
+            long now = clock.millis();
+            if (now - lastIdleCheck >= idleCheckMillis) {
+                lastIdleCheck = now;
+                pageOutIdle(now);
+            }
+        }
+        for (Map.Entry<String, SiteState> entry : resident.entrySet()) {
+            pageOut(entry.getKey(), entry.getValue());
+        }
+        resident.clear();
+        residentCount = 0;
+    }
+
+    private <T> void execute(String siteId, Function<SiteState, T> action, CompletableFuture<T> result) {
+        SiteState site;
+        AlarmState before;
+        T value;
+        try {
+            site = touch(siteId);
+            before = site.getAlarmState();
+            value = action.apply(site);
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+        result.complete(value);
+
+        AlarmState after = site.getAlarmState();
+        if (listener != null && !after.equals(before)) {
+            try {
+                listener.alarmStateChanged(siteId, before, after);
+            } catch (RuntimeException e) {
+                //one broken listener must not stall every other site on this loop
+                failures.increment();
+            }
+        }
+    }
+
+    private SiteState touch(String siteId) {
+        SiteState site = resident.get(siteId);
+        if (site == null) {
+            site = store.load(siteId);
+            if (site == null) {
+                site = new SiteState();
+            } else {
+                pageIns.increment();
+            }
+            site.markStored();
+            resident.put(siteId, site);
+            evictOverflow();
+            residentCount = resident.size();
+        }
+        site.lastTouched = clock.millis();
+        return site;
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, SiteState>> eldest = resident.entrySet().iterator();
+        while (resident.size() > maxResidentSites && eldest.hasNext()) {
+            Map.Entry<String, SiteState> entry = eldest.next();
+            if (pageOut(entry.getKey(), entry.getValue())) {
+                eldest.remove();
+            }
+        }
+    }
+
+    private void pageOutIdle(long now) {
+        Iterator<Map.Entry<String, SiteState>> eldest = resident.entrySet().iterator();
+        while (eldest.hasNext()) {
+            Map.Entry<String, SiteState> entry = eldest.next();
+            if (now - entry.getValue().lastTouched < idleTimeoutMillis) {
+                break;
+            }
+            if (pageOut(entry.getKey(), entry.getValue())) {
+                eldest.remove();
+            }
+        }
+        residentCount = resident.size();
+    }
+
+    /**
+     * Writes a site to the store if it changed.
+     *
+     * @return false if the site could not be written and has to stay resident
+     */
+    private boolean pageOut(String siteId, SiteState site) {
+        if (site.isModified()) {
+            try {
+                store.save(siteId, site);
+            } catch (RuntimeException e) {
+                failures.increment();
+                return false;
+            }
+            site.markStored();
+        }
+        pageOuts.increment();
+        return true;
+    }
+}
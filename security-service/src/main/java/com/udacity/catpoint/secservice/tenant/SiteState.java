@@ -0,0 +1,135 @@
+package com.udacity.catpoint.secservice.tenant;
+
+import com.udacity.catpoint.secservice.data.AlarmStatus;
+import com.udacity.catpoint.secservice.data.ArmingStatus;
+import com.udacity.catpoint.secservice.service.AlarmState;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Alarm state and sensors of one site. Sites have a handful of sensors, so they are kept in flat
+ * arrays and found by a linear scan, which is smaller and no slower than a map at that size.
+ * <p>
+ * Not thread-safe: a site is only ever touched by the event loop of the shard that owns it.
+ */
+public final class SiteState {
+    private static final long[] NO_IDS = new long[0];
+    private static final boolean[] NO_FLAGS = new boolean[0];
+
+    private AlarmState alarmState;
+    //most and least significant bits of each sensor id, interleaved
+    private long[] sensorIds = NO_IDS;
+    private boolean[] active = NO_FLAGS;
+    private int sensorCount;
+    private boolean modified;
+    long lastTouched;
+
+    SiteState() {
+        this(new AlarmState(AlarmStatus.NO_ALARM, ArmingStatus.DISARMED, false, 0));
+    }
+
+    /**
+     * Creates a site with the given alarm state and no sensors, e.g. when reading it back from a
+     * {@link SiteStore}. The active sensor count is recomputed as sensors are added.
+     */
+    public SiteState(AlarmState alarmState) {
+        this.alarmState = new AlarmState(
+                alarmState.alarmStatus(), alarmState.armingStatus(), alarmState.catDetected(), 0);
+    }
+
+    public AlarmState getAlarmState() {
+        return alarmState;
+    }
+
+    public int getSensorCount() {
+        return sensorCount;
+    }
+
+    public UUID getSensorId(int index) {
+        return new UUID(sensorIds[index * 2], sensorIds[index * 2 + 1]);
+    }
+
+    public boolean isActive(int index) {
+        return active[index];
+    }
+
+    /**
+     * Adds a sensor, counting it towards the active sensors if it is active. For rebuilding a
+     * stored site; changes made through the engine go through the alarm rules instead.
+     *
+     * @return false if the site already has the sensor
+     */
+    public boolean addSensor(UUID sensorId, boolean isActive) {
+        if (indexOf(sensorId) >= 0) {
+            return false;
+        }
+        if (sensorCount == active.length) {
+            int capacity = Math.max(4, sensorCount * 2);
+            sensorIds = Arrays.copyOf(sensorIds, capacity * 2);
+            active = Arrays.copyOf(active, capacity);
+        }
+        sensorIds[sensorCount * 2] = sensorId.getMostSignificantBits();
+        sensorIds[sensorCount * 2 + 1] = sensorId.getLeastSignificantBits();
+        active[sensorCount] = isActive;
+        sensorCount++;
+        if (isActive) {
+            alarmState = new AlarmState(alarmState.alarmStatus(), alarmState.armingStatus(),
+                    alarmState.catDetected(), alarmState.activeSensors() + 1);
+        }
+        modified = true;
+        return true;
+    }
+
+    /**
+     * Whether anything changed since the site was loaded or last stored.
+     */
+    public boolean isModified() {
+        return modified;
+    }
+
+    int indexOf(UUID sensorId) {
+        long msb = sensorId.getMostSignificantBits();
+        long lsb = sensorId.getLeastSignificantBits();
+        for (int i = 0; i < sensorCount; i++) {
+            if (sensorIds[i * 2] == msb && sensorIds[i * 2 + 1] == lsb) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Removes the sensor at the given index by moving the last sensor into its place. Leaves the
+     * alarm state alone; the caller applies the matching event.
+     */
+    void removeSensor(int index) {
+        int last = sensorCount - 1;
+        sensorIds[index * 2] = sensorIds[last * 2];
+        sensorIds[index * 2 + 1] = sensorIds[last * 2 + 1];
+        active[index] = active[last];
+        sensorCount--;
+        modified = true;
+    }
+
+    void setActive(int index, boolean isActive) {
+        active[index] = isActive;
+        modified = true;
+    }
+
+    void deactivateAll() {
+        Arrays.fill(active, 0, sensorCount, false);
+        modified = true;
+    }
+
+    void setAlarmState(AlarmState alarmState) {
+        if (!alarmState.equals(this.alarmState)) {
+            this.alarmState = alarmState;
+            modified = true;
+        }
+    }
+
+    void markStored() {
+        modified = false;
+    }
+}
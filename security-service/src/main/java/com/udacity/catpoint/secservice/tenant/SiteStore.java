@@ -0,0 +1,16 @@
+package com.udacity.catpoint.secservice.tenant;
+
+/**
+ * Where sites that are not resident in memory are kept. Each site is only ever loaded and saved by
+ * the one shard that owns it, but different shards call the store concurrently.
+ */
+public interface SiteStore {
+    /**
+     * @return the stored site, or null if the site has never been stored
+     */
+    SiteState load(String siteId);
+
+    void save(String siteId, SiteState site);
+
+    void delete(String siteId);
+}
@@ -5,6 +5,9 @@ module com.udacity.catpoint.security {
     requires com.udacity.catpoint.imageservice;
     requires java.desktop;
     requires java.prefs;
+    requires jdk.httpserver;
 
     opens com.udacity.catpoint.secservice.data to com.google.gson;
+    opens com.udacity.catpoint.secservice.metrics to com.google.gson;
+    opens com.udacity.catpoint.secservice.server to com.google.gson;
 }
\ No newline at end of file
@@ -0,0 +1,120 @@
+package com.udacity.catpoint.secservice.application;
+
+import com.udacity.catpoint.secservice.data.AlarmStatus;
+import com.udacity.catpoint.secservice.data.Sensor;
+import com.udacity.catpoint.secservice.data.SensorType;
+import com.udacity.catpoint.secservice.metrics.InMemoryMetricsRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+public class AsyncStatusListenerTests {
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private final List<String> received = new ArrayList<>();
+    private final InMemoryMetricsRegistry metrics = new InMemoryMetricsRegistry();
+
+    private final StatusListener recorder = new StatusListener() {
+        @Override
+        public void notify(AlarmStatus status) {
+            received.add("notify " + status);
+        }
+
+        @Override
+        public void catDetected(boolean catDetected) {
+            received.add("cat " + catDetected);
+        }
+
+        @Override
+        public void sensorStatusChanged() {
+            received.add("sensors");
+        }
+
+        @Override
+        public void sensorsChanged(SensorChangeEvent event) {
+            for (SensorChange change : event.changes()) {
+                received.add(event.version() + " " + change.kind() + " " + change.sensor().getName());
+            }
+        }
+    };
+
+    @Test
+    @DisplayName("Notifications waiting for delivery collapse to the latest of each kind")
+    public void verifyThatNotificationsAreCoalesced_when_ListenerFallsBehind() {
+        var listener = new AsyncStatusListener(recorder, tasks::add, metrics, "test");
+
+        listener.notify(AlarmStatus.PENDING_ALARM);
+        listener.sensorStatusChanged();
+        listener.notify(AlarmStatus.ALARM);
+        listener.sensorStatusChanged();
+        listener.catDetected(true);
+
+        Assertions.assertTrue(received.isEmpty());
+        Assertions.assertEquals(1, tasks.size());
+        Assertions.assertEquals(5, listener.getQueueDepth());
+        tasks.poll().run();
+
+        Assertions.assertEquals(List.of("notify ALARM", "cat true", "sensors"), received);
+        Assertions.assertEquals(0, listener.getQueueDepth());
+        Assertions.assertEquals(2, metrics.counter("listener.test.coalesced").count());
+        Assertions.assertEquals(3, metrics.counter("listener.test.delivered").count());
+
+        listener.catDetected(false);
+        Assertions.assertEquals(1, tasks.size());
+    }
+
+    @Test
+    @DisplayName("Sensor change events waiting for delivery merge into one net change per sensor")
+    public void verifyThatSensorChangesAreMerged_when_ListenerFallsBehind() {
+        var listener = new AsyncStatusListener(recorder, tasks::add, metrics, "test");
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        Sensor window = new Sensor("window", SensorType.WINDOW);
+        Sensor motion = new Sensor("motion", SensorType.MOTION);
+
+        listener.sensorsChanged(new SensorChangeEvent(1, List.of(
+                new SensorChange(SensorChange.Kind.ADDED, door),
+                new SensorChange(SensorChange.Kind.ADDED, window))));
+        listener.sensorsChanged(new SensorChangeEvent(2, List.of(new SensorChange(SensorChange.Kind.ACTIVATED, door))));
+        listener.sensorsChanged(new SensorChangeEvent(3, List.of(new SensorChange(SensorChange.Kind.ACTIVATED, motion))));
+        listener.sensorsChanged(new SensorChangeEvent(4, List.of(new SensorChange(SensorChange.Kind.REMOVED, window))));
+        listener.sensorsChanged(new SensorChangeEvent(5, List.of(new SensorChange(SensorChange.Kind.DEACTIVATED, motion))));
+
+        Assertions.assertEquals(1, tasks.size());
+        tasks.poll().run();
+
+        Assertions.assertEquals(List.of("5 ADDED door", "5 DEACTIVATED motion"), received);
+        Assertions.assertEquals(4, metrics.counter("listener.test.coalesced").count());
+        Assertions.assertEquals(1, metrics.counter("listener.test.delivered").count());
+    }
+
+    @Test
+    @DisplayName("A listener that throws still receives later notifications")
+    public void verifyThatFailuresAreIsolated_when_ListenerThrows() {
+        var failing = new AsyncStatusListener(new StatusListener() {
+            @Override
+            public void notify(AlarmStatus status) {
+                throw new IllegalStateException("broken dashboard");
+            }
+
+            @Override
+            public void catDetected(boolean catDetected) {
+                recorder.catDetected(catDetected);
+            }
+
+            @Override
+            public void sensorStatusChanged() {
+                recorder.sensorStatusChanged();
+            }
+        }, Runnable::run, metrics, "failing");
+
+        failing.notify(AlarmStatus.ALARM);
+        failing.catDetected(false);
+
+        Assertions.assertEquals(List.of("cat false"), received);
+        Assertions.assertEquals(1, metrics.counter("listener.failing.failures").count());
+    }
+}
@@ -0,0 +1,103 @@
+package com.udacity.catpoint.secservice.application;
+
+import com.udacity.catpoint.secservice.data.AlarmStatus;
+import com.udacity.catpoint.secservice.data.ArmingStatus;
+import com.udacity.catpoint.secservice.data.PretendDatabaseSecurityRepositoryImpl;
+import com.udacity.catpoint.secservice.data.Sensor;
+import com.udacity.catpoint.secservice.data.SensorType;
+import com.udacity.catpoint.secservice.data.WriteAheadLogSecurityRepositoryImpl;
+import com.udacity.catpoint.secservice.service.SecurityService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.swing.event.TableModelEvent;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+
+public class SensorTableModelTests {
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Refreshing after a change only reports the rows that changed")
+    public void verifyThatOnlyChangedRowsAreUpdated_when_ModelIsRefreshed() throws IOException {
+        try (var repository = new WriteAheadLogSecurityRepositoryImpl(directory)) {
+            var service = new SecurityService(repository, (image, threshold) -> false);
+            List<Sensor> sensors = new ArrayList<>();
+            for (int i = 0; i < 1_000; i++) {
+                sensors.add(new Sensor(String.format("Sensor %04d", i), SensorType.DOOR));
+            }
+            service.addSensors(sensors);
+            var model = new SensorTableModel(service);
+            model.refresh(service.getSensors());
+            List<TableModelEvent> events = new ArrayList<>();
+            model.addTableModelListener(events::add);
+
+            service.changeSensorActivationStatus(sensors.get(10), true);
+            service.changeSensorActivationStatus(sensors.get(500), true);
+            service.removeSensor(sensors.get(20));
+            model.refresh(service.getSensors());
+
+            Assertions.assertEquals(3, events.size());
+            Assertions.assertEquals(999, model.getRowCount());
+            Assertions.assertEquals(Boolean.TRUE, model.getValueAt(10, SensorTableModel.ACTIVE_COLUMN));
+            Assertions.assertEquals(Boolean.TRUE, model.getValueAt(499, SensorTableModel.ACTIVE_COLUMN));
+            Assertions.assertEquals("Sensor 0021", model.getValueAt(20, SensorTableModel.NAME_COLUMN));
+
+            events.clear();
+            service.setArmingStatus(ArmingStatus.ARMED_HOME);
+            model.refresh(service.getSensors());
+            Assertions.assertEquals(2, events.size());
+            Assertions.assertEquals(Boolean.FALSE, model.getValueAt(499, SensorTableModel.ACTIVE_COLUMN));
+        }
+    }
+
+    @Test
+    @DisplayName("Activating a sensor through the table after arming raises the alarm")
+    public void verifyThatAlarmIsPending_when_SensorIsActivatedThroughModelAfterArming() throws BackingStoreException {
+        Preferences prefs = Preferences.userRoot().node("catpoint-test-" + UUID.randomUUID());
+        try {
+            var service = new SecurityService(new PretendDatabaseSecurityRepositoryImpl(prefs), (image, threshold) -> false);
+            service.addSensor(new Sensor("Door", SensorType.DOOR));
+            var model = new SensorTableModel(service);
+            model.refresh(service.getSensors());
+            service.addStatusListener(new StatusListener() {
+                @Override
+                public void notify(AlarmStatus status) {
+                }
+
+                @Override
+                public void catDetected(boolean catDetected) {
+                }
+
+                @Override
+                public void sensorStatusChanged() {
+                }
+
+                @Override
+                public void sensorsChanged(SensorChangeEvent event) {
+                    event.changes().forEach(change -> model.sensorChanged(change.sensor()));
+                }
+            });
+
+            model.setValueAt(true, 0, SensorTableModel.ACTIVE_COLUMN);
+            Assertions.assertTrue(model.getSensor(0).getActive());
+            service.setArmingStatus(ArmingStatus.ARMED_HOME);
+            Assertions.assertEquals(Boolean.FALSE, model.getValueAt(0, SensorTableModel.ACTIVE_COLUMN));
+            Assertions.assertFalse(model.getSensor(0).getActive());
+
+            model.setValueAt(true, 0, SensorTableModel.ACTIVE_COLUMN);
+            Assertions.assertEquals(AlarmStatus.PENDING_ALARM, service.getAlarmStatus());
+            Assertions.assertEquals(Boolean.TRUE, model.getValueAt(0, SensorTableModel.ACTIVE_COLUMN));
+        } finally {
+            prefs.removeNode();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.udacity.catpoint.secservice.data;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CoalescingSecurityRepositoryTests {
+    @Mock
+    private SecurityRepository delegate;
+
+    private CoalescingSecurityRepository repository;
+
+    @BeforeEach
+    public void init() {
+        when(delegate.getSensors()).thenReturn(Set.of());
+        when(delegate.getAlarmStatus()).thenReturn(AlarmStatus.NO_ALARM);
+        when(delegate.getArmingStatus()).thenReturn(ArmingStatus.DISARMED);
+        repository = new CoalescingSecurityRepository(delegate, Duration.ofHours(1), 10_000);
+    }
+
+    @AfterEach
+    public void close() {
+        repository.close();
+    }
+
+    @Test
+    @DisplayName("Many sensor writes => One delegate write")
+    public void verifyThatSensorUpdatesAreCoalesced_when_Flushed() {
+        var sensor = new Sensor("Door", SensorType.DOOR);
+        repository.addSensor(sensor);
+        for (int i = 0; i < 100; i++) {
+            sensor.setActive(i % 2 == 0);
+            repository.updateSensor(sensor);
+        }
+        repository.setArmingStatus(ArmingStatus.ARMED_HOME);
+
+        verify(delegate, never()).updateSensors(anyCollection());
+        Assertions.assertEquals(ArmingStatus.ARMED_HOME, repository.getArmingStatus());
+        Assertions.assertTrue(repository.getSensors().contains(sensor));
+
+        repository.flush();
+
+        verify(delegate, times(1)).updateSensors(anyCollection());
+        verify(delegate, times(1)).setArmingStatus(ArmingStatus.ARMED_HOME);
+        verify(delegate, never()).updateSensor(any(Sensor.class));
+    }
+
+    @Test
+    @DisplayName("Removing a queued sensor => Only the removal is written")
+    public void verifyThatRemovalSupersedesQueuedUpdate() {
+        var sensor = new Sensor("Window", SensorType.WINDOW);
+        repository.addSensor(sensor);
+        repository.removeSensor(sensor);
+
+        repository.flush();
+
+        verify(delegate, times(1)).removeSensors(anyCollection());
+        verify(delegate, never()).updateSensors(anyCollection());
+        Assertions.assertTrue(repository.getSensors().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Failed background flush + Successful retry => flush does not throw")
+    public void verifyThatFlushSucceeds_when_BackgroundFailureIsRetried() throws InterruptedException {
+        var attempted = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            attempted.countDown();
+            throw new IllegalStateException("Disk full");
+        }).doNothing().when(delegate).updateSensors(anyCollection());
+
+        try (var eager = new CoalescingSecurityRepository(delegate, Duration.ofHours(1), 1)) {
+            eager.addSensor(new Sensor("Door", SensorType.DOOR));
+            Assertions.assertTrue(attempted.await(5, TimeUnit.SECONDS));
+
+            eager.flush();
+
+            verify(delegate, times(2)).updateSensors(anyCollection());
+        }
+    }
+
+    @Test
+    @DisplayName("Arming burst of 5000 sensors + No batch size => One delegate write")
+    public void verifyThatBurstIsOneWrite_when_NoBatchSizeIsGiven() {
+        try (var unbounded = new CoalescingSecurityRepository(delegate, Duration.ofHours(1))) {
+            for (int i = 0; i < 5_000; i++) {
+                unbounded.addSensor(new Sensor("Sensor " + i, SensorType.MOTION));
+            }
+            unbounded.flush();
+
+            verify(delegate, times(1)).updateSensors(argThat((Collection<Sensor> batch) -> batch.size() == 5_000));
+        }
+    }
+
+    @Test
+    @DisplayName("Burst larger than the opt-in batch size => Several writes that together hold every change")
+    public void verifyThatSplitBurstIsConsistent_when_BatchSizeIsGiven() {
+        List<Sensor> written = new ArrayList<>();
+        doAnswer(invocation -> {
+            Collection<Sensor> batch = invocation.getArgument(0);
+            synchronized (written) {
+                written.addAll(batch);
+            }
+            return null;
+        }).when(delegate).updateSensors(anyCollection());
+
+        List<Sensor> sensors = new ArrayList<>();
+        try (var bounded = new CoalescingSecurityRepository(delegate, Duration.ofHours(1), 1_000)) {
+            for (int i = 0; i < 5_000; i++) {
+                var sensor = new Sensor("Sensor " + i, SensorType.MOTION);
+                sensors.add(sensor);
+                bounded.addSensor(sensor);
+            }
+            bounded.flush();
+        }
+
+        verify(delegate, atLeast(5)).updateSensors(anyCollection());
+        synchronized (written) {
+            Assertions.assertEquals(Set.copyOf(sensors), Set.copyOf(written));
+            Assertions.assertEquals(sensors.size(), written.size());
+        }
+    }
+}
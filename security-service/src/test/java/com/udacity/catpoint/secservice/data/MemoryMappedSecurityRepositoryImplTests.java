@@ -0,0 +1,131 @@
+package com.udacity.catpoint.secservice.data;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class MemoryMappedSecurityRepositoryImplTests {
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Sensors and statuses survive a restart")
+    public void verifyThatStateIsRecovered_when_StoreIsReopened() throws IOException {
+        var door = new Sensor("Door", SensorType.DOOR);
+        var window = new Sensor("Window", SensorType.WINDOW);
+        try (var repository = new MemoryMappedSecurityRepositoryImpl(directory)) {
+            repository.addSensor(door);
+            repository.addSensor(window);
+            window.setActive(true);
+            repository.updateSensor(window);
+            repository.removeSensor(door);
+            repository.setArmingStatus(ArmingStatus.ARMED_HOME);
+            repository.setAlarmStatus(AlarmStatus.ALARM);
+        }
+
+        try (var repository = new MemoryMappedSecurityRepositoryImpl(directory)) {
+            Assertions.assertEquals(ArmingStatus.ARMED_HOME, repository.getArmingStatus());
+            Assertions.assertEquals(AlarmStatus.ALARM, repository.getAlarmStatus());
+            Assertions.assertEquals(1, repository.getSensors().size());
+            var recovered = repository.getSensors().iterator().next();
+            Assertions.assertEquals(window, recovered);
+            Assertions.assertEquals("Window", recovered.getName());
+            Assertions.assertEquals(SensorType.WINDOW, recovered.getSensorType());
+            Assertions.assertTrue(recovered.getActive());
+        }
+    }
+
+    @Test
+    @DisplayName("Store grows past its initial mapping and reuses freed slots")
+    public void verifyThatStoreGrows_when_ManySensorsAreAdded() throws IOException {
+        try (var repository = new MemoryMappedSecurityRepositoryImpl(directory)) {
+            for (int i = 0; i < 500; i++) {
+                repository.addSensor(new Sensor("Sensor " + i, SensorType.MOTION));
+            }
+            var removed = repository.getSensors().iterator().next();
+            repository.removeSensor(removed);
+            repository.addSensor(new Sensor("Replacement", SensorType.DOOR));
+        }
+
+        try (var repository = new MemoryMappedSecurityRepositoryImpl(directory)) {
+            Assertions.assertEquals(500, repository.getSensors().size());
+            Assertions.assertTrue(repository.getSensors().stream().anyMatch(s -> s.getName().equals("Replacement")));
+        }
+    }
+
+    @Test
+    @DisplayName("Records whose name is missing are dropped on load and their slots reused")
+    public void verifyThatRecordIsFreed_when_NameIsMissing() throws IOException {
+        try (var repository = new MemoryMappedSecurityRepositoryImpl(directory)) {
+            repository.addSensor(new Sensor("Door", SensorType.DOOR));
+            repository.addSensor(new Sensor("Window", SensorType.WINDOW));
+        }
+        try (var names = FileChannel.open(directory.resolve(MemoryMappedSecurityRepositoryImpl.NAMES_FILE),
+                StandardOpenOption.WRITE)) {
+            names.truncate("Door".length());
+        }
+
+        try (var repository = new MemoryMappedSecurityRepositoryImpl(directory)) {
+            Assertions.assertEquals(1, repository.getSensors().size());
+            Assertions.assertEquals("Door", repository.getSensors().iterator().next().getName());
+            Assertions.assertThrows(UnsupportedOperationException.class,
+                    () -> repository.getSensors().add(new Sensor("Garage", SensorType.DOOR)));
+            repository.addSensor(new Sensor("Garage", SensorType.DOOR));
+        }
+        try (var repository = new MemoryMappedSecurityRepositoryImpl(directory)) {
+            Assertions.assertEquals(2, repository.getSensors().size());
+        }
+    }
+
+    @Test
+    @DisplayName("Writers on many threads lose nothing, and readers iterate a snapshot that never changes under them")
+    public void verifyThatWritesAreKept_when_ThreadsWriteConcurrently() throws Exception {
+        try (var repository = new MemoryMappedSecurityRepositoryImpl(directory)) {
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<?>> writers = new ArrayList<>();
+                for (int t = 0; t < 4; t++) {
+                    int thread = t;
+                    writers.add(executor.submit(() -> {
+                        for (int i = 0; i < 250; i++) {
+                            var sensor = new Sensor("Sensor " + thread + "-" + i, SensorType.MOTION);
+                            repository.addSensor(sensor);
+                            sensor.setActive(true);
+                            repository.updateSensor(sensor);
+                        }
+                    }));
+                }
+                Set<Sensor> early = repository.getSensors();
+                int earlySize = early.size();
+                for (Future<?> writer : writers) {
+                    while (!writer.isDone()) {
+                        repository.getSensors().forEach(Sensor::getActive);
+                    }
+                    writer.get();
+                }
+                Assertions.assertEquals(earlySize, early.size());
+            } finally {
+                executor.shutdownNow();
+            }
+            Assertions.assertEquals(1000, repository.getSensors().size());
+            Assertions.assertTrue(repository.getSensors().stream().allMatch(Sensor::getActive));
+        }
+
+        try (var repository = new MemoryMappedSecurityRepositoryImpl(directory)) {
+            Assertions.assertEquals(1000, repository.getSensors().size());
+            Assertions.assertTrue(repository.getSensors().stream().allMatch(Sensor::getActive));
+        }
+    }
+}
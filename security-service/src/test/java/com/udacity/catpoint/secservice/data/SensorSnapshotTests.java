@@ -0,0 +1,79 @@
+package com.udacity.catpoint.secservice.data;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.UUID;
+
+public class SensorSnapshotTests {
+    @Test
+    @DisplayName("Snapshots iterate in id order and earlier snapshots never change")
+    public void verifyThatEarlierSnapshotsAreUnchanged_when_SensorsAreAddedAndRemoved() {
+        var expected = new TreeSet<Sensor>(Comparator.comparing(Sensor::getSensorId));
+        List<Sensor> added = new ArrayList<>();
+        var snapshot = SensorSnapshot.empty();
+        for (int i = 0; i < 500; i++) {
+            var sensor = new Sensor(UUID.randomUUID(), "Sensor " + (i % 41),
+                    SensorType.values()[i % SensorType.values().length], i % 3 == 0);
+            snapshot = snapshot.with(sensor);
+            expected.add(sensor);
+            added.add(sensor);
+        }
+        var full = snapshot;
+        List<Sensor> removed = new ArrayList<>();
+        for (int i = 0; i < added.size(); i += 3) {
+            removed.add(added.get(i));
+            expected.remove(added.get(i));
+        }
+        snapshot = snapshot.withoutAll(removed);
+
+        Assertions.assertEquals(new ArrayList<>(expected), new ArrayList<>(snapshot));
+        Assertions.assertEquals(expected.stream().map(SensorState::of).toList(), new ArrayList<>(snapshot.states()));
+        Assertions.assertEquals(expected.size(), snapshot.size());
+        Assertions.assertEquals(500, full.size());
+        Assertions.assertTrue(full.contains(added.get(0)));
+        Assertions.assertFalse(snapshot.contains(added.get(0)));
+        Assertions.assertEquals(501, snapshot.version());
+    }
+
+    @Test
+    @DisplayName("Sensors read from a snapshot are the caller's own and changing them never changes the snapshot")
+    public void verifyThatSnapshotIsImmutable_when_SensorReadFromItChanges() {
+        var original = new Sensor("Door", SensorType.DOOR);
+        var snapshot = SensorSnapshot.empty().with(original);
+        Sensor door = snapshot.iterator().next();
+
+        Assertions.assertNotSame(door, snapshot.iterator().next());
+        door.setActive(true);
+        original.setActive(true);
+        Assertions.assertFalse(snapshot.iterator().next().getActive());
+        Assertions.assertFalse(snapshot.get(door.getSensorId()).active());
+
+        var updated = snapshot.with(door);
+        Assertions.assertTrue(updated.get(door.getSensorId()).active());
+        Assertions.assertSame(updated.get(door.getSensorId()), updated.states().iterator().next());
+        Assertions.assertEquals(original, updated.get(original.getSensorId()).toSensor());
+        Assertions.assertEquals(1, updated.size());
+        Assertions.assertTrue(updated.contains(original));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> updated.add(door));
+    }
+
+    @Test
+    @DisplayName("A sensor renamed in a later snapshot is still found, and replaced, by its id")
+    public void verifyThatSensorIsReplaced_when_StoredUnderNewName() {
+        var id = UUID.randomUUID();
+        var snapshot = SensorSnapshot.empty()
+                .with(new Sensor(id, "Back door", SensorType.DOOR, false))
+                .with(new Sensor(UUID.randomUUID(), "Hall", SensorType.MOTION, false))
+                .with(new Sensor(id, "Side door", SensorType.DOOR, true));
+
+        Assertions.assertEquals(2, snapshot.size());
+        Assertions.assertEquals(new SensorState(id, "Side door", SensorType.DOOR, true), snapshot.get(id));
+        Assertions.assertEquals(1, snapshot.without(new Sensor(id, "Back door", SensorType.DOOR, false)).size());
+    }
+}
@@ -0,0 +1,102 @@
+package com.udacity.catpoint.secservice.data;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.TreeSet;
+import java.util.UUID;
+
+public class SensorTableTests {
+    @Test
+    @DisplayName("Sensors iterate in the same order as their natural order")
+    public void verifyThatIterationIsSorted_when_SensorsAreAddedAndRemoved() {
+        var table = new SensorTable();
+        var expected = new TreeSet<Sensor>();
+        List<Sensor> added = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            var sensor = new Sensor(UUID.randomUUID(), "Sensor " + (i % 37),
+                    SensorType.values()[i % SensorType.values().length], i % 3 == 0);
+            table.put(sensor);
+            expected.add(sensor);
+            added.add(sensor);
+        }
+        for (int i = 0; i < added.size(); i += 4) {
+            table.remove(added.get(i).getSensorId());
+            expected.remove(added.get(i));
+        }
+
+        Assertions.assertEquals(new ArrayList<>(expected), new ArrayList<>(table.asSet()));
+        Assertions.assertEquals(expected.size(), table.size());
+        Assertions.assertEquals(expected.stream().filter(Sensor::getActive).count(), table.activeCount());
+        Assertions.assertTrue(table.asSet().contains(added.get(1)));
+        Assertions.assertFalse(table.asSet().contains(added.get(0)));
+    }
+
+    @Test
+    @DisplayName("Every view of a sensor sees the stored active flag, and only put changes it")
+    public void verifyThatViewsShareActiveFlag_when_SensorIsStored() {
+        var table = new SensorTable();
+        var door = new Sensor("Door", SensorType.DOOR);
+        table.put(door);
+        Sensor view = table.asSet().iterator().next();
+        Sensor other = table.get(door.getSensorId());
+
+        //the caller's own sensor is not tied to the table
+        door.setActive(true);
+        Assertions.assertFalse(view.getActive());
+        Assertions.assertEquals(0, table.activeCount());
+
+        table.put(door);
+        Assertions.assertTrue(view.getActive());
+        Assertions.assertTrue(other.getActive());
+
+        //setting a view's flag detaches it instead of writing to the table
+        other.setActive(false);
+        Assertions.assertFalse(other.getActive());
+        Assertions.assertTrue(view.getActive());
+        Assertions.assertEquals(1, table.activeCount());
+    }
+
+    @Test
+    @DisplayName("Views of a removed sensor keep its last flag, whoever takes over the row")
+    public void verifyThatViewsKeepLastFlag_when_SensorIsRemoved() {
+        var table = new SensorTable();
+        var door = new Sensor(UUID.randomUUID(), "Door", SensorType.DOOR, false);
+        table.put(door);
+        Sensor view = table.get(door.getSensorId());
+        table.put(door.withActive(true));
+
+        table.remove(door.getSensorId());
+        table.put(new Sensor(UUID.randomUUID(), "Window", SensorType.WINDOW, false));
+        Assertions.assertTrue(view.getActive());
+        Assertions.assertEquals(0, table.activeCount());
+    }
+
+    @Test
+    @DisplayName("Streams of the live set only promise an order, since removals shrink it mid-stream")
+    public void verifyThatSpliteratorIsNotSized_when_SetIsLive() {
+        var table = new SensorTable();
+        List<Sensor> sensors = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            sensors.add(new Sensor("Sensor " + i, SensorType.MOTION));
+            table.put(sensors.get(i));
+        }
+        Spliterator<Sensor> spliterator = table.asSet().spliterator();
+        Assertions.assertFalse(spliterator.hasCharacteristics(Spliterator.SIZED));
+        Assertions.assertTrue(spliterator.hasCharacteristics(Spliterator.SORTED));
+
+        List<Sensor> seen = new ArrayList<>();
+        spliterator.forEachRemaining(sensor -> {
+            seen.add(sensor);
+            if (seen.size() == 1) {
+                table.remove(sensors.get(9).getSensorId());
+            }
+        });
+        Assertions.assertEquals(9, seen.size());
+        Assertions.assertEquals(9, table.asSet().stream().count());
+    }
+}
@@ -0,0 +1,144 @@
+package com.udacity.catpoint.secservice.data;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+public class WriteAheadLogSecurityRepositoryImplTests {
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("State survives a restart")
+    public void verifyThatStateIsRecovered_when_RepositoryIsReopened() throws IOException {
+        var door = new Sensor("Door", SensorType.DOOR);
+        var window = new Sensor("Window", SensorType.WINDOW);
+        try (var repository = new WriteAheadLogSecurityRepositoryImpl(directory)) {
+            repository.addSensor(door);
+            repository.addSensor(window);
+            door.setActive(true);
+            repository.updateSensor(door);
+            repository.removeSensor(window);
+            repository.setArmingStatus(ArmingStatus.ARMED_AWAY);
+            repository.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+        }
+
+        try (var repository = new WriteAheadLogSecurityRepositoryImpl(directory)) {
+            Assertions.assertEquals(1, repository.getSensors().size());
+            var recovered = repository.getSensors().iterator().next();
+            Assertions.assertEquals(door, recovered);
+            Assertions.assertEquals("Door", recovered.getName());
+            Assertions.assertTrue(recovered.getActive());
+            Assertions.assertEquals(ArmingStatus.ARMED_AWAY, repository.getArmingStatus());
+            Assertions.assertEquals(AlarmStatus.PENDING_ALARM, repository.getAlarmStatus());
+        }
+    }
+
+    @Test
+    @DisplayName("State survives log compaction")
+    public void verifyThatStateIsRecovered_after_LogIsCompacted() throws IOException {
+        var sensor = new Sensor("Motion", SensorType.MOTION);
+        try (var repository = new WriteAheadLogSecurityRepositoryImpl(directory, 8)) {
+            repository.addSensor(sensor);
+            for (int i = 0; i < 20; i++) {
+                sensor.setActive(i % 2 == 0);
+                repository.updateSensor(sensor);
+            }
+        }
+
+        Assertions.assertTrue(Files.exists(directory.resolve(WriteAheadLogSecurityRepositoryImpl.SNAPSHOT_FILE)));
+        try (var repository = new WriteAheadLogSecurityRepositoryImpl(directory, 8)) {
+            Assertions.assertEquals(1, repository.getSensors().size());
+            Assertions.assertFalse(repository.getSensors().iterator().next().getActive());
+        }
+    }
+
+    @Test
+    @DisplayName("A torn record at the end of the log is discarded")
+    public void verifyThatTornWriteIsIgnored_when_RepositoryIsReopened() throws IOException {
+        try (var repository = new WriteAheadLogSecurityRepositoryImpl(directory)) {
+            repository.addSensor(new Sensor("Door", SensorType.DOOR));
+            repository.setArmingStatus(ArmingStatus.ARMED_HOME);
+        }
+        Path log = directory.resolve(WriteAheadLogSecurityRepositoryImpl.LOG_FILE);
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(log) - 1);
+        }
+
+        try (var repository = new WriteAheadLogSecurityRepositoryImpl(directory)) {
+            Assertions.assertEquals(1, repository.getSensors().size());
+            Assertions.assertEquals(ArmingStatus.DISARMED, repository.getArmingStatus());
+            repository.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        }
+
+        try (var repository = new WriteAheadLogSecurityRepositoryImpl(directory)) {
+            Assertions.assertEquals(ArmingStatus.ARMED_AWAY, repository.getArmingStatus());
+        }
+    }
+
+    @Test
+    @DisplayName("Concurrent writers and compactions leave an intact log")
+    public void verifyThatStateIsRecovered_when_ThreadsWriteConcurrently() throws Exception {
+        List<Sensor> sensors = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            sensors.add(new Sensor("Sensor " + i, SensorType.DOOR));
+        }
+        try (var repository = new WriteAheadLogSecurityRepositoryImpl(directory, 16)) {
+            repository.addSensors(sensors);
+            List<Thread> threads = new ArrayList<>();
+            for (Sensor sensor : sensors) {
+                Thread thread = new Thread(() -> {
+                    for (int i = 0; i < 101; i++) {
+                        repository.updateSensor(new Sensor(sensor.getSensorId(), sensor.getName(),
+                                sensor.getSensorType(), i % 2 == 0));
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+
+        try (var repository = new WriteAheadLogSecurityRepositoryImpl(directory, 16)) {
+            Assertions.assertEquals(4, repository.getSensors().size());
+            Assertions.assertTrue(repository.getSensors().stream().allMatch(Sensor::getActive));
+        }
+    }
+
+    @Test
+    @DisplayName("A change that fails to be written is neither applied nor left half-written in the log")
+    public void verifyThatLogIsRolledBack_when_WriteFails() throws IOException {
+        var door = new Sensor("Door", SensorType.DOOR);
+        //too long to be encoded, so the batch fails after its first record was appended
+        var unnamable = new Sensor("x".repeat(40_000), SensorType.WINDOW);
+        var window = new Sensor("Window", SensorType.WINDOW);
+        try (var repository = new WriteAheadLogSecurityRepositoryImpl(directory)) {
+            repository.addSensor(door);
+            long length = Files.size(directory.resolve(WriteAheadLogSecurityRepositoryImpl.LOG_FILE));
+
+            Assertions.assertThrows(IllegalArgumentException.class,
+                    () -> repository.addSensors(List.of(window, unnamable)));
+            Assertions.assertEquals(1, repository.getSensors().size());
+            Assertions.assertEquals(length, Files.size(directory.resolve(WriteAheadLogSecurityRepositoryImpl.LOG_FILE)));
+
+            repository.setArmingStatus(ArmingStatus.ARMED_HOME);
+        }
+
+        try (var repository = new WriteAheadLogSecurityRepositoryImpl(directory)) {
+            Assertions.assertEquals(1, repository.getSensors().size());
+            Assertions.assertEquals(door, repository.getSensors().iterator().next());
+            Assertions.assertEquals(ArmingStatus.ARMED_HOME, repository.getArmingStatus());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.udacity.catpoint.secservice.metrics;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+public class InMemoryMetricsRegistryTests {
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Percentiles are within 3%")
+    public void verifyThatPercentilesAreAccurate_when_ManyValuesAreRecorded() {
+        var registry = new InMemoryMetricsRegistry();
+        var timer = registry.timer("test");
+        for (long value = 1; value <= 100_000; value++) {
+            timer.record(value * 1_000);
+        }
+
+        var snapshot = registry.snapshot().timers().get("test");
+        Assertions.assertEquals(100_000, snapshot.count());
+        Assertions.assertEquals(1_000, snapshot.min());
+        Assertions.assertEquals(100_000_000, snapshot.max());
+        Assertions.assertEquals(50_000_000, snapshot.p50(), 50_000_000 * 0.03);
+        Assertions.assertEquals(99_000_000, snapshot.p99(), 99_000_000 * 0.03);
+        Assertions.assertEquals(99_900_000, snapshot.p999(), 99_900_000 * 0.03);
+    }
+
+    @Test
+    @DisplayName("Same name, same metric")
+    public void verifyThatMetricsAreShared_when_LookedUpByTheSameName() {
+        var registry = new InMemoryMetricsRegistry();
+        registry.counter("events").increment();
+        registry.counter("events").add(2);
+
+        Assertions.assertSame(registry.timer("latency"), registry.timer("latency"));
+        Assertions.assertEquals(3L, registry.snapshot().counters().get("events").longValue());
+    }
+
+    @Test
+    @DisplayName("Reports are written as JSON")
+    public void verifyThatReportIsWritten_when_ReporterIsClosed() throws IOException {
+        var registry = new InMemoryMetricsRegistry();
+        registry.counter("service.alarmStatus.ALARM").increment();
+        registry.timer("service.sensorDecision").record(2_000);
+        var file = directory.resolve("metrics.json");
+
+        new MetricsReporter(registry, file, MetricsReporter.Format.JSON, Duration.ofHours(1)).close();
+
+        var report = Files.readString(file);
+        Assertions.assertTrue(report.contains("\"service.alarmStatus.ALARM\": 1"));
+        Assertions.assertTrue(report.contains("\"service.sensorDecision\""));
+    }
+}
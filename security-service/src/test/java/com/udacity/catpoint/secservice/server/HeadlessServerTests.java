@@ -0,0 +1,120 @@
+package com.udacity.catpoint.secservice.server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Properties;
+
+public class HeadlessServerTests {
+    @TempDir
+    Path directory;
+
+    private HeadlessServer server;
+
+    @BeforeEach
+    public void setUp() {
+        Properties config = new Properties();
+        config.setProperty("repository", "wal");
+        config.setProperty("repository.directory", directory.resolve("data").toString());
+        config.setProperty("imageService", "fake");
+        config.setProperty("ingest.socket.port", "0");
+        config.setProperty("ingest.dropDirectory", directory.resolve("drop").toString());
+        server = new HeadlessServer(config);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    @DisplayName("Commands are answered with OK and the status, or ERR and the reason")
+    public void verifyThatCommandsAreParsed() {
+        CommandProcessor commands = server.getCommands();
+
+        Assertions.assertEquals("OK", commands.execute("sensor add DOOR Front Door"));
+        Assertions.assertEquals("OK NO_ALARM ARMED_AWAY 0", commands.execute("  ARM   away "));
+        Assertions.assertEquals("OK PENDING_ALARM ARMED_AWAY 1", commands.execute("sensor activate Front Door"));
+        Assertions.assertEquals("OK NO_ALARM DISARMED 0", commands.execute("disarm"));
+
+        Assertions.assertEquals("ERR Expected home or away", commands.execute("arm sideways"));
+        Assertions.assertEquals("ERR Missing arguments", commands.execute("sensor add"));
+        Assertions.assertEquals("ERR Missing arguments", commands.execute("sensor add DOOR"));
+        Assertions.assertTrue(commands.execute("sensor add GARAGE Side Door").startsWith("ERR "));
+        Assertions.assertTrue(commands.execute("sensor activate Back Door").startsWith("ERR "));
+        Assertions.assertEquals("ERR Unknown sensor action open", commands.execute("sensor open Front Door"));
+        Assertions.assertEquals("ERR Empty command", commands.execute(""));
+        Assertions.assertEquals("ERR Unknown command launch", commands.execute("launch"));
+    }
+
+    @Test
+    @DisplayName("Each line sent over the socket gets one response line")
+    public void verifyThatSocketAnswersCommands() throws IOException {
+        try (var socket = new Socket(InetAddress.getLoopbackAddress(), server.getSocketPort());
+             var in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             var out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8)) {
+            out.println("sensor add MOTION Hallway");
+            Assertions.assertEquals("OK", in.readLine());
+            out.println("sensor activate Hallway");
+            Assertions.assertEquals("OK NO_ALARM DISARMED 1", in.readLine());
+            out.println("status please");
+            Assertions.assertEquals("OK NO_ALARM DISARMED 1", in.readLine());
+        }
+    }
+
+    @Test
+    @DisplayName("A dropped .cmd file is answered in a .out file and removed")
+    public void verifyThatDroppedCommandsAreAnswered() throws Exception {
+        Path drop = directory.resolve("drop");
+        Path staged = drop.resolve(".batch.cmd");
+        Files.write(staged, List.of("sensor add WINDOW Kitchen", "", "arm home", "sensor activate Kitchen", "bogus"),
+                StandardCharsets.UTF_8);
+        Files.move(staged, drop.resolve("batch.cmd"), StandardCopyOption.ATOMIC_MOVE);
+
+        Path out = drop.resolve("batch.out");
+        for (int i = 0; i < 250 && (Files.exists(drop.resolve("batch.cmd")) || !Files.exists(out)); i++) {
+            Thread.sleep(20);
+        }
+
+        Assertions.assertFalse(Files.exists(drop.resolve("batch.cmd")));
+        Assertions.assertEquals(List.of("OK", "OK NO_ALARM ARMED_HOME 0", "OK PENDING_ALARM ARMED_HOME 1",
+                "ERR Unknown command bogus"), Files.readAllLines(out, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Without a configured image service or fallback, a frame fails instead of being called cat-free")
+    public void verifyThatFrameFails_when_NoImageServiceIsAvailable() throws IOException {
+        Properties config = new Properties();
+        config.setProperty("repository", "wal");
+        config.setProperty("repository.directory", directory.resolve("default").toString());
+        Path frame = directory.resolve("frame.png");
+        ImageIO.write(new BufferedImage(32, 24, BufferedImage.TYPE_INT_RGB), "png", frame.toFile());
+
+        try (var defaults = new HeadlessServer(config)) {
+            CommandProcessor commands = defaults.getCommands();
+            Assertions.assertEquals("OK", commands.execute("sensor add DOOR Front Door"));
+            Assertions.assertEquals("OK NO_ALARM ARMED_HOME 0", commands.execute("arm home"));
+            Assertions.assertEquals("OK PENDING_ALARM ARMED_HOME 1", commands.execute("sensor activate Front Door"));
+
+            Assertions.assertEquals("ERR Image service unavailable", commands.execute("image " + frame));
+            Assertions.assertEquals("OK PENDING_ALARM ARMED_HOME 1", commands.execute("status"));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.udacity.catpoint.secservice.server;
+
+import com.udacity.catpoint.secservice.data.ArmingStatus;
+import com.udacity.catpoint.secservice.data.Sensor;
+import com.udacity.catpoint.secservice.data.SensorType;
+import com.udacity.catpoint.secservice.data.WriteAheadLogSecurityRepositoryImpl;
+import com.udacity.catpoint.secservice.metrics.InMemoryMetricsRegistry;
+import com.udacity.catpoint.secservice.service.SecurityService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class HttpIngestTests {
+    @TempDir
+    Path directory;
+
+    private final AtomicBoolean failNextWrite = new AtomicBoolean();
+    private final InMemoryMetricsRegistry metrics = new InMemoryMetricsRegistry();
+    private WriteAheadLogSecurityRepositoryImpl repository;
+    private HttpIngest ingest;
+
+    @BeforeEach
+    public void setUp() {
+        repository = new WriteAheadLogSecurityRepositoryImpl(directory) {
+            @Override
+            public synchronized void updateSensors(Collection<Sensor> batch) {
+                if (failNextWrite.getAndSet(false)) {
+                    throw new IllegalStateException("Disk full");
+                }
+                super.updateSensors(batch);
+            }
+        };
+        var securityService = SecurityService.concurrent(repository, (image, threshold) -> true);
+        var sensors = new SensorDirectory(securityService);
+        sensors.add("Front Door", SensorType.DOOR);
+        sensors.add("Hallway", SensorType.MOTION);
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        ingest = new HttpIngest(securityService, sensors,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 16, 1, 16, metrics);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        ingest.close();
+        repository.close();
+    }
+
+    @Test
+    @DisplayName("Batched sensor events raise the alarm")
+    public void verifyThatAlarmIsRaised_when_SensorEventsArePosted() throws Exception {
+        var response = request("POST", "/sensors/events",
+                "[{\"sensor\": \"Front Door\", \"active\": true}, {\"sensor\": \"Hallway\", \"active\": true}]");
+        Assertions.assertEquals(202, response.code());
+
+        String status = "";
+        for (int i = 0; i < 100 && !status.contains("\"activeSensors\":2"); i++) {
+            Thread.sleep(20);
+            status = request("GET", "/status", null).body();
+        }
+        Assertions.assertTrue(status.contains("\"alarmStatus\":\"ALARM\""), status);
+    }
+
+    @Test
+    @DisplayName("Unknown sensors and oversized frames are refused")
+    public void verifyThatBadRequestsAreRejected() throws Exception {
+        Assertions.assertEquals(400, request("POST", "/sensors/events",
+                "[{\"sensor\": \"Garage\", \"active\": true}]").code());
+        Assertions.assertEquals(413, request("POST", "/frames", "x".repeat(64)).code());
+        Assertions.assertEquals(405, request("GET", "/arming", null).code());
+    }
+
+    @Test
+    @DisplayName("A batch the repository fails to write is dropped and counted, and later batches are still applied")
+    public void verifyThatApplierKeepsRunning_when_RepositoryThrowsOnce() throws Exception {
+        failNextWrite.set(true);
+        Assertions.assertEquals(202, request("POST", "/sensors/events",
+                "[{\"sensor\": \"Front Door\", \"active\": true}]").code());
+        for (int i = 0; i < 100 && metrics.counter("ingest.http.failures").count() == 0; i++) {
+            Thread.sleep(20);
+        }
+        Assertions.assertEquals(1, metrics.counter("ingest.http.failures").count());
+
+        //more batches than the queue holds, so they only fit if the applier is still draining it
+        for (int i = 0; i < 40; i++) {
+            Assertions.assertEquals(202, request("POST", "/sensors/events",
+                    "[{\"sensor\": \"Hallway\", \"active\": " + (i % 2 == 0) + "}]").code());
+            Thread.sleep(5);
+        }
+        Assertions.assertEquals(202, request("POST", "/sensors/events",
+                "[{\"sensor\": \"Front Door\", \"active\": true}]").code());
+
+        String status = "";
+        for (int i = 0; i < 100 && !status.contains("\"activeSensors\":1"); i++) {
+            Thread.sleep(20);
+            status = request("GET", "/status", null).body();
+        }
+        Assertions.assertTrue(status.contains("\"activeSensors\":1"), status);
+        Assertions.assertEquals(1, metrics.counter("ingest.http.failures").count());
+        //the dropped batch left no trace, so the service's count matches what was stored
+        Assertions.assertEquals(1, repository.getSensors().stream().filter(Sensor::getActive).count());
+    }
+
+    private Response request(String method, String path, String body) throws IOException {
+        var connection = (HttpURLConnection) URI.create("http://127.0.0.1:" + ingest.getPort() + path).toURL().openConnection();
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int code = connection.getResponseCode();
+        try (InputStream in = code < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            return new Response(code, in == null ? "" : new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private record Response(int code, String body) {
+    }
+}
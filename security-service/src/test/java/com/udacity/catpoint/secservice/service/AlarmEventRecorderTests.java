@@ -0,0 +1,105 @@
+package com.udacity.catpoint.secservice.service;
+
+import com.udacity.catpoint.imageservice.ImageService;
+import com.udacity.catpoint.secservice.data.AlarmStatus;
+import com.udacity.catpoint.secservice.data.ArmingStatus;
+import com.udacity.catpoint.secservice.data.Sensor;
+import com.udacity.catpoint.secservice.data.SensorType;
+import com.udacity.catpoint.secservice.data.WriteAheadLogSecurityRepositoryImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class AlarmEventRecorderTests {
+    @TempDir
+    Path directory;
+
+    private final AtomicBoolean cat = new AtomicBoolean();
+    private final ImageService imageService = (image, confidenceThreshold) -> cat.get();
+    private final BufferedImage image = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+
+    @Test
+    @DisplayName("Replaying a recording ends in the live state")
+    public void verifyThatReplayMatchesLiveState_when_SessionIsRecorded() throws IOException {
+        Path recording = directory.resolve("session.cpev");
+        try (var repository = new WriteAheadLogSecurityRepositoryImpl(directory.resolve("repo"))) {
+            SecurityService service = SecurityService.concurrent(repository, imageService);
+            List<Sensor> sensors = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                sensors.add(new Sensor("Sensor " + i, SensorType.values()[i % SensorType.values().length]));
+            }
+            service.addSensors(sensors);
+            service.startRecording(recording);
+
+            service.setArmingStatus(ArmingStatus.ARMED_AWAY);
+            for (int i = 0; i < 50; i++) {
+                Sensor sensor = sensors.get(i % sensors.size());
+                service.changeSensorActivationStatus(sensor, !sensor.getActive());
+                if (i % 7 == 0) {
+                    cat.set(i % 2 == 0);
+                    service.processImage(image);
+                }
+                if (i == 25) {
+                    service.setArmingStatus(ArmingStatus.ARMED_HOME);
+                }
+            }
+            Sensor extra = new Sensor("Extra", SensorType.MOTION);
+            extra.setActive(true);
+            service.addSensor(extra);
+            service.removeSensor(sensors.get(0));
+            service.stopRecording();
+
+            AlarmState replayed = AlarmEventReplayer.replay(recording);
+            Assertions.assertEquals(service.getAlarmStatus(), replayed.alarmStatus());
+            Assertions.assertEquals(service.getArmingStatus(), replayed.armingStatus());
+            Assertions.assertEquals(service.getActiveSensorCount(), replayed.activeSensors());
+        }
+    }
+
+    @Test
+    @DisplayName("A recording cut off mid-event replays up to the last complete event")
+    public void verifyThatTornEventIsIgnored_when_RecordingIsReplayed() throws IOException {
+        Path recording = directory.resolve("session.cpev");
+        try (var recorder = new AlarmEventRecorder(recording,
+                new AlarmState(AlarmStatus.NO_ALARM, ArmingStatus.DISARMED, false, 0))) {
+            recorder.record(new AlarmEvent.ArmingStatusChanged(ArmingStatus.ARMED_HOME));
+            recorder.record(new AlarmEvent.ImageClassified(true));
+            recorder.record(new AlarmEvent.ArmingStatusChanged(ArmingStatus.DISARMED));
+        }
+        try (FileChannel channel = FileChannel.open(recording, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(recording) - 1);
+        }
+
+        AlarmState replayed = AlarmEventReplayer.replay(recording);
+        Assertions.assertEquals(AlarmStatus.ALARM, replayed.alarmStatus());
+        Assertions.assertEquals(ArmingStatus.ARMED_HOME, replayed.armingStatus());
+        Assertions.assertTrue(replayed.catDetected());
+    }
+
+    @Test
+    @DisplayName("Activations during an entry delay replay without raising the alarm early")
+    public void verifyThatEntryDelayIsReplayed_when_SecondSensorTrips() throws IOException {
+        Path recording = directory.resolve("session.cpev");
+        try (var recorder = new AlarmEventRecorder(recording,
+                new AlarmState(AlarmStatus.NO_ALARM, ArmingStatus.ARMED_AWAY, false, 0))) {
+            recorder.record(new AlarmEvent.SensorActivated(UUID.randomUUID(), true));
+            recorder.record(new AlarmEvent.SensorActivated(UUID.randomUUID(), true));
+        }
+
+        AlarmState replayed = AlarmEventReplayer.replay(recording);
+        Assertions.assertEquals(AlarmStatus.PENDING_ALARM, replayed.alarmStatus());
+        Assertions.assertEquals(2, replayed.activeSensors());
+    }
+}
@@ -0,0 +1,172 @@
+package com.udacity.catpoint.secservice.service;
+
+import com.udacity.catpoint.secservice.application.SensorChange;
+import com.udacity.catpoint.secservice.application.SensorChangeEvent;
+import com.udacity.catpoint.secservice.application.StatusListener;
+import com.udacity.catpoint.secservice.data.AlarmStatus;
+import com.udacity.catpoint.secservice.data.ArmingStatus;
+import com.udacity.catpoint.secservice.data.Sensor;
+import com.udacity.catpoint.secservice.data.SensorType;
+import com.udacity.catpoint.secservice.data.WriteAheadLogSecurityRepositoryImpl;
+import com.udacity.catpoint.secservice.metrics.InMemoryMetricsRegistry;
+import com.udacity.catpoint.secservice.metrics.InstrumentedSecurityRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class AlarmTimingTests {
+    @TempDir
+    Path directory;
+
+    private final ManualClock clock = new ManualClock();
+    private final InMemoryMetricsRegistry metrics = new InMemoryMetricsRegistry();
+    private final List<AlarmStatus> statuses = new ArrayList<>();
+    private final List<SensorChangeEvent> sensorEvents = new ArrayList<>();
+    private WriteAheadLogSecurityRepositoryImpl repository;
+    private HashedWheelTimer timer;
+    private SecurityService securityService;
+    private Sensor door;
+
+    @BeforeEach
+    public void setUp() {
+        repository = new WriteAheadLogSecurityRepositoryImpl(directory);
+        timer = new HashedWheelTimer(Duration.ofMillis(10), 64, clock, metrics);
+        securityService = SecurityService.concurrent(new InstrumentedSecurityRepository(repository, metrics),
+                (image, threshold) -> false, metrics);
+        door = new Sensor("Front Door", SensorType.DOOR);
+        securityService.addSensor(door);
+        securityService.addStatusListener(new StatusListener() {
+            @Override
+            public void notify(AlarmStatus status) {
+                statuses.add(status);
+            }
+
+            @Override
+            public void catDetected(boolean catDetected) {
+            }
+
+            @Override
+            public void sensorStatusChanged() {
+            }
+
+            @Override
+            public void sensorsChanged(SensorChangeEvent event) {
+                sensorEvents.add(event);
+            }
+        });
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        timer.close();
+        repository.close();
+    }
+
+    private void advance(Duration duration) {
+        clock.advance(duration);
+        timer.expire();
+    }
+
+    @Test
+    @DisplayName("A chattering sensor is applied once, after it settles")
+    public void verifyThatSensorIsDebounced_when_ItChatters() {
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+        securityService.setTiming(new AlarmTiming(Duration.ofMillis(100), Duration.ZERO, Duration.ZERO), timer);
+        statuses.clear();
+
+        for (int i = 0; i < 200; i++) {
+            securityService.changeSensorActivationStatus(door, i % 2 == 0);
+            advance(Duration.ofMillis(5));
+        }
+        securityService.changeSensorActivationStatus(door, true);
+        Assertions.assertFalse(door.getActive());
+        Assertions.assertTrue(statuses.isEmpty());
+        Assertions.assertTrue(sensorEvents.isEmpty());
+
+        advance(Duration.ofMillis(110));
+
+        Assertions.assertTrue(door.getActive());
+        Assertions.assertEquals(List.of(AlarmStatus.PENDING_ALARM), statuses);
+        Assertions.assertEquals(1, metrics.timer("repository.updateSensor").snapshot().count());
+        Assertions.assertEquals(SensorChange.Kind.ACTIVATED, sensorEvents.get(0).changes().get(0).kind());
+        //every deactivation undid the activation still waiting before it
+        Assertions.assertEquals(100, metrics.counter("service.debounce.suppressed").count());
+    }
+
+    @Test
+    @DisplayName("A pending alarm is raised once the entry delay runs out, unless it clears first")
+    public void verifyThatAlarmIsRaised_when_EntryDelayExpires() {
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        securityService.setTiming(new AlarmTiming(Duration.ZERO, Duration.ofSeconds(30), Duration.ZERO), timer);
+
+        securityService.changeSensorActivationStatus(door, true);
+        advance(Duration.ofSeconds(20));
+        securityService.changeSensorActivationStatus(door, false);
+        advance(Duration.ofSeconds(20));
+        Assertions.assertEquals(AlarmStatus.NO_ALARM, securityService.getAlarmStatus());
+
+        securityService.changeSensorActivationStatus(door, true);
+        advance(Duration.ofSeconds(29));
+        Assertions.assertEquals(AlarmStatus.PENDING_ALARM, securityService.getAlarmStatus());
+        advance(Duration.ofSeconds(2));
+        Assertions.assertEquals(AlarmStatus.ALARM, securityService.getAlarmStatus());
+        Assertions.assertEquals(0, timer.getPendingTimeouts());
+    }
+
+    @Test
+    @DisplayName("A second sensor tripping during the entry delay leaves the alarm pending until the delay runs out")
+    public void verifyThatAlarmStaysPending_when_SecondSensorTripsDuringEntryDelay() {
+        var hallway = new Sensor("Hallway", SensorType.MOTION);
+        var window = new Sensor("Kitchen Window", SensorType.WINDOW);
+        securityService.addSensor(hallway);
+        securityService.addSensor(window);
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        securityService.setTiming(new AlarmTiming(Duration.ZERO, Duration.ofSeconds(30), Duration.ZERO), timer);
+
+        securityService.changeSensorActivationStatus(door, true);
+        advance(Duration.ofSeconds(10));
+        securityService.changeSensorActivationStatus(hallway, true);
+        Assertions.assertEquals(AlarmStatus.PENDING_ALARM, securityService.getAlarmStatus());
+        securityService.changeSensorActivationStatus(Map.of(window, true));
+        Assertions.assertEquals(AlarmStatus.PENDING_ALARM, securityService.getAlarmStatus());
+
+        //the delay still counts from the first sensor
+        advance(Duration.ofSeconds(21));
+        Assertions.assertEquals(AlarmStatus.ALARM, securityService.getAlarmStatus());
+        Assertions.assertEquals(3, securityService.getActiveSensorCount());
+    }
+
+    @Test
+    @DisplayName("Arming waits for the exit delay, so sensors tripped on the way out raise nothing")
+    public void verifyThatArmingIsDeferred_when_ExitDelayIsSet() {
+        securityService.setTiming(new AlarmTiming(Duration.ZERO, Duration.ZERO, Duration.ofSeconds(60)), timer);
+
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        Assertions.assertEquals(ArmingStatus.DISARMED, securityService.getArmingStatus());
+        Assertions.assertEquals(ArmingStatus.ARMED_AWAY, securityService.getPendingArmingStatus());
+        securityService.changeSensorActivationStatus(door, true);
+        securityService.changeSensorActivationStatus(door, false);
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+        advance(Duration.ofSeconds(61));
+
+        Assertions.assertEquals(ArmingStatus.ARMED_HOME, securityService.getArmingStatus());
+        Assertions.assertEquals(AlarmStatus.NO_ALARM, securityService.getAlarmStatus());
+        Assertions.assertNull(securityService.getPendingArmingStatus());
+
+        securityService.setArmingStatus(ArmingStatus.DISARMED);
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        securityService.setArmingStatus(ArmingStatus.DISARMED);
+        advance(Duration.ofSeconds(61));
+        Assertions.assertEquals(ArmingStatus.DISARMED, securityService.getArmingStatus());
+    }
+}
@@ -0,0 +1,73 @@
+package com.udacity.catpoint.secservice.service;
+
+import com.udacity.catpoint.secservice.metrics.MetricsRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class HashedWheelTimerTests {
+    @Test
+    @DisplayName("Timeouts spanning many turns of the wheel fire within one tick of their deadline")
+    public void verifyThatTimeoutsFireOnTime_when_ManyAreOutstanding() {
+        var clock = new ManualClock();
+        var timer = new HashedWheelTimer(Duration.ofMillis(10), 64, clock, MetricsRegistry.noop());
+        var random = new Random(42);
+        int count = 100_000;
+        long[] deadlines = new long[count];
+        long[] firedAt = new long[count];
+        List<HashedWheelTimer.Timeout> timeouts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            deadlines[i] = random.nextInt(5_000);
+            timeouts.add(timer.schedule(() -> firedAt[index] = clock.millis(), Duration.ofMillis(deadlines[i])));
+        }
+        int cancelled = 0;
+        for (int i = 0; i < count; i += 10) {
+            Assertions.assertTrue(timeouts.get(i).cancel());
+            cancelled++;
+        }
+        Assertions.assertEquals(count - cancelled, timer.getPendingTimeouts());
+
+        long start = clock.millis();
+        int expired = 0;
+        for (int step = 0; step <= 510; step++) {
+            expired += timer.expire();
+            clock.advance(Duration.ofMillis(10));
+        }
+
+        Assertions.assertEquals(count - cancelled, expired);
+        Assertions.assertEquals(0, timer.getPendingTimeouts());
+        for (int i = 0; i < count; i++) {
+            if (i % 10 == 0) {
+                Assertions.assertEquals(0, firedAt[i]);
+                Assertions.assertTrue(timeouts.get(i).isCancelled());
+            } else {
+                long late = firedAt[i] - start - deadlines[i];
+                Assertions.assertTrue(late >= 0 && late < 10, "timeout " + i + " was " + late + "ms late");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("A task that throws does not keep the other tasks from running")
+    public void verifyThatFailuresAreIsolated_when_TaskThrows() {
+        var clock = new ManualClock();
+        var timer = new HashedWheelTimer(Duration.ofMillis(10), 8, clock, MetricsRegistry.noop());
+        List<String> ran = new ArrayList<>();
+        timer.schedule(() -> {
+            throw new IllegalStateException("broken");
+        }, Duration.ofMillis(5));
+        timer.schedule(() -> ran.add("second"), Duration.ofMillis(5));
+
+        clock.advance(Duration.ofMillis(4));
+        Assertions.assertEquals(0, timer.expire());
+        clock.advance(Duration.ofMillis(6));
+        Assertions.assertEquals(2, timer.expire());
+        Assertions.assertEquals(List.of("second"), ran);
+    }
+}
@@ -1,6 +1,7 @@
 package com.udacity.catpoint.secservice.service;
 
 import com.udacity.catpoint.imageservice.ImageService;
+import com.udacity.catpoint.imageservice.ResilientImageService;
 import com.udacity.catpoint.secservice.application.StatusListener;
 import com.udacity.catpoint.secservice.data.*;
 import net.bytebuddy.utility.RandomString;
@@ -14,9 +15,14 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 import static org.mockito.Mockito.*;
@@ -210,6 +216,8 @@ public class SecurityServiceTests {
                 new Sensor("ABC", SensorType.DOOR),
                 new Sensor("BCD", SensorType.WINDOW),
                 new Sensor("EFG", SensorType.MOTION)));
+        // active sensors are counted when the service starts up
+        securityService = new SecurityService(securityRepository, imageService);
 
         // Act
         securityService.processImage(image);
@@ -270,6 +278,162 @@ public class SecurityServiceTests {
         verify(securityRepository, times(1)).setAlarmStatus(AlarmStatus.ALARM);
     }
 
+    @Test // TC 12
+    @DisplayName("Batch of Activations + Armed => Alarm On, Written Once")
+    public void verifyThatBatchActivationEvaluatesAlarmOnce_when_SystemIsArmed() {
+        // Arrange
+        when(securityRepository.getAlarmStatus()).thenReturn(AlarmStatus.NO_ALARM);
+        when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_AWAY);
+        securityService.addStatusListener(listener);
+        var changes = new LinkedHashMap<Sensor, Boolean>();
+        changes.put(new Sensor("ABC", SensorType.DOOR), true);
+        changes.put(new Sensor("BCD", SensorType.WINDOW), true);
+        changes.put(new Sensor("EFG", SensorType.MOTION), true);
+
+        // Act
+        securityService.changeSensorActivationStatus(changes);
+
+        // Assert
+        verify(securityRepository, times(1)).setAlarmStatus(AlarmStatus.ALARM);
+        verify(securityRepository, never()).setAlarmStatus(AlarmStatus.PENDING_ALARM);
+        verify(securityRepository, times(1)).updateSensors(anyCollection());
+        verify(securityRepository, never()).updateSensor(any(Sensor.class));
+        verify(listener, times(1)).sensorStatusChanged();
+        changes.keySet().forEach(sensor -> Assertions.assertTrue(sensor.getActive()));
+    }
+
+    @Test // TC 13
+    @DisplayName("Batch that Activates then Deactivates + Armed => No Alarm Change")
+    public void verifyThatBatchLeavesAlarmUnchanged_when_ChangesCancelOut() {
+        // Arrange
+        when(securityRepository.getAlarmStatus()).thenReturn(AlarmStatus.NO_ALARM);
+        when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_HOME);
+        var active = new Sensor("ABC", SensorType.DOOR);
+        active.setActive(true);
+        var changes = new LinkedHashMap<Sensor, Boolean>();
+        changes.put(new Sensor("BCD", SensorType.WINDOW), true);
+        changes.put(active, false);
+
+        // Act
+        securityService.changeSensorActivationStatus(changes);
+
+        // Assert
+        verify(securityRepository, never()).setAlarmStatus(any(AlarmStatus.class));
+        verify(securityRepository, times(1)).updateSensors(anyCollection());
+    }
+
+    @Test // TC 14
+    @DisplayName("No \uD83D\uDC08 + Active Sensor => Alarm Unchanged")
+    public void verifyThatActiveSensorsAreTracked_when_NoCatIsDetected() {
+        // Arrange
+        when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.DISARMED);
+        when(imageService.imageContainsCat(image, 50.0f)).thenReturn(false);
+        var door = new Sensor("ABC", SensorType.DOOR);
+        var window = new Sensor("BCD", SensorType.WINDOW);
+        securityService.addSensor(door);
+        securityService.addSensor(window);
+        securityService.changeSensorActivationStatus(door, true);
+        securityService.changeSensorActivationStatus(window, true);
+        securityService.changeSensorActivationStatus(window, false);
+
+        // Act
+        securityService.processImage(image);
+
+        // Assert
+        Assertions.assertEquals(1, securityService.getActiveSensorCount());
+        Assertions.assertEquals(1, securityService.getActiveSensorCount(SensorType.DOOR));
+        Assertions.assertEquals(0, securityService.getActiveSensorCount(SensorType.WINDOW));
+        verify(securityRepository, never()).setAlarmStatus(AlarmStatus.NO_ALARM);
+    }
+
+    @Test // TC 15
+    @DisplayName("Concurrent Activations + Armed => Alarm On!")
+    public void verifyThatConcurrentServiceEscalates_when_SensorsAreActivatedFromManyThreads() throws Exception {
+        // Arrange
+        when(securityRepository.getAlarmStatus()).thenReturn(AlarmStatus.NO_ALARM);
+        when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_AWAY);
+        var concurrentService = SecurityService.concurrent(securityRepository, imageService);
+        var sensors = Stream.generate(() -> new Sensor(new RandomString().nextString(), SensorType.MOTION))
+                .limit(32)
+                .toList();
+        var executor = Executors.newFixedThreadPool(8);
+
+        // Act
+        try {
+            var start = new CountDownLatch(1);
+            var futures = sensors.stream()
+                    .map(sensor -> executor.submit(() -> {
+                        start.await();
+                        concurrentService.changeSensorActivationStatus(sensor, true);
+                        return null;
+                    }))
+                    .toList();
+            start.countDown();
+            for (var future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // Assert
+        Assertions.assertEquals(AlarmStatus.ALARM, concurrentService.getAlarmStatus());
+        Assertions.assertEquals(32, concurrentService.getActiveSensorCount());
+        // a racing thread may publish ALARM before PENDING_ALARM was ever written
+        verify(securityRepository, atMost(1)).setAlarmStatus(AlarmStatus.PENDING_ALARM);
+        verify(securityRepository, times(1)).setAlarmStatus(AlarmStatus.ALARM);
+    }
+
+    @Test // TC 16
+    @DisplayName("Async \uD83D\uDC08 + \uD83C\uDFE0 => \uD83D\uDE31!")
+    public void verifyThatAsyncImageProcessingRaisesAlarm_when_SystemIsArmedHome() throws Exception {
+        // Arrange
+        when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_HOME);
+        when(imageService.imageContainsCat(image, 50.0f)).thenReturn(true);
+
+        // Act
+        var cat = securityService.processImageAsync(image).get(5, TimeUnit.SECONDS);
+
+        // Assert
+        Assertions.assertTrue(cat);
+        verify(securityRepository, times(1)).setAlarmStatus(AlarmStatus.ALARM);
+    }
+
+    @Test // TC 17
+    @DisplayName("Many Cameras, One \uD83D\uDC08 + \uD83C\uDFE0 => \uD83D\uDE31!")
+    public void verifyThatBatchImageProcessingRaisesAlarm_when_AnyCameraSeesACat() {
+        // Arrange
+        when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_HOME);
+        var cameras = Map.of("front", image, "back", image);
+        when(imageService.imageContainsCat(cameras, 50.0f)).thenReturn(Map.of("front", false, "back", true));
+
+        // Act
+        var results = securityService.processImages(cameras);
+
+        // Assert
+        Assertions.assertTrue(results.get("back"));
+        verify(securityRepository, times(1)).setAlarmStatus(AlarmStatus.ALARM);
+        verify(imageService, never()).imageContainsCat(any(BufferedImage.class), anyFloat());
+    }
+
+    @Test // TC 18
+    @DisplayName("\uD83D\uDCA5 Remote + Local \uD83D\uDC08 + \uD83C\uDFE0 => \uD83D\uDE31!")
+    public void verifyThatFallbackVerdictRaisesAlarm_when_RemoteImageServiceFails() {
+        // Arrange
+        when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_HOME);
+        when(imageService.imageContainsCat(image, 50.0f)).thenThrow(new IllegalStateException("remote unavailable"));
+        try (var resilient = new ResilientImageService(imageService, (frame, threshold) -> true)) {
+            securityService = new SecurityService(securityRepository, resilient);
+
+            // Act
+            securityService.processImage(image);
+
+            // Assert
+            Assertions.assertEquals(1, resilient.getFallbackCount());
+            verify(securityRepository, times(1)).setAlarmStatus(AlarmStatus.ALARM);
+        }
+    }
+
     @Test
     @DisplayName("Test Status Listeners")
     public void codeCoverageForStatusListeners() {
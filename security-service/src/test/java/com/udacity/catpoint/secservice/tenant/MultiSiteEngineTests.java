@@ -0,0 +1,67 @@
+package com.udacity.catpoint.secservice.tenant;
+
+import com.udacity.catpoint.secservice.data.AlarmStatus;
+import com.udacity.catpoint.secservice.data.ArmingStatus;
+import com.udacity.catpoint.secservice.metrics.InMemoryMetricsRegistry;
+import com.udacity.catpoint.secservice.service.AlarmState;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.UUID;
+
+public class MultiSiteEngineTests {
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Sites keep their own state across page-outs and restarts")
+    public void verifyThatSitesAreIndependent_when_TheyArePagedOut() throws Exception {
+        int sites = 50;
+        UUID[] sensors = new UUID[sites];
+        var metrics = new InMemoryMetricsRegistry();
+        try (var engine = new MultiSiteEngine(new FileSiteStore(directory), null, 2, 4,
+                Duration.ofMinutes(10), 1_024, Clock.systemUTC(), metrics)) {
+            for (int i = 0; i < sites; i++) {
+                String site = "site-" + i;
+                sensors[i] = UUID.randomUUID();
+                engine.addSensor(site, sensors[i], false);
+                engine.setArmingStatus(site, i % 2 == 0 ? ArmingStatus.ARMED_AWAY : ArmingStatus.DISARMED);
+                engine.changeSensorActivationStatus(site, sensors[i], true);
+            }
+            Assertions.assertEquals(AlarmStatus.PENDING_ALARM, engine.getAlarmState("site-0").join().alarmStatus());
+            Assertions.assertTrue(engine.getResidentSiteCount() <= 4);
+            Assertions.assertTrue(metrics.counter("engine.pageIns").count() > 0);
+        }
+
+        try (var engine = new MultiSiteEngine(new FileSiteStore(directory))) {
+            for (int i = 0; i < sites; i++) {
+                AlarmState state = engine.getAlarmState("site-" + i).join();
+                Assertions.assertEquals(i % 2 == 0 ? AlarmStatus.PENDING_ALARM : AlarmStatus.NO_ALARM, state.alarmStatus());
+                Assertions.assertEquals(1, state.activeSensors());
+                Assertions.assertEquals(Boolean.TRUE, engine.getSensors("site-" + i).join().get(sensors[i]));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Arming a site resets only that site's sensors")
+    public void verifyThatArmingResetsSensors_when_SiteIsArmed() throws Exception {
+        UUID door = UUID.randomUUID();
+        UUID window = UUID.randomUUID();
+        try (var engine = new MultiSiteEngine(new FileSiteStore(directory))) {
+            engine.addSensor("home", door, true);
+            engine.addSensor("office", window, true);
+            AlarmState home = engine.setArmingStatus("home", ArmingStatus.ARMED_HOME).join();
+
+            Assertions.assertEquals(0, home.activeSensors());
+            Assertions.assertFalse(engine.getSensors("home").join().get(door));
+            Assertions.assertTrue(engine.getSensors("office").join().get(window));
+            Assertions.assertEquals(1, engine.getAlarmState("office").join().activeSensors());
+        }
+    }
+}